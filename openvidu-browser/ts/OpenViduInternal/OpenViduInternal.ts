@@ -210,6 +210,7 @@ export class OpenViduInternal {
                 participantEvicted: this.onParticipantEvicted.bind(this),
                 sendMessage: this.onNewMessage.bind(this),
                 iceCandidate: this.iceCandidateEvent.bind(this),
+                iceCandidates: this.iceCandidatesEvent.bind(this),
                 mediaError: this.onMediaError.bind(this),
             }
         };
@@ -298,6 +299,12 @@ export class OpenViduInternal {
         }
     }
 
+    private iceCandidatesEvent(params) {
+        if (this.isRoomAvailable()) {
+            this.session.recvIceCandidates(params);
+        }
+    }
+
     private onRoomClosed(params) {
         if (this.isRoomAvailable()) {
             this.session.onRoomClosed(params);
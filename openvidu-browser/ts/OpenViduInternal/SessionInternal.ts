@@ -122,6 +122,7 @@ export class SessionInternal {
                     metadata: this.options.metadata,
                     secret: this.openVidu.getSecret(),
                     recorder: this.openVidu.getRecorder(),
+                    iceCandidateBatching: true
                 }
 
                 this.openVidu.sendRequest('joinRoom', joinParams, (error, response) => {
@@ -438,6 +439,17 @@ export class SessionInternal {
 
     }
 
+    recvIceCandidates(msg) {
+        for (let candidate of msg.candidates) {
+            this.recvIceCandidate({
+                endpointName: msg.endpointName,
+                candidate: candidate.candidate,
+                sdpMid: candidate.sdpMid,
+                sdpMLineIndex: candidate.sdpMLineIndex
+            });
+        }
+    }
+
     recvIceCandidate(msg) {
 
         let candidate = {
@@ -43,7 +43,7 @@ public class OpenViduException extends JsonRpcErrorException {
 		USER_METADATA_FORMAT_INVALID_ERROR_CODE(500),
 
 		SIGNAL_FORMAT_INVALID_ERROR_CODE(600), SIGNAL_TO_INVALID_ERROR_CODE(601), SIGNAL_MESSAGE_INVALID_ERROR_CODE(
-				602),
+				602), SIGNAL_RATE_LIMIT_ERROR_CODE(603), SIGNAL_SIZE_LIMIT_ERROR_CODE(604),
 
 		RECORDING_PATH_NOT_VALID(708), RECORDING_FILE_EMPTY_ERROR(707), RECORDING_DELETE_ERROR_CODE(706), RECORDING_LIST_ERROR_CODE(
 				705), RECORDING_STOP_ERROR_CODE(704), RECORDING_START_ERROR_CODE(
@@ -37,6 +37,7 @@ public class ProtocolElements {
   public static final String JOINROOM_METADATA_PARAM = "metadata";
   public static final String JOINROOM_SECRET_PARAM = "secret";
   public static final String JOINROOM_RECORDER_PARAM = "recorder";
+  public static final String JOINROOM_ICECANDIDATEBATCHING_PARAM = "iceCandidateBatching";
   
   public static final String JOINROOM_PEERID_PARAM = "id";
   public static final String JOINROOM_PEERSTREAMS_PARAM = "streams";
@@ -114,6 +115,10 @@ public class ProtocolElements {
   public static final String ICECANDIDATE_CANDIDATE_PARAM = "candidate";
   public static final String ICECANDIDATE_SDPMID_PARAM = "sdpMid";
   public static final String ICECANDIDATE_SDPMLINEINDEX_PARAM = "sdpMLineIndex";
+
+  public static final String ICECANDIDATES_METHOD = "iceCandidates";
+  public static final String ICECANDIDATES_EPNAME_PARAM = "endpointName";
+  public static final String ICECANDIDATES_CANDIDATES_PARAM = "candidates";
   
   public static final String RECORDINGSTARTED_METHOD = "recordingStarted";
   public static final String RECORDINGSTARTED_ID_PARAM = "id";
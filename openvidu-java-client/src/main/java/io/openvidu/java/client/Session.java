@@ -48,6 +48,7 @@ public class Session {
 			json.put("recordingMode", properties.recordingMode().name());
 			json.put("defaultRecordingLayout", properties.defaultRecordingLayout().name());
 			json.put("defaultCustomLayout", properties.defaultCustomLayout());
+			json.put("subscriptionPolicy", properties.subscriptionPolicy().name());
 			StringEntity params = new StringEntity(json.toString());
 			
 			request.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
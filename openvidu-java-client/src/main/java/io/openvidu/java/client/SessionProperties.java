@@ -6,6 +6,7 @@ public class SessionProperties {
 	private RecordingMode recordingMode;
 	private RecordingLayout defaultRecordingLayout;
 	private String defaultCustomLayout;
+	private SubscriptionPolicy subscriptionPolicy;
 
 	public static class Builder {
 
@@ -13,10 +14,11 @@ public class SessionProperties {
 		private RecordingMode recordingMode = RecordingMode.MANUAL;
 		private RecordingLayout defaultRecordingLayout = RecordingLayout.BEST_FIT;
 		private String defaultCustomLayout = "";
+		private SubscriptionPolicy subscriptionPolicy = SubscriptionPolicy.EAGER;
 
 		public SessionProperties build() {
 			return new SessionProperties(this.mediaMode, this.recordingMode, this.defaultRecordingLayout,
-					this.defaultCustomLayout);
+					this.defaultCustomLayout, this.subscriptionPolicy);
 		}
 
 		public SessionProperties.Builder mediaMode(MediaMode mediaMode) {
@@ -39,6 +41,11 @@ public class SessionProperties {
 			return this;
 		}
 
+		public SessionProperties.Builder subscriptionPolicy(SubscriptionPolicy subscriptionPolicy) {
+			this.subscriptionPolicy = subscriptionPolicy;
+			return this;
+		}
+
 	}
 
 	protected SessionProperties() {
@@ -46,14 +53,16 @@ public class SessionProperties {
 		this.recordingMode = RecordingMode.MANUAL;
 		this.defaultRecordingLayout = RecordingLayout.BEST_FIT;
 		this.defaultCustomLayout = "";
+		this.subscriptionPolicy = SubscriptionPolicy.EAGER;
 	}
 
 	private SessionProperties(MediaMode mediaMode, RecordingMode recordingMode, RecordingLayout layout,
-			String defaultCustomLayout) {
+			String defaultCustomLayout, SubscriptionPolicy subscriptionPolicy) {
 		this.mediaMode = mediaMode;
 		this.recordingMode = recordingMode;
 		this.defaultRecordingLayout = layout;
 		this.defaultCustomLayout = defaultCustomLayout;
+		this.subscriptionPolicy = subscriptionPolicy;
 	}
 
 	public RecordingMode recordingMode() {
@@ -72,4 +81,8 @@ public class SessionProperties {
 		return this.defaultCustomLayout;
 	}
 
+	public SubscriptionPolicy subscriptionPolicy() {
+		return this.subscriptionPolicy;
+	}
+
 }
\ No newline at end of file
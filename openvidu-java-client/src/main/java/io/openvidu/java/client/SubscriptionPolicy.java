@@ -0,0 +1,7 @@
+package io.openvidu.java.client;
+
+public enum SubscriptionPolicy {
+	EAGER, // Subscriber endpoints are prepared for every other participant when joining and whenever a stream is published
+	LAZY, // Subscriber endpoints are only prepared in advance for the participants that are publishing a stream
+	ON_DEMAND // Subscriber endpoints are only created when a participant actually subscribes to a stream
+}
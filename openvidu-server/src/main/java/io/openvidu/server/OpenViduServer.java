@@ -48,7 +48,9 @@ import io.openvidu.server.kurento.AutodiscoveryKurentoClientProvider;
 import io.openvidu.server.kurento.KurentoClientProvider;
 import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
 import io.openvidu.server.kurento.core.KurentoSessionManager;
+import io.openvidu.server.kurento.endpoint.IceCandidateCoalescer;
 import io.openvidu.server.kurento.kms.FixedOneKmsManager;
+import io.openvidu.server.kurento.kms.MultipleKmsManager;
 import io.openvidu.server.recording.ComposedRecordingService;
 import io.openvidu.server.rest.NgrokRestController;
 import io.openvidu.server.rpc.RpcHandler;
@@ -91,9 +93,12 @@ public class OpenViduServer implements JsonRpcConfigurer {
 		if (firstKmsWsUri.equals("autodiscovery")) {
 			log.info("Using autodiscovery rules to locate KMS on every pipeline");
 			return new AutodiscoveryKurentoClientProvider();
-		} else {
-			log.info("Configuring Kurento Room Server to use first of the following kmss: " + kmsWsUris);
+		} else if (kmsWsUris.size() == 1) {
+			log.info("Configuring Kurento Room Server to use kms: " + firstKmsWsUri);
 			return new FixedOneKmsManager(firstKmsWsUri);
+		} else {
+			log.info("Configuring Kurento Room Server to use the following kmss: " + kmsWsUris);
+			return new MultipleKmsManager(kmsWsUris);
 		}
 	}
 
@@ -121,6 +126,12 @@ public class OpenViduServer implements JsonRpcConfigurer {
 		return new KurentoSessionEventsHandler();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public IceCandidateCoalescer iceCandidateCoalescer() {
+		return new IceCandidateCoalescer();
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public CallDetailRecord cdr() {
@@ -1,9 +1,18 @@
 package io.openvidu.server.config;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,35 +21,238 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+/**
+ * Broadcasts info messages to the info websockets. Messages are only queued by
+ * the threads calling {@link #sendInfo(String, String)}, which never wait for a
+ * websocket: each websocket has its own bounded ring buffer, emptied by a sender
+ * thread. When a websocket doesn't keep up, its oldest messages are dropped,
+ * and the ones still buffered when it closes are discarded.
+ * Websockets connected with a <code>session</code> query parameter only
+ * receive the messages of that session (and the ones not related to any).
+ */
 public class InfoHandler extends TextWebSocketHandler {
 	
 	private static final Logger log = LoggerFactory.getLogger(InfoHandler.class);
+
+	private static class InfoClient {
+
+		private final WebSocketSession session;
+		private final String sessionFilter;
+
+		// Messages not sent yet. When full, the oldest one is overwritten
+		private final String[] ring;
+		private int head = 0;
+		private int size = 0;
+		// Set when the websocket is closed: no more messages are buffered
+		private boolean closed = false;
+
+		// True while a sender is emptying the buffer
+		private final AtomicBoolean sending = new AtomicBoolean(false);
+		private final AtomicLong dropped = new AtomicLong(0);
+
+		private InfoClient(WebSocketSession session, String sessionFilter, int bufferSize) {
+			this.session = session;
+			this.sessionFilter = sessionFilter;
+			this.ring = new String[bufferSize];
+		}
+
+		private boolean accepts(String sessionId) {
+			return sessionFilter == null || sessionId == null || sessionFilter.equals(sessionId);
+		}
+
+		/**
+		 * @return true if the oldest message had to be dropped
+		 */
+		private synchronized boolean offer(String info) {
+			if (closed) {
+				return false;
+			}
+			boolean drop = size == ring.length;
+			if (drop) {
+				head = (head + 1) % ring.length;
+				size--;
+				dropped.incrementAndGet();
+			}
+			ring[(head + size) % ring.length] = info;
+			size++;
+			return drop;
+		}
+
+		private synchronized String poll() {
+			if (size == 0) {
+				return null;
+			}
+			String info = ring[head];
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			size--;
+			return info;
+		}
+
+		private synchronized boolean isEmpty() {
+			return size == 0;
+		}
+
+		/**
+		 * Discards the messages not sent yet and the ones offered from now on
+		 *
+		 * @return the number of messages discarded
+		 */
+		private synchronized int clear() {
+			closed = true;
+			int discarded = size;
+			Arrays.fill(ring, null);
+			head = 0;
+			size = 0;
+			dropped.addAndGet(discarded);
+			return discarded;
+		}
+	}
+
+	private final int bufferSize;
+
+	Map<String, InfoClient> sessions = new ConcurrentHashMap<>();
+	List<Runnable> firstConnectionListeners = new CopyOnWriteArrayList<>();
+
+	private final ExecutorService senders;
+
+	private final AtomicLong sent = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	/**
+	 * @param bufferSize
+	 *            maximum number of messages waiting to be sent to each websocket
+	 */
+	public InfoHandler(int bufferSize) {
+		this.bufferSize = Math.max(1, bufferSize);
+		AtomicInteger threadCount = new AtomicInteger(0);
+		this.senders = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "info-sender-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@PreDestroy
+	public void close() {
+		this.senders.shutdownNow();
+		log.info("Info messages: {} sent, {} dropped", getSent(), getDropped());
+	}
 	
-	Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-	Semaphore semaphore = new Semaphore(1);
+	/**
+	 * @return true if there is any info websocket connected
+	 */
+	public boolean isActive() {
+		return !this.sessions.isEmpty();
+	}
 	
-	public void sendInfo(String info){
-		for (WebSocketSession session : this.sessions.values()) {
+	/**
+	 * Runs <code>listener</code> each time an info websocket is connected while
+	 * there were none
+	 */
+	public void addFirstConnectionListener(Runnable listener) {
+		this.firstConnectionListeners.add(listener);
+	}
+	
+	/**
+	 * Sends <code>info</code> to every info websocket
+	 */
+	public void sendInfo(String info) {
+		sendInfo(null, info);
+	}
+
+	/**
+	 * Sends <code>info</code>, about the session <code>sessionId</code>, to the
+	 * info websockets interested in it. Returns without waiting for any websocket
+	 */
+	public void sendInfo(String sessionId, String info) {
+		for (InfoClient client : this.sessions.values()) {
+			if (client.accepts(sessionId)) {
+				if (client.offer(info)) {
+					this.dropped.incrementAndGet();
+				}
+				scheduleSending(client);
+			}
+		}
+	}
+
+	/**
+	 * @return number of info websockets connected
+	 */
+	public int getConnections() {
+		return this.sessions.size();
+	}
+
+	/**
+	 * @return number of messages sent to info websockets
+	 */
+	public long getSent() {
+		return this.sent.get();
+	}
+
+	/**
+	 * @return number of messages dropped because an info websocket didn't keep up
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	private void scheduleSending(InfoClient client) {
+		if (client.sending.compareAndSet(false, true)) {
 			try {
-				this.semaphore.acquire();
-				session.sendMessage(new TextMessage(info));
-				this.semaphore.release();
-			} catch (IOException | InterruptedException e) {
-				e.printStackTrace();
+				this.senders.execute(() -> send(client));
+			} catch (Exception e) {
+				client.sending.set(false);
+				log.warn("Info message not sent: {}", e.getMessage());
 			}
 		}
 	}
-	
+
+	private void send(InfoClient client) {
+		String info;
+		while ((info = client.poll()) != null) {
+			try {
+				client.session.sendMessage(new TextMessage(info));
+				this.sent.incrementAndGet();
+			} catch (IOException | RuntimeException e) {
+				log.warn("Error sending info message to websocket {}: {}", client.session.getId(), e.getMessage());
+			}
+		}
+		client.sending.set(false);
+		// Messages queued after the last poll but before clearing the flag
+		if (!client.isEmpty()) {
+			scheduleSending(client);
+		}
+	}
+
 	@Override
 	public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-		log.info("Info websocket stablished...");
-		this.sessions.put(session.getId(), session);
+		String sessionFilter = getSessionFilter(session);
+		log.info("Info websocket stablished{}", sessionFilter != null ? " for session " + sessionFilter : "");
+		boolean first = this.sessions.isEmpty();
+		this.sessions.put(session.getId(), new InfoClient(session, sessionFilter, this.bufferSize));
+		if (first) {
+			for (Runnable listener : this.firstConnectionListeners) {
+				try {
+					listener.run();
+				} catch (Exception e) {
+					log.error("Error notifying the first info websocket connection", e);
+				}
+			}
+		}
 	}
 	
 	@Override
 	public void afterConnectionClosed(WebSocketSession session, CloseStatus close) throws Exception {
 		log.info("Info websocket closed: " + close.getReason());
-		this.sessions.remove(session.getId());
+		InfoClient client = this.sessions.remove(session.getId());
+		if (client != null) {
+			// Its sender stops after the message it may be sending now
+			this.dropped.addAndGet(client.clear());
+			if (client.dropped.get() > 0) {
+				log.info("{} info messages were dropped for websocket {}", client.dropped.get(), session.getId());
+			}
+		}
 		session.close();
 	}
 	
@@ -49,5 +261,17 @@ public class InfoHandler extends TextWebSocketHandler {
 			throws Exception {
 		log.info("Message received: " + message.getPayload());
 	}
+
+	private String getSessionFilter(WebSocketSession session) {
+		if (session.getUri() == null || session.getUri().getQuery() == null) {
+			return null;
+		}
+		for (String param : session.getUri().getQuery().split("&")) {
+			if (param.startsWith("session=") && param.length() > "session=".length()) {
+				return param.substring("session=".length());
+			}
+		}
+		return null;
+	}
 	
 }
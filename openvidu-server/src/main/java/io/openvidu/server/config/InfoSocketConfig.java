@@ -1,5 +1,6 @@
 package io.openvidu.server.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -9,6 +10,9 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @Configuration
 @EnableWebSocket
 public class InfoSocketConfig implements WebSocketConfigurer {
+
+	@Autowired
+	private OpenviduConfig openviduConfig;
 	
 	@Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
@@ -17,7 +21,7 @@ public class InfoSocketConfig implements WebSocketConfigurer {
 
     @Bean
     public InfoHandler infoHandler() {
-        return new InfoHandler();
+        return new InfoHandler(openviduConfig.getInfoBufferSize());
     }
 
 }
@@ -3,7 +3,9 @@ package io.openvidu.server.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import io.openvidu.java.client.SubscriptionPolicy;
 import io.openvidu.server.core.ParticipantRole;
+import io.openvidu.server.rpc.OutboundQueue.OverflowPolicy;
 
 @Component
 public class OpenviduConfig {
@@ -38,6 +40,129 @@ public class OpenviduConfig {
 	@Value("${openvidu.recording.version}")
 	String openviduRecordingVersion;
 
+	@Value("${openvidu.token.ttl}")
+	private long tokenTtl; // seconds
+
+	@Value("${openvidu.kms.pipeline-pool.size}")
+	private int kmsPipelinePoolSize;
+
+	@Value("${openvidu.kms.pipeline-pool.max-idle-time}")
+	private long kmsPipelinePoolMaxIdleTime; // seconds
+
+	@Value("${openvidu.kms.pipeline-pool.eviction-interval}")
+	private long kmsPipelinePoolEvictionInterval; // seconds
+
+	@Value("${openvidu.kms.load-sampling-interval}")
+	private long kmsLoadSamplingInterval; // milliseconds
+
+	@Value("${openvidu.kms.load-manager}")
+	private String kmsLoadManager;
+
+	@Value("${openvidu.kms.load.cpu-weight}")
+	private double kmsLoadCpuWeight;
+
+	@Value("${openvidu.kms.load.memory-weight}")
+	private double kmsLoadMemoryWeight;
+
+	@Value("${openvidu.kms.load.elements-weight}")
+	private double kmsLoadElementsWeight;
+
+	@Value("${openvidu.kms.load.max-memory}")
+	private long kmsLoadMaxMemory; // MiB
+
+	@Value("${openvidu.kms.load.max-elements}")
+	private int kmsLoadMaxElements;
+
+	@Value("${openvidu.kms.load.smoothing}")
+	private double kmsLoadSmoothing;
+
+	@Value("${openvidu.kms.load.max-load}")
+	private double kmsLoadMaxLoad;
+
+	@Value("${openvidu.kms.load.element-sampling-interval}")
+	private long kmsLoadElementSamplingInterval; // milliseconds
+
+	@Value("${openvidu.kms.health.window-size}")
+	private int kmsHealthWindowSize;
+
+	@Value("${openvidu.kms.health.max-error-rate}")
+	private double kmsHealthMaxErrorRate;
+
+	@Value("${openvidu.kms.health.max-latency}")
+	private long kmsHealthMaxLatency; // milliseconds
+
+	@Value("${openvidu.kms.health.open-time}")
+	private long kmsHealthOpenTime; // seconds
+
+	@Value("${openvidu.kms.health.probes}")
+	private int kmsHealthProbes;
+
+	@Value("${openvidu.kms.autodiscovery.sessions-per-client}")
+	private int kmsAutodiscoverySessionsPerClient;
+
+	@Value("${openvidu.kms.autodiscovery.idle-timeout}")
+	private long kmsAutodiscoveryIdleTimeout; // seconds
+
+	@Value("${openvidu.kms.ice-candidate-window}")
+	private long kmsIceCandidateWindow; // milliseconds
+
+	@Value("${openvidu.ice-candidate-batch-window}")
+	private long iceCandidateBatchWindow; // milliseconds
+
+	@Value("${openvidu.kms.endpoint-events}")
+	private String kmsEndpointEvents;
+
+	@Value("${openvidu.info.buffer-size}")
+	private int infoBufferSize;
+
+	@Value("${openvidu.rpc.outbound-queue.size}")
+	private int rpcOutboundQueueSize;
+
+	@Value("${openvidu.rpc.outbound-queue.overflow-policy}")
+	private OverflowPolicy rpcOverflowPolicy;
+
+	@Value("${openvidu.session-event-loops}")
+	private int sessionEventLoops;
+
+	@Value("${openvidu.rpc.dispatch-threads}")
+	private int rpcDispatchThreads;
+
+	@Value("${openvidu.signal.max-size}")
+	private int signalMaxSize;
+
+	@Value("${openvidu.signal.participant-rate}")
+	private int signalParticipantRate;
+
+	@Value("${openvidu.signal.participant-burst}")
+	private int signalParticipantBurst;
+
+	@Value("${openvidu.signal.session-rate}")
+	private int signalSessionRate;
+
+	@Value("${openvidu.signal.session-burst}")
+	private int signalSessionBurst;
+
+	@Value("${openvidu.signal.quota-window}")
+	private int signalQuotaWindow;
+
+	@Value("${openvidu.signal.participant-quota}")
+	private long signalParticipantQuota;
+
+	@Value("${openvidu.signal.session-quota}")
+	private long signalSessionQuota;
+
+	@Value("${openvidu.kms.selection-strategy}")
+	private String kmsSelectionStrategy;
+
+	@Value("${openvidu.subscription-policy}")
+	private SubscriptionPolicy subscriptionPolicy;
+
+	@Value("${openvidu.shutdown.parallelism}")
+	private int shutdownParallelism;
+
+	@Value("${openvidu.shutdown.timeout}")
+	private long shutdownTimeout; // seconds
+
 	@Value("#{'${spring.profiles.active:}'.length() > 0 ? '${spring.profiles.active:}'.split(',') : \"default\"}")
 	private String springProfile;
 
@@ -103,6 +228,170 @@ public class OpenviduConfig {
 		return springProfile;
 	}
 
+	public long getTokenTtl() {
+		return this.tokenTtl;
+	}
+
+	public int getKmsPipelinePoolSize() {
+		return this.kmsPipelinePoolSize;
+	}
+
+	public long getKmsPipelinePoolMaxIdleTime() {
+		return this.kmsPipelinePoolMaxIdleTime;
+	}
+
+	public long getKmsPipelinePoolEvictionInterval() {
+		return this.kmsPipelinePoolEvictionInterval;
+	}
+
+	public long getKmsLoadSamplingInterval() {
+		return this.kmsLoadSamplingInterval;
+	}
+
+	public String getKmsLoadManager() {
+		return this.kmsLoadManager;
+	}
+
+	public double getKmsLoadCpuWeight() {
+		return this.kmsLoadCpuWeight;
+	}
+
+	public double getKmsLoadMemoryWeight() {
+		return this.kmsLoadMemoryWeight;
+	}
+
+	public double getKmsLoadElementsWeight() {
+		return this.kmsLoadElementsWeight;
+	}
+
+	public long getKmsLoadMaxMemory() {
+		return this.kmsLoadMaxMemory;
+	}
+
+	public int getKmsLoadMaxElements() {
+		return this.kmsLoadMaxElements;
+	}
+
+	public double getKmsLoadSmoothing() {
+		return this.kmsLoadSmoothing;
+	}
+
+	public double getKmsLoadMaxLoad() {
+		return this.kmsLoadMaxLoad;
+	}
+
+	public long getKmsLoadElementSamplingInterval() {
+		return this.kmsLoadElementSamplingInterval;
+	}
+
+	public int getKmsHealthWindowSize() {
+		return this.kmsHealthWindowSize;
+	}
+
+	public double getKmsHealthMaxErrorRate() {
+		return this.kmsHealthMaxErrorRate;
+	}
+
+	public long getKmsHealthMaxLatency() {
+		return this.kmsHealthMaxLatency;
+	}
+
+	public long getKmsHealthOpenTime() {
+		return this.kmsHealthOpenTime;
+	}
+
+	public int getKmsHealthProbes() {
+		return this.kmsHealthProbes;
+	}
+
+	public int getKmsAutodiscoverySessionsPerClient() {
+		return this.kmsAutodiscoverySessionsPerClient;
+	}
+
+	public long getKmsAutodiscoveryIdleTimeout() {
+		return this.kmsAutodiscoveryIdleTimeout;
+	}
+
+	public long getKmsIceCandidateWindow() {
+		return this.kmsIceCandidateWindow;
+	}
+
+	public long getIceCandidateBatchWindow() {
+		return this.iceCandidateBatchWindow;
+	}
+
+	public String getKmsEndpointEvents() {
+		return this.kmsEndpointEvents;
+	}
+
+	public int getInfoBufferSize() {
+		return this.infoBufferSize;
+	}
+
+	public int getRpcOutboundQueueSize() {
+		return this.rpcOutboundQueueSize;
+	}
+
+	public OverflowPolicy getRpcOverflowPolicy() {
+		return this.rpcOverflowPolicy;
+	}
+
+	public int getSessionEventLoops() {
+		return this.sessionEventLoops;
+	}
+
+	public int getRpcDispatchThreads() {
+		return this.rpcDispatchThreads;
+	}
+
+	public int getSignalMaxSize() {
+		return this.signalMaxSize;
+	}
+
+	public int getSignalParticipantRate() {
+		return this.signalParticipantRate;
+	}
+
+	public int getSignalParticipantBurst() {
+		return this.signalParticipantBurst;
+	}
+
+	public int getSignalSessionRate() {
+		return this.signalSessionRate;
+	}
+
+	public int getSignalSessionBurst() {
+		return this.signalSessionBurst;
+	}
+
+	public int getSignalQuotaWindow() {
+		return this.signalQuotaWindow;
+	}
+
+	public long getSignalParticipantQuota() {
+		return this.signalParticipantQuota;
+	}
+
+	public long getSignalSessionQuota() {
+		return this.signalSessionQuota;
+	}
+
+	public String getKmsSelectionStrategy() {
+		return this.kmsSelectionStrategy;
+	}
+
+	public SubscriptionPolicy getSubscriptionPolicy() {
+		return this.subscriptionPolicy;
+	}
+
+	public int getShutdownParallelism() {
+		return this.shutdownParallelism;
+	}
+
+	public long getShutdownTimeout() {
+		return this.shutdownTimeout;
+	}
+
 	public ParticipantRole[] getRolesFromRecordingNotification() {
 		ParticipantRole[] roles;
 		switch (this.openviduRecordingNotification) {
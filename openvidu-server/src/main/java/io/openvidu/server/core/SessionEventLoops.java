@@ -0,0 +1,95 @@
+package io.openvidu.server.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fixed set of single-threaded event loops shared by all sessions. A session id
+ * is always mapped to the same event loop, so every operation changing the
+ * state of one session runs in the same thread, one after another and in the
+ * order they were submitted. Operations on sessions mapped to different event
+ * loops run in parallel.
+ */
+public class SessionEventLoops {
+
+	private final ExecutorService[] loops;
+
+	// Index of the event loop run by the current thread
+	private final ThreadLocal<Integer> currentLoop = new ThreadLocal<>();
+
+	public SessionEventLoops(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of event loops must be greater than 0");
+		}
+		this.loops = new ExecutorService[threads];
+		for (int i = 0; i < threads; i++) {
+			final int index = i;
+			this.loops[i] = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(() -> {
+					currentLoop.set(index);
+					r.run();
+				}, "session-loop-" + (index + 1));
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * Returns the event loop of the session with id <code>sessionId</code>
+	 */
+	public Executor get(String sessionId) {
+		return loops[indexOf(sessionId)];
+	}
+
+	/**
+	 * @return true if the current thread is the event loop of the session with id
+	 *         <code>sessionId</code>
+	 */
+	public boolean inEventLoop(String sessionId) {
+		Integer current = currentLoop.get();
+		return current != null && current == indexOf(sessionId);
+	}
+
+	/**
+	 * Runs <code>task</code> in the event loop of the session with id
+	 * <code>sessionId</code> and waits for its result. If the current thread is
+	 * already that event loop, <code>task</code> is run right away
+	 */
+	public <T> T call(String sessionId, Callable<T> task) throws Exception {
+		if (inEventLoop(sessionId)) {
+			return task.call();
+		}
+		Future<T> future = loops[indexOf(sessionId)].submit(task);
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	public int getThreads() {
+		return loops.length;
+	}
+
+	public void close() {
+		for (ExecutorService loop : loops) {
+			loop.shutdown();
+		}
+	}
+
+	private int indexOf(String sessionId) {
+		int h = sessionId.hashCode();
+		// Spread the higher bits so similar ids don't end up in the same event loop
+		h ^= (h >>> 16);
+		return Math.floorMod(h, loops.length);
+	}
+
+}
@@ -1,8 +1,10 @@
 package io.openvidu.server.core;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -13,7 +15,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import io.openvidu.client.OpenViduException;
@@ -57,15 +58,37 @@ public class SessionEventsHandler {
 		}
 	}
 
+	/**
+	 * Notifications of a participant that has just joined its session. They are
+	 * built from the state of the session while its lock is held, and sent once
+	 * the lock is released so a slow websocket doesn't block other sessions
+	 */
+	public static class JoinNotifications {
+
+		private final List<String> notifiedParticipants;
+		private final JsonObject notifParams;
+		private final JsonObject result;
+
+		private JoinNotifications(List<String> notifiedParticipants, JsonObject notifParams, JsonObject result) {
+			this.notifiedParticipants = notifiedParticipants;
+			this.notifParams = notifParams;
+			this.result = result;
+		}
+	}
+
 	public void onParticipantJoined(Participant participant, String sessionId, Set<Participant> existingParticipants,
 			Integer transactionId, OpenViduException error) {
 		if (error != null) {
 			rpcNotificationService.sendErrorResponse(participant.getParticipantPrivateId(), transactionId, null, error);
 			return;
 		}
+		sendParticipantJoined(participant, transactionId, prepareParticipantJoined(participant, existingParticipants));
+	}
 
+	public JoinNotifications prepareParticipantJoined(Participant participant, Set<Participant> existingParticipants) {
 		JsonObject result = new JsonObject();
 		JsonArray resultArray = new JsonArray();
+		List<String> notifiedParticipants = new ArrayList<>();
 
 		for (Participant existingParticipant : existingParticipants) {
 			JsonObject participantJson = new JsonObject();
@@ -114,23 +137,29 @@ public class SessionEventsHandler {
 			// notification to existing participants. 'recordingStarted' will be sent to all
 			// existing participants when recorder first subscribe to a stream
 			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(participant.getParticipantPublicId())) {
-				JsonObject notifParams = new JsonObject();
-
-				// Metadata associated to new participant
-				notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM,
-						participant.getParticipantPublicId());
-				notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM,
-						participant.getFullMetadata());
-
-				rpcNotificationService.sendNotification(existingParticipant.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTJOINED_METHOD, notifParams);
+				notifiedParticipants.add(existingParticipant.getParticipantPrivateId());
 			}
 		}
+
+		JsonObject notifParams = new JsonObject();
+
+		// Metadata associated to new participant
+		notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM, participant.getParticipantPublicId());
+		notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM, participant.getFullMetadata());
+
 		result.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM, participant.getParticipantPublicId());
 		result.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM, participant.getFullMetadata());
 		result.add("value", resultArray);
 
-		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, result);
+		return new JoinNotifications(notifiedParticipants, notifParams, result);
+	}
+
+	public void sendParticipantJoined(Participant participant, Integer transactionId,
+			JoinNotifications notifications) {
+		rpcNotificationService.broadcastNotification(notifications.notifiedParticipants,
+				ProtocolElements.PARTICIPANTJOINED_METHOD, notifications.notifParams);
+		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId,
+				notifications.result);
 	}
 
 	public void onParticipantLeft(Participant participant, String sessionId, Set<Participant> remainingParticipants,
@@ -149,10 +178,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.PARTICIPANTLEFT_NAME_PARAM, participant.getParticipantPublicId());
 		params.addProperty(ProtocolElements.PARTICIPANTLEFT_REASON_PARAM, reason);
 
-		for (Participant p : remainingParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.PARTICIPANTLEFT_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(remainingParticipants, null),
+				ProtocolElements.PARTICIPANTLEFT_METHOD, params);
 
 		if (transactionId != null) {
 			// No response when the participant is forcibly evicted instead of voluntarily
@@ -195,14 +222,8 @@ public class SessionEventsHandler {
 		streamsArray.add(stream);
 		params.add(ProtocolElements.PARTICIPANTPUBLISHED_STREAMS_PARAM, streamsArray);
 
-		for (Participant p : participants) {
-			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
-				continue;
-			} else {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
-			}
-		}
+		rpcNotificationService.broadcastNotification(privateIds(participants, participant),
+				ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
 	}
 
 	public void onUnpublishMedia(Participant participant, Set<Participant> participants, Integer transactionId,
@@ -217,14 +238,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.PARTICIPANTUNPUBLISHED_NAME_PARAM, participant.getParticipantPublicId());
 		params.addProperty(ProtocolElements.PARTICIPANTUNPUBLISHED_REASON_PARAM, reason);
 
-		for (Participant p : participants) {
-			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
-				continue;
-			} else {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, params);
-			}
-		}
+		rpcNotificationService.broadcastNotification(privateIds(participants, participant),
+				ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, params);
 	}
 
 	public void onSubscribe(Participant participant, Session session, String senderName, String sdpAnswer,
@@ -260,52 +275,41 @@ public class SessionEventsHandler {
 		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, new JsonObject());
 	}
 
-	public void onSendMessage(Participant participant, JsonObject message, Set<Participant> participants,
-			Integer transactionId, OpenViduException error) {
+	public void onSendMessage(Participant participant, Signal signal, Session session, Integer transactionId,
+			OpenViduException error) {
 		if (error != null) {
 			rpcNotificationService.sendErrorResponse(participant.getParticipantPrivateId(), transactionId, null, error);
 			return;
 		}
 
 		JsonObject params = new JsonObject();
-		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_DATA_PARAM, message.get("data").getAsString());
+		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_DATA_PARAM, signal.getData());
 		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_FROM_PARAM, participant.getParticipantPublicId());
-		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_TYPE_PARAM, message.get("type").getAsString());
-
-		Set<String> toSet = new HashSet<String>();
-
-		if (message.has("to")) {
-			JsonArray toJson = message.get("to").getAsJsonArray();
-			for (int i = 0; i < toJson.size(); i++) {
-				JsonElement el = toJson.get(i);
-				if (el.isJsonNull()) {
-					throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
-							"Signal \"to\" field invalid format: null");
+		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_TYPE_PARAM, signal.getType());
+
+		Collection<String> recipients;
+		if (signal.getTo().isEmpty()) {
+			recipients = new ArrayList<>();
+			for (Participant p : session.getParticipants()) {
+				if (!p.isClosed()) {
+					recipients.add(p.getParticipantPrivateId());
 				}
-				toSet.add(el.getAsString());
-			}
-		}
-
-		if (toSet.isEmpty()) {
-			for (Participant p : participants) {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, params);
 			}
 		} else {
-			Set<String> participantPublicIds = participants.stream().map(Participant::getParticipantPublicId)
-					.collect(Collectors.toSet());
-			for (String to : toSet) {
-				if (participantPublicIds.contains(to)) {
-					Optional<Participant> p = participants.stream().filter(x -> to.equals(x.getParticipantPublicId()))
-							.findFirst();
-					rpcNotificationService.sendNotification(p.get().getParticipantPrivateId(),
-							ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, params);
-				} else {
+			// Targets are resolved through the public id index of the session. All of
+			// them are checked before sending the signal to anyone
+			recipients = new LinkedHashSet<>();
+			for (String to : signal.getTo()) {
+				Participant p = session.getParticipantByPublicId(to);
+				if (p == null || p.isClosed()) {
 					throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
 							"Signal \"to\" field invalid format: Connection [" + to + "] does not exist");
 				}
+				recipients.add(p.getParticipantPrivateId());
 			}
 		}
+		rpcNotificationService.broadcastNotification(recipients, ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD,
+				params);
 
 		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, new JsonObject());
 	}
@@ -337,10 +341,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_ID_PARAM, recording.getId());
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_NAME_PARAM, recording.getName());
 
-		for (Participant p : filteredParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.RECORDINGSTARTED_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(filteredParticipants, null),
+				ProtocolElements.RECORDINGSTARTED_METHOD, params);
 	}
 
 	public void sendRecordingStoppedNotification(Session session, Recording recording) {
@@ -369,10 +371,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.RECORDINGSTOPPED_ID_PARAM, recording.getId());
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_NAME_PARAM, recording.getName());
 
-		for (Participant p : filteredParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.RECORDINGSTOPPED_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(filteredParticipants, null),
+				ProtocolElements.RECORDINGSTOPPED_METHOD, params);
 	}
 
 	public void closeRpcSession(String participantPrivateId) {
@@ -387,6 +387,20 @@ public class SessionEventsHandler {
 		return this.infoHandler;
 	}
 
+	/**
+	 * @return private ids of <code>participants</code>, except the one of
+	 *         <code>excluded</code> (if not null)
+	 */
+	private List<String> privateIds(Set<Participant> participants, Participant excluded) {
+		List<String> privateIds = new ArrayList<>(participants.size());
+		for (Participant p : participants) {
+			if (excluded == null || !p.getParticipantPrivateId().equals(excluded.getParticipantPrivateId())) {
+				privateIds.add(p.getParticipantPrivateId());
+			}
+		}
+		return privateIds;
+	}
+
 	private Set<Participant> filterParticipantsByRole(ParticipantRole[] roles, Set<Participant> participants) {
 		return participants.stream().filter(part -> {
 			boolean isRole = false;
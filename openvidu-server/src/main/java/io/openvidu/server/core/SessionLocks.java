@@ -0,0 +1,52 @@
+package io.openvidu.server.core;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of reentrant locks shared by all sessions. A session id is always
+ * mapped to the same lock, so the operations that create, join or close one
+ * session are serialized, while operations on different sessions run in
+ * parallel (unless both ids happen to fall in the same stripe).
+ */
+public class SessionLocks {
+
+	public static final int DEFAULT_STRIPES = 256;
+
+	private final ReentrantLock[] locks;
+	private final int mask;
+
+	public SessionLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	public SessionLocks(int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("Number of stripes must be greater than 0");
+		}
+		// Round up to the next power of two so the stripe can be computed with a mask
+		int size = Integer.highestOneBit(stripes);
+		if (size < stripes) {
+			size <<= 1;
+		}
+		this.locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			this.locks[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Returns the lock guarding the session with id <code>sessionId</code>
+	 */
+	public ReentrantLock get(String sessionId) {
+		int h = sessionId.hashCode();
+		// Spread the higher bits so similar ids don't end up in the same stripe
+		h ^= (h >>> 16);
+		return locks[h & mask];
+	}
+
+	public int getStripes() {
+		return locks.length;
+	}
+
+}
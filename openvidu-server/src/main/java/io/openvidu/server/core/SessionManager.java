@@ -1,11 +1,17 @@
 package io.openvidu.server.core;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -47,6 +53,31 @@ public abstract class SessionManager {
 	protected ConcurrentMap<String, ConcurrentHashMap<String, Participant>> sessionidParticipantpublicidParticipant = new ConcurrentHashMap<>();
 	protected ConcurrentMap<String, Boolean> insecureUsers = new ConcurrentHashMap<>();
 
+	// Reverse index <PARTICIPANT_PRIVATE_ID, SESSION> of every participant that has
+	// joined a session. Avoids scanning all sessions to locate a participant
+	protected ConcurrentMap<String, Session> participantprivateidSession = new ConcurrentHashMap<>();
+
+	// Serializes the creation, joining and closing of each session without
+	// blocking operations on any other session
+	protected SessionLocks sessionLocks = new SessionLocks();
+
+	// When not null, every operation changing the state of a session runs in the
+	// event loop of the session instead of in the thread requesting it
+	protected SessionEventLoops sessionEventLoops;
+
+	// Rate limits and quotas of the signals of each participant and session
+	protected SignalLimiter signalLimiter = SignalLimiter.unlimited();
+
+	// Removes the tokens not consumed before their expiration time
+	private TokenExpirationWheel tokenExpirationWheel;
+	private final AtomicLong expiredTokens = new AtomicLong(0);
+	// Tokens stored in sessionidTokenTokenobj, counted as they are added and
+	// removed so the count can be read without iterating every session
+	private final AtomicLong tokenCount = new AtomicLong(0);
+
+	private final AtomicLong sessionsClosedCleanly = new AtomicLong(0);
+	private final AtomicLong sessionsClosedForcibly = new AtomicLong(0);
+
 	private volatile boolean closed = false;
 
 	public abstract void joinRoom(Participant participant, String sessionId, Integer transactionId);
@@ -148,11 +179,11 @@ public abstract class SessionManager {
 	 *             in case the participant doesn't exist
 	 */
 	public Participant getParticipant(String participantPrivateId) throws OpenViduException {
-		for (Session session : sessions.values()) {
-			if (!session.isClosed()) {
-				if (session.getParticipantByPrivateId(participantPrivateId) != null) {
-					return session.getParticipantByPrivateId(participantPrivateId);
-				}
+		Session session = participantprivateidSession.get(participantPrivateId);
+		if (session != null && !session.isClosed()) {
+			Participant participant = session.getParticipantByPrivateId(participantPrivateId);
+			if (participant != null) {
+				return participant;
 			}
 		}
 		throw new OpenViduException(Code.USER_NOT_FOUND_ERROR_CODE,
@@ -180,7 +211,15 @@ public abstract class SessionManager {
 				&& this.sessionidTokenTokenobj.get(sessionId) != null) {
 			if (isMetadataFormatCorrect(serverMetadata)) {
 				String token = this.generateRandomChain();
-				this.sessionidTokenTokenobj.get(sessionId).put(token, new Token(token, role, serverMetadata));
+				long ttl = openviduConfig.getTokenTtl();
+				long expirationTime = ttl > 0 ? System.currentTimeMillis() + ttl * 1000 : 0;
+				Token tokenObj = new Token(token, role, serverMetadata, expirationTime);
+				if (this.sessionidTokenTokenobj.get(sessionId).put(token, tokenObj) == null) {
+					tokenCount.incrementAndGet();
+				}
+				if (tokenExpirationWheel != null) {
+					tokenExpirationWheel.add(sessionId, tokenObj);
+				}
 				showTokens();
 				return token;
 			} else {
@@ -196,14 +235,18 @@ public abstract class SessionManager {
 	public boolean isTokenValidInSession(String token, String sessionId, String participanPrivatetId) {
 		if (!this.isInsecureParticipant(participanPrivatetId)) {
 			if (this.sessionidTokenTokenobj.get(sessionId) != null) {
-				return this.sessionidTokenTokenobj.get(sessionId).containsKey(token);
+				Token t = this.sessionidTokenTokenobj.get(sessionId).get(token);
+				return t != null && !t.isExpired();
 			} else {
 				return false;
 			}
 		} else {
 			this.sessionidParticipantpublicidParticipant.putIfAbsent(sessionId, new ConcurrentHashMap<>());
 			this.sessionidTokenTokenobj.putIfAbsent(sessionId, new ConcurrentHashMap<>());
-			this.sessionidTokenTokenobj.get(sessionId).putIfAbsent(token, new Token(token, ParticipantRole.PUBLISHER, ""));
+			if (this.sessionidTokenTokenobj.get(sessionId).putIfAbsent(token,
+					new Token(token, ParticipantRole.PUBLISHER, "")) == null) {
+				tokenCount.incrementAndGet();
+			}
 			return true;
 		}
 	}
@@ -278,8 +321,13 @@ public abstract class SessionManager {
 
 	public Token consumeToken(String sessionId, String participantPrivateId, String token) {
 		if (this.sessionidTokenTokenobj.get(sessionId) != null) {
-			Token t = this.sessionidTokenTokenobj.get(sessionId).remove(token);
-			if (t != null) {
+			Token t = removeToken(sessionId, token);
+			if (t != null && t.isExpired()) {
+				// Expired, but not removed by the expiration wheel yet
+				expiredTokens.incrementAndGet();
+				throw new OpenViduException(Code.TOKEN_CANNOT_BE_CREATED_ERROR_CODE,
+						"Token for session " + sessionId + " has expired");
+			} else if (t != null) {
 				return t;
 			} else {
 				throw new OpenViduException(Code.TOKEN_CANNOT_BE_CREATED_ERROR_CODE, sessionId);
@@ -289,6 +337,107 @@ public abstract class SessionManager {
 		}
 	}
 
+	/**
+	 * @return number of tokens generated for all sessions and not consumed yet
+	 */
+	public int getTokenCount() {
+		return (int) tokenCount.get();
+	}
+
+	/**
+	 * Removes a token of a session, if it is still stored
+	 *
+	 * @return the token removed or null if not found
+	 */
+	protected Token removeToken(String sessionId, String token) {
+		ConcurrentHashMap<String, Token> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		Token removed = tokens != null ? tokens.remove(token) : null;
+		if (removed != null) {
+			tokenCount.decrementAndGet();
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes all the tokens of a session
+	 */
+	protected void removeTokens(String sessionId) {
+		ConcurrentHashMap<String, Token> tokens = this.sessionidTokenTokenobj.remove(sessionId);
+		if (tokens != null) {
+			tokenCount.addAndGet(-tokens.size());
+		}
+	}
+
+	/**
+	 * @return number of tokens discarded because they weren't used before their
+	 *         expiration time
+	 */
+	public long getExpiredTokens() {
+		return this.expiredTokens.get();
+	}
+
+	private void onTokenExpired(String sessionId, Token token) {
+		ConcurrentHashMap<String, Token> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens != null && tokens.remove(token.getToken(), token)) {
+			long left = tokenCount.decrementAndGet();
+			long expired = expiredTokens.incrementAndGet();
+			log.debug("Token {} of session {} expired ({} tokens expired, {} tokens left)", token.getToken(),
+					sessionId, expired, left);
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		if (openviduConfig.getSessionEventLoops() > 0) {
+			log.info("Operations on sessions will run in {} event loops", openviduConfig.getSessionEventLoops());
+			sessionEventLoops = new SessionEventLoops(openviduConfig.getSessionEventLoops());
+		}
+		signalLimiter = new SignalLimiter(openviduConfig.getSignalMaxSize(), openviduConfig.getSignalParticipantRate(),
+				openviduConfig.getSignalParticipantBurst(), openviduConfig.getSignalSessionRate(),
+				openviduConfig.getSignalSessionBurst(), openviduConfig.getSignalQuotaWindow(),
+				openviduConfig.getSignalParticipantQuota(), openviduConfig.getSignalSessionQuota());
+		if (openviduConfig.getTokenTtl() > 0) {
+			log.info("Tokens not used after {} seconds will expire", openviduConfig.getTokenTtl());
+			tokenExpirationWheel = new TokenExpirationWheel(this::onTokenExpired);
+			tokenExpirationWheel.start();
+		}
+	}
+
+	public SignalLimiter getSignalLimiter() {
+		return signalLimiter;
+	}
+
+	/**
+	 * @return true if the operations changing the state of each session run in the
+	 *         event loop of the session
+	 */
+	public boolean isEventLoopMode() {
+		return sessionEventLoops != null;
+	}
+
+	/**
+	 * Returns the executor where the operations changing the state of the session
+	 * with id <code>sessionId</code> must run: its event loop, or the current
+	 * thread if event loops are not enabled
+	 */
+	public Executor getSessionExecutor(String sessionId) {
+		if (sessionEventLoops == null) {
+			return Runnable::run;
+		}
+		return sessionEventLoops.get(sessionId);
+	}
+
+	/**
+	 * Runs <code>task</code> in the executor of the session with id
+	 * <code>sessionId</code> and waits for its result
+	 */
+	public <T> T callInSession(String sessionId, Callable<T> task) throws Exception {
+		if (sessionEventLoops == null) {
+			return task.call();
+		}
+		return sessionEventLoops.call(sessionId, task);
+	}
+
 	public void showTokens() {
 		log.info("<SESSIONID, TOKENS>: {}", this.sessionidTokenTokenobj.toString());
 	}
@@ -308,7 +457,9 @@ public abstract class SessionManager {
 	/**
 	 * Closes all resources. This method has been annotated with the @PreDestroy
 	 * directive (javax.annotation package) so that it will be automatically called
-	 * when the SessionManager instance is container-managed. <br/>
+	 * when the SessionManager instance is container-managed. Sessions are closed
+	 * in parallel, and those not closed before the shutdown timeout are discarded.
+	 * <br/>
 	 * <strong>Dev advice:</strong> Send notifications to all participants to inform
 	 * that their session has been forcibly closed.
 	 *
@@ -317,14 +468,48 @@ public abstract class SessionManager {
 	@PreDestroy
 	public void close() {
 		closed = true;
+		if (tokenExpirationWheel != null) {
+			tokenExpirationWheel.stop();
+		}
 		log.info("Closing all sessions");
-		for (String sessionId : sessions.keySet()) {
+		SessionTeardown teardown = new SessionTeardown(openviduConfig.getShutdownParallelism(),
+				openviduConfig.getShutdownTimeout() * 1000);
+		SessionTeardown.Result result = teardown.closeAll(new ArrayList<>(sessions.keySet()), sessionId -> {
 			try {
-				closeSession(sessionId, "openviduServerDestroyed");
-			} catch (Exception e) {
-				log.warn("Error closing session '{}'", sessionId, e);
+				callInSession(sessionId, () -> closeSession(sessionId, "openviduServerDestroyed"));
+				return true;
+			} catch (OpenViduException e) {
+				if (e.getCodeValue() == Code.ROOM_NOT_FOUND_ERROR_CODE.getValue()
+						|| e.getCodeValue() == Code.ROOM_CLOSED_ERROR_CODE.getValue()) {
+					// Closed meanwhile by the last participant leaving or through the REST API
+					return false;
+				}
+				throw e;
+			}
+		});
+		for (String sessionId : result.getForcedSessions()) {
+			// Its media elements are left to KMS, which releases the objects of
+			// disconnected clients
+			Session session = sessions.remove(sessionId);
+			if (session != null) {
+				participantprivateidSession.values().removeIf(s -> s == session);
 			}
 		}
+		if (sessionEventLoops != null) {
+			sessionEventLoops.close();
+		}
+		sessionsClosedCleanly.addAndGet(result.getClean());
+		sessionsClosedForcibly.addAndGet(result.getForced());
+		log.info("{} sessions closed cleanly, {} forcibly and {} were already closed in {} ms", result.getClean(),
+				result.getForced(), result.getAlreadyClosed(), result.getElapsedMillis());
+	}
+
+	public long getSessionsClosedCleanly() {
+		return sessionsClosedCleanly.get();
+	}
+
+	public long getSessionsClosedForcibly() {
+		return sessionsClosedForcibly.get();
 	}
 
 	/**
@@ -344,39 +529,49 @@ public abstract class SessionManager {
 	 *             in case the session doesn't exist or has been already closed
 	 */
 	private Set<Participant> closeSession(String sessionId, String reason) {
-		Session session = sessions.get(sessionId);
-		if (session == null) {
-			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId + "' not found");
-		}
-		if (session.isClosed()) {
-			throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId + "' already closed");
-		}
-		Set<Participant> participants = getParticipants(sessionId);
-		// copy the ids as they will be removed from the map
-		Set<String> pids = participants.stream().map(Participant::getParticipantPrivateId).collect(Collectors.toSet());
-		for (String pid : pids) {
-			try {
-				session.leave(pid, reason);
-			} catch (OpenViduException e) {
-				log.warn("Error evicting participant with id '{}' from session '{}'", pid, sessionId, e);
+		Lock lock = sessionLocks.get(sessionId);
+		lock.lock();
+		try {
+			Session session = sessions.get(sessionId);
+			if (session == null) {
+				throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId + "' not found");
 			}
-		}
-		if (session.close(reason)) {
-			sessionEventsHandler.onSessionClosed(sessionId, reason);
-		}
-		sessions.remove(sessionId);
+			if (session.isClosed()) {
+				throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId + "' already closed");
+			}
+			Set<Participant> participants = getParticipants(sessionId);
+			// copy the ids as they will be removed from the map
+			Set<String> pids = participants.stream().map(Participant::getParticipantPrivateId)
+					.collect(Collectors.toSet());
+			for (String pid : pids) {
+				try {
+					session.leave(pid, reason);
+				} catch (OpenViduException e) {
+					log.warn("Error evicting participant with id '{}' from session '{}'", pid, sessionId, e);
+				}
+				participantprivateidSession.remove(pid, session);
+			}
+			if (session.close(reason)) {
+				sessionEventsHandler.onSessionClosed(sessionId, reason);
+			}
+			sessions.remove(sessionId);
+			signalLimiter.removeSession(sessionId);
+			pids.forEach(signalLimiter::removeParticipant);
 
-		sessionProperties.remove(sessionId);
-		sessionidParticipantpublicidParticipant.remove(sessionId);
-		sessionidTokenTokenobj.remove(sessionId);
+			sessionProperties.remove(sessionId);
+			sessionidParticipantpublicidParticipant.remove(sessionId);
+			removeTokens(sessionId);
 
-		log.warn("Session '{}' removed and closed", sessionId);
-		
-		if (recordingService.sessionIsBeingRecorded(session.getSessionId())) {
-			recordingService.stopRecording(session);
+			log.warn("Session '{}' removed and closed", sessionId);
+
+			if (recordingService.sessionIsBeingRecorded(session.getSessionId())) {
+				recordingService.stopRecording(session);
+			}
+
+			return participants;
+		} finally {
+			lock.unlock();
 		}
-		
-		return participants;
 	}
 
 }
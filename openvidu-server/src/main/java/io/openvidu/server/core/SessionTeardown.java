@@ -0,0 +1,151 @@
+package io.openvidu.server.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Closes many sessions concurrently, with at most <code>parallelism</code>
+ * sessions being closed at the same time and an overall deadline for all of
+ * them. Sessions that fail to close or are not closed before the deadline are
+ * reported as forcibly closed, so the caller can discard them. Sessions closed
+ * meanwhile by someone else are reported apart, as there is nothing left to
+ * discard for them.
+ */
+public class SessionTeardown {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionTeardown.class);
+
+	public interface SessionCloser {
+		/**
+		 * @return true if the session has been closed, false if it was already
+		 *         closed by someone else
+		 */
+		boolean close(String sessionId) throws Exception;
+	}
+
+	public static class Result {
+
+		private final List<String> cleanSessions;
+		private final List<String> alreadyClosedSessions;
+		private final List<String> forcedSessions;
+		private final long elapsedMillis;
+
+		private Result(List<String> cleanSessions, List<String> alreadyClosedSessions, List<String> forcedSessions,
+				long elapsedMillis) {
+			this.cleanSessions = cleanSessions;
+			this.alreadyClosedSessions = alreadyClosedSessions;
+			this.forcedSessions = forcedSessions;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public int getClean() {
+			return cleanSessions.size();
+		}
+
+		/**
+		 * @return number of sessions closed by someone else while tearing down
+		 */
+		public int getAlreadyClosed() {
+			return alreadyClosedSessions.size();
+		}
+
+		public List<String> getAlreadyClosedSessions() {
+			return alreadyClosedSessions;
+		}
+
+		/**
+		 * @return number of sessions that failed to close, or were not closed
+		 *         before the deadline
+		 */
+		public int getForced() {
+			return forcedSessions.size();
+		}
+
+		public List<String> getForcedSessions() {
+			return forcedSessions;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+	}
+
+	private final int parallelism;
+	private final long timeoutMillis;
+
+	/**
+	 * @param parallelism
+	 *            maximum number of sessions being closed at the same time
+	 * @param timeoutMillis
+	 *            milliseconds available to close all the sessions
+	 */
+	public SessionTeardown(int parallelism, long timeoutMillis) {
+		this.parallelism = Math.max(1, parallelism);
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public Result closeAll(Collection<String> sessionIds, SessionCloser closer) {
+		long start = System.currentTimeMillis();
+		List<String> clean = new ArrayList<>();
+		List<String> alreadyClosed = new ArrayList<>();
+		List<String> forced = new ArrayList<>();
+		if (sessionIds.isEmpty()) {
+			return new Result(clean, alreadyClosed, forced, 0);
+		}
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, sessionIds.size()), r -> {
+			Thread t = new Thread(r, "session-teardown-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			Map<String, Future<Boolean>> closings = new LinkedHashMap<>();
+			for (String sessionId : sessionIds) {
+				closings.put(sessionId, executor.submit(() -> closer.close(sessionId)));
+			}
+			executor.shutdown();
+
+			long deadline = start + timeoutMillis;
+			for (Map.Entry<String, Future<Boolean>> closing : closings.entrySet()) {
+				String sessionId = closing.getKey();
+				try {
+					if (closing.getValue().get(Math.max(0, deadline - System.currentTimeMillis()),
+							TimeUnit.MILLISECONDS)) {
+						clean.add(sessionId);
+					} else {
+						alreadyClosed.add(sessionId);
+					}
+				} catch (ExecutionException e) {
+					log.warn("Error closing session '{}'", sessionId, e.getCause());
+					forced.add(sessionId);
+				} catch (TimeoutException e) {
+					log.warn("Session '{}' not closed before the shutdown deadline", sessionId);
+					closing.getValue().cancel(true);
+					forced.add(sessionId);
+				} catch (InterruptedException e) {
+					// Keeps the flag, so the rest of sessions are not waited for either
+					Thread.currentThread().interrupt();
+					forced.add(sessionId);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return new Result(clean, alreadyClosed, forced, System.currentTimeMillis() - start);
+	}
+
+}
@@ -0,0 +1,124 @@
+package io.openvidu.server.core;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+
+/**
+ * Signal sent by a participant to the rest of participants of its session (or
+ * to some of them). It is read from the message of the request in a single
+ * pass, without building a tree of the whole message.
+ */
+public class Signal {
+
+	private final String data;
+	private final String type;
+	private final List<String> to;
+
+	private Signal(String data, String type, List<String> to) {
+		this.data = data;
+		this.type = type;
+		this.to = to;
+	}
+
+	public String getData() {
+		return data;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return public ids of the participants the signal is sent to. Empty to send
+	 *         it to every participant of the session
+	 */
+	public List<String> getTo() {
+		return to;
+	}
+
+	/**
+	 * @throws OpenViduException
+	 *             if <code>message</code> is not a valid signal
+	 */
+	public static Signal parse(String message) throws OpenViduException {
+		String data = null;
+		String type = null;
+		List<String> to = Collections.emptyList();
+		try {
+			JsonReader reader = new JsonReader(new StringReader(message));
+			reader.setLenient(true);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "data":
+					data = readString(reader, "data");
+					break;
+				case "type":
+					type = readString(reader, "type");
+					break;
+				case "to":
+					to = readTo(reader);
+					break;
+				default:
+					reader.skipValue();
+					break;
+				}
+			}
+			reader.endObject();
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new IllegalStateException("Content after the signal object");
+			}
+		} catch (IOException | IllegalStateException | NumberFormatException e) {
+			throw new OpenViduException(Code.SIGNAL_FORMAT_INVALID_ERROR_CODE,
+					"Provided signal object '" + message + "' has not a valid JSON format");
+		}
+		if (data == null || type == null) {
+			throw new OpenViduException(Code.SIGNAL_MESSAGE_INVALID_ERROR_CODE,
+					"Signal must have \"data\" and \"type\" fields");
+		}
+		return new Signal(data, type, to);
+	}
+
+	private static String readString(JsonReader reader, String field) throws IOException {
+		JsonToken token = reader.peek();
+		switch (token) {
+		case STRING:
+		case NUMBER:
+			return reader.nextString();
+		case BOOLEAN:
+			return Boolean.toString(reader.nextBoolean());
+		default:
+			throw new OpenViduException(Code.SIGNAL_MESSAGE_INVALID_ERROR_CODE,
+					"Signal \"" + field + "\" field invalid format: " + token);
+		}
+	}
+
+	private static List<String> readTo(JsonReader reader) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+			throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
+					"Signal \"to\" field invalid format: not an array");
+		}
+		List<String> to = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			JsonToken token = reader.peek();
+			if (token != JsonToken.STRING && token != JsonToken.NUMBER && token != JsonToken.BOOLEAN) {
+				throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
+						"Signal \"to\" field invalid format: " + token);
+			}
+			to.add(readString(reader, "to"));
+		}
+		reader.endArray();
+		return to;
+	}
+
+}
@@ -0,0 +1,301 @@
+package io.openvidu.server.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+
+/**
+ * Limits the signals sent by each participant and to each session, so one
+ * client can't flood its session. Signals are checked before being parsed:
+ * <ul>
+ * <li>Each signal can't be larger than <code>maxSize</code> bytes</li>
+ * <li>Each participant and each session have a token bucket: signals are
+ * rejected when there are no tokens left, which are refilled at a constant
+ * rate up to a maximum burst</li>
+ * <li>Each participant and each session can't send more than a number of bytes
+ * in every window of time</li>
+ * </ul>
+ * Any limit set to 0 is not applied.
+ */
+public class SignalLimiter {
+
+	private static class TokenBucket {
+
+		private final double tokensPerNano;
+		private final double capacity;
+		private double tokens;
+		private long lastRefill;
+
+		private TokenBucket(int rate, int burst, long now) {
+			this.tokensPerNano = rate / (double) TimeUnit.SECONDS.toNanos(1);
+			this.capacity = Math.max(1, burst);
+			this.tokens = this.capacity;
+			this.lastRefill = now;
+		}
+
+		private synchronized boolean tryConsume(long now) {
+			if (now > lastRefill) {
+				tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+				lastRefill = now;
+			}
+			if (tokens < 1) {
+				return false;
+			}
+			tokens--;
+			return true;
+		}
+
+		private synchronized void refund() {
+			tokens = Math.min(capacity, tokens + 1);
+		}
+	}
+
+	private static class ByteQuota {
+
+		private final long windowNanos;
+		private final long quota;
+		private long windowStart;
+		private long bytes = 0;
+
+		private ByteQuota(long windowNanos, long quota, long now) {
+			this.windowNanos = windowNanos;
+			this.quota = quota;
+			this.windowStart = now;
+		}
+
+		private synchronized boolean tryAdd(int size, long now) {
+			if (now - windowStart >= windowNanos) {
+				windowStart = now;
+				bytes = 0;
+			}
+			if (bytes + size > quota) {
+				return false;
+			}
+			bytes += size;
+			return true;
+		}
+
+		private synchronized void refund(int size) {
+			bytes = Math.max(0, bytes - size);
+		}
+	}
+
+	private static class Limits {
+
+		private final TokenBucket rate;
+		private final ByteQuota quota;
+
+		private Limits(TokenBucket rate, ByteQuota quota) {
+			this.rate = rate;
+			this.quota = quota;
+		}
+	}
+
+	private final int maxSize;
+	private final int participantRate;
+	private final int participantBurst;
+	private final int sessionRate;
+	private final int sessionBurst;
+	private final long windowNanos;
+	private final long participantQuota;
+	private final long sessionQuota;
+
+	private final ConcurrentMap<String, Limits> participants = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Limits> sessions = new ConcurrentHashMap<>();
+
+	private final AtomicLong accepted = new AtomicLong(0);
+	private final AtomicLong rejectedBySize = new AtomicLong(0);
+	private final AtomicLong rejectedByRate = new AtomicLong(0);
+	private final AtomicLong rejectedByQuota = new AtomicLong(0);
+
+	/**
+	 * @param maxSize
+	 *            maximum bytes of each signal
+	 * @param participantRate
+	 *            signals per second each participant can send
+	 * @param participantBurst
+	 *            signals each participant can send at once
+	 * @param sessionRate
+	 *            signals per second that can be sent to each session
+	 * @param sessionBurst
+	 *            signals that can be sent to each session at once
+	 * @param windowSeconds
+	 *            length of the windows of time of the byte quotas
+	 * @param participantQuota
+	 *            bytes each participant can send in a window
+	 * @param sessionQuota
+	 *            bytes that can be sent to each session in a window
+	 */
+	public SignalLimiter(int maxSize, int participantRate, int participantBurst, int sessionRate, int sessionBurst,
+			int windowSeconds, long participantQuota, long sessionQuota) {
+		this.maxSize = maxSize;
+		this.participantRate = participantRate;
+		this.participantBurst = participantBurst;
+		this.sessionRate = sessionRate;
+		this.sessionBurst = sessionBurst;
+		this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+		this.participantQuota = windowSeconds > 0 ? participantQuota : 0;
+		this.sessionQuota = windowSeconds > 0 ? sessionQuota : 0;
+	}
+
+	/**
+	 * @return a limiter not applying any limit
+	 */
+	public static SignalLimiter unlimited() {
+		return new SignalLimiter(0, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * @throws OpenViduException
+	 *             if the participant can't send <code>message</code> to its
+	 *             session yet
+	 */
+	public void check(String sessionId, String participantPrivateId, String message) throws OpenViduException {
+		check(sessionId, participantPrivateId, message, System.nanoTime());
+	}
+
+	public void check(String sessionId, String participantPrivateId, String message, long now)
+			throws OpenViduException {
+		int size = maxSize > 0 || participantQuota > 0 || sessionQuota > 0 ? utf8Length(message) : 0;
+		if (maxSize > 0 && size > maxSize) {
+			rejectedBySize.incrementAndGet();
+			throw new OpenViduException(Code.SIGNAL_SIZE_LIMIT_ERROR_CODE,
+					"Signal of " + size + " bytes is larger than the maximum of " + maxSize + " bytes");
+		}
+		// Limits are only looked up, never created here: a signal arriving after
+		// its participant left must not bring back the limits it had
+		Limits participant = participants.get(participantPrivateId);
+		Limits session = sessions.get(sessionId);
+		TokenBucket participantBucket = participant != null ? participant.rate : null;
+		TokenBucket sessionBucket = session != null ? session.rate : null;
+		ByteQuota participantBytes = participant != null ? participant.quota : null;
+		ByteQuota sessionBytes = session != null ? session.quota : null;
+
+		// Every limit is charged in turn, and the ones already charged are refunded
+		// when a later one rejects the signal, so a rejected signal costs nothing
+		if (participantBucket != null && !participantBucket.tryConsume(now)) {
+			throw rejectedByRate();
+		}
+		if (sessionBucket != null && !sessionBucket.tryConsume(now)) {
+			refund(participantBucket);
+			throw rejectedByRate();
+		}
+		if (participantBytes != null && !participantBytes.tryAdd(size, now)) {
+			refund(participantBucket);
+			refund(sessionBucket);
+			throw rejectedByQuota();
+		}
+		if (sessionBytes != null && !sessionBytes.tryAdd(size, now)) {
+			refund(participantBucket);
+			refund(sessionBucket);
+			if (participantBytes != null) {
+				participantBytes.refund(size);
+			}
+			throw rejectedByQuota();
+		}
+		accepted.incrementAndGet();
+	}
+
+	/**
+	 * Starts applying the limits to a participant that has joined a session, and
+	 * to the session if it is its first participant. Signals of participants not
+	 * added, or already removed, are not limited by the participant limits
+	 */
+	public void addParticipant(String sessionId, String participantPrivateId) {
+		addParticipant(sessionId, participantPrivateId, System.nanoTime());
+	}
+
+	public void addParticipant(String sessionId, String participantPrivateId, long now) {
+		addLimits(participants, participantPrivateId, participantRate, participantBurst, participantQuota, now);
+		addLimits(sessions, sessionId, sessionRate, sessionBurst, sessionQuota, now);
+	}
+
+	/**
+	 * Forgets the limits of a participant that has left its session
+	 */
+	public void removeParticipant(String participantPrivateId) {
+		participants.remove(participantPrivateId);
+	}
+
+	/**
+	 * Forgets the limits of a closed session
+	 */
+	public void removeSession(String sessionId) {
+		sessions.remove(sessionId);
+	}
+
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	/**
+	 * @return number of signals rejected for being larger than the maximum size
+	 */
+	public long getRejectedBySize() {
+		return rejectedBySize.get();
+	}
+
+	/**
+	 * @return number of signals rejected for exceeding the rate of signals
+	 */
+	public long getRejectedByRate() {
+		return rejectedByRate.get();
+	}
+
+	/**
+	 * @return number of signals rejected for exceeding the bytes of a window
+	 */
+	public long getRejectedByQuota() {
+		return rejectedByQuota.get();
+	}
+
+	private void addLimits(ConcurrentMap<String, Limits> map, String id, int rate, int burst, long quota,
+			long now) {
+		if (rate <= 0 && quota <= 0) {
+			return;
+		}
+		map.computeIfAbsent(id, k -> new Limits(rate > 0 ? new TokenBucket(rate, burst, now) : null,
+				quota > 0 ? new ByteQuota(windowNanos, quota, now) : null));
+	}
+
+	private OpenViduException rejectedByRate() {
+		rejectedByRate.incrementAndGet();
+		return new OpenViduException(Code.SIGNAL_RATE_LIMIT_ERROR_CODE, "Too many signals sent. Wait before sending more");
+	}
+
+	private OpenViduException rejectedByQuota() {
+		rejectedByQuota.incrementAndGet();
+		return new OpenViduException(Code.SIGNAL_SIZE_LIMIT_ERROR_CODE,
+				"Too many bytes of signals sent. Wait before sending more");
+	}
+
+	private static void refund(TokenBucket bucket) {
+		if (bucket != null) {
+			bucket.refund();
+		}
+	}
+
+	private static int utf8Length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c)) {
+				// Surrogate pair: 4 bytes for both chars
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+}
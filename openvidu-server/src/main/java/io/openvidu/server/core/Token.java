@@ -5,6 +5,7 @@ public class Token {
 	String token;
 	ParticipantRole role;
 	String serverMetadata = "";
+	long expirationTime = 0; // 0 if the token never expires
 
 	public Token(String token) {
 		this.token = token;
@@ -16,6 +17,11 @@ public class Token {
 		this.serverMetadata = serverMetadata;
 	}
 
+	public Token(String token, ParticipantRole role, String serverMetadata, long expirationTime) {
+		this(token, role, serverMetadata);
+		this.expirationTime = expirationTime;
+	}
+
 	public String getToken() {
 		return token;
 	}
@@ -28,6 +34,14 @@ public class Token {
 		return serverMetadata;
 	}
 
+	public long getExpirationTime() {
+		return expirationTime;
+	}
+
+	public boolean isExpired() {
+		return this.expirationTime > 0 && System.currentTimeMillis() >= this.expirationTime;
+	}
+
 	@Override
 	public String toString() {
 		if (this.role != null)
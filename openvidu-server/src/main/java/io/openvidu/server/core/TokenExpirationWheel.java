@@ -0,0 +1,137 @@
+package io.openvidu.server.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel that expires tokens. Each token is stored in the slot of
+ * the tick in which it expires, and each tick only the tokens of one slot are
+ * checked. The cost of expiring tokens doesn't depend on the number of tokens
+ * or sessions, and no map has to be scanned.
+ */
+public class TokenExpirationWheel {
+
+	private static final Logger log = LoggerFactory.getLogger(TokenExpirationWheel.class);
+
+	public static final int DEFAULT_SLOTS = 512;
+	public static final long DEFAULT_TICK_MILLIS = 1000;
+
+	public interface ExpirationListener {
+		void onTokenExpired(String sessionId, Token token);
+	}
+
+	private static class Entry {
+
+		private final String sessionId;
+		private final Token token;
+
+		private Entry(String sessionId, Token token) {
+			this.sessionId = sessionId;
+			this.token = token;
+		}
+	}
+
+	private final ConcurrentLinkedQueue<Entry>[] slots;
+	private final long tickMillis;
+	private final long startTime;
+	private final ExpirationListener listener;
+
+	// Next tick to process. Only advanced by expire()
+	private volatile long currentTick = 0;
+
+	private ScheduledExecutorService scheduler;
+
+	public TokenExpirationWheel(ExpirationListener listener) {
+		this(DEFAULT_SLOTS, DEFAULT_TICK_MILLIS, System.currentTimeMillis(), listener);
+	}
+
+	@SuppressWarnings("unchecked")
+	public TokenExpirationWheel(int slots, long tickMillis, long startTime, ExpirationListener listener) {
+		this.slots = new ConcurrentLinkedQueue[slots];
+		for (int i = 0; i < slots; i++) {
+			this.slots[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.tickMillis = tickMillis;
+		this.startTime = startTime;
+		this.listener = listener;
+	}
+
+	public synchronized void start() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "token-expiration");
+				t.setDaemon(true);
+				return t;
+			});
+			scheduler.scheduleAtFixedRate(() -> {
+				try {
+					expire(System.currentTimeMillis());
+				} catch (Exception e) {
+					log.error("Error expiring tokens", e);
+				}
+			}, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Schedules the expiration of <code>token</code>. Tokens that never expire are
+	 * ignored
+	 */
+	public void add(String sessionId, Token token) {
+		if (token.getExpirationTime() <= 0) {
+			return;
+		}
+		slotOf(token.getExpirationTime()).add(new Entry(sessionId, token));
+	}
+
+	/**
+	 * Processes all the ticks elapsed until <code>now</code>, notifying the
+	 * listener about every token already expired
+	 *
+	 * @return number of expired tokens
+	 */
+	public synchronized int expire(long now) {
+		int expired = 0;
+		long lastTick = (now - startTime) / tickMillis;
+		List<Entry> notYet = new ArrayList<>();
+		while (currentTick <= lastTick) {
+			ConcurrentLinkedQueue<Entry> slot = slots[(int) (currentTick % slots.length)];
+			Entry entry;
+			while ((entry = slot.poll()) != null) {
+				if (entry.token.getExpirationTime() <= now) {
+					listener.onTokenExpired(entry.sessionId, entry.token);
+					expired++;
+				} else {
+					// Expires in a later turn of the wheel
+					notYet.add(entry);
+				}
+			}
+			slot.addAll(notYet);
+			notYet.clear();
+			currentTick++;
+		}
+		return expired;
+	}
+
+	private ConcurrentLinkedQueue<Entry> slotOf(long expirationTime) {
+		long tick = (expirationTime - startTime + tickMillis - 1) / tickMillis;
+		// Already elapsed ticks won't be processed again: use the next one
+		tick = Math.max(tick, currentTick);
+		return slots[(int) (tick % slots.length)];
+	}
+
+}
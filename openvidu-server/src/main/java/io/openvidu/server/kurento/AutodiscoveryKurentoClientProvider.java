@@ -16,24 +16,63 @@
  */
 package io.openvidu.server.kurento;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.kurento.client.KurentoClient;
 import org.kurento.client.Properties;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 
 public class AutodiscoveryKurentoClientProvider implements KurentoClientProvider {
 
   private static final int ROOM_PIPELINE_LOAD_POINTS = 50;
 
+  @Autowired
+  private OpenviduConfig openviduConfig;
+
+  // Each new client discovers a KMS, and is then shared by several sessions
+  private SharedClientPool<KurentoClient> clients;
+
+  @PostConstruct
+  public void init() {
+    long idleTimeout = openviduConfig.getKmsAutodiscoveryIdleTimeout() * 1000;
+    clients = new SharedClientPool<>(
+        () -> KurentoClient.create(Properties.of("loadPoints", ROOM_PIPELINE_LOAD_POINTS)),
+        KurentoClient::destroy, client -> !client.isClosed(),
+        openviduConfig.getKmsAutodiscoverySessionsPerClient(), idleTimeout);
+    clients.startEviction(Math.max(1000, idleTimeout / 2));
+  }
+
+  @PreDestroy
+  public void close() {
+    clients.close();
+  }
+
   @Override
   public KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) throws OpenViduException {
 
-    return KurentoClient.create(Properties.of("loadPoints", ROOM_PIPELINE_LOAD_POINTS));
+    return clients.acquire();
 
   }
 
+  @Override
+  public void releaseKurentoClient(KurentoClient kurentoClient) {
+    clients.release(kurentoClient);
+  }
+
+  @Override
+  public MediaPipelinePool getPipelinePool(KurentoClient kurentoClient) {
+    // Sessions create their own pipelines in the discovered KMS
+    return null;
+  }
+
   @Override
   public boolean destroyWhenUnused() {
-    return true;
+    // Unused clients are destroyed by the pool once idle
+    return false;
   }
 }
@@ -19,6 +19,7 @@ package io.openvidu.server.kurento;
 import org.kurento.client.KurentoClient;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 
 /**
  * This service interface was designed so that the room manager could obtain a {@link KurentoClient}
@@ -41,5 +42,28 @@ public interface KurentoClientProvider {
    */
   KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) throws OpenViduException;
 
+  /**
+   * Obtains the pool of pre-created pipelines of the KMS a {@link KurentoClient} is connected to
+   *
+   * @param kurentoClient
+   *          a client previously returned by {@link #getKurentoClient(KurentoClientSessionInfo)}
+   * @return the pool, or null if pipelines must be created on demand
+   */
+  MediaPipelinePool getPipelinePool(KurentoClient kurentoClient);
+
   boolean destroyWhenUnused();
+
+  /**
+   * Tells the provider a session doesn't use anymore a client returned by
+   * {@link #getKurentoClient(KurentoClientSessionInfo)}. By default the client is destroyed if
+   * {@link #destroyWhenUnused()}
+   *
+   * @param kurentoClient
+   *          the client of the closed session
+   */
+  default void releaseKurentoClient(KurentoClient kurentoClient) {
+    if (destroyWhenUnused()) {
+      kurentoClient.destroy();
+    }
+  }
 }
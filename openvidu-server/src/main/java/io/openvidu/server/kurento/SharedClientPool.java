@@ -0,0 +1,242 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference counted pool of clients shared by several sessions. A session
+ * acquires a live client with room for one more session, and a new client is
+ * only created when all of them are full. Clients not used by any session are
+ * destroyed after an idle timeout, and dead clients are discarded.
+ *
+ * @param <T>
+ *          type of the clients
+ */
+public class SharedClientPool<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(SharedClientPool.class);
+
+  private static class Entry<T> {
+
+    private final T client;
+    private int sessions = 0;
+    private long idleSince = System.currentTimeMillis();
+
+    private Entry(T client) {
+      this.client = client;
+    }
+  }
+
+  private final Supplier<T> factory;
+  private final Consumer<T> destroyer;
+  private final Predicate<T> alive;
+  private final int maxSessionsPerClient;
+  private final long idleTimeout;
+
+  private final List<Entry<T>> entries = new ArrayList<>();
+
+  private final AtomicLong created = new AtomicLong(0);
+  private final AtomicLong reused = new AtomicLong(0);
+  private final AtomicLong evicted = new AtomicLong(0);
+
+  private ScheduledExecutorService evictor;
+
+  /**
+   * @param factory
+   *          creates a new client
+   * @param destroyer
+   *          destroys a client no longer needed
+   * @param alive
+   *          tells if a client can still be used
+   * @param maxSessionsPerClient
+   *          number of sessions that can share a client
+   * @param idleTimeout
+   *          milliseconds a client without sessions is kept before destroying it
+   */
+  public SharedClientPool(Supplier<T> factory, Consumer<T> destroyer, Predicate<T> alive,
+      int maxSessionsPerClient, long idleTimeout) {
+    this.factory = factory;
+    this.destroyer = destroyer;
+    this.alive = alive;
+    this.maxSessionsPerClient = Math.max(1, maxSessionsPerClient);
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Starts destroying idle clients every <code>interval</code> milliseconds
+   */
+  public synchronized void startEviction(long interval) {
+    if (evictor == null) {
+      evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "kurento-client-eviction");
+        t.setDaemon(true);
+        return t;
+      });
+      evictor.scheduleWithFixedDelay(() -> {
+        try {
+          evictIdle();
+        } catch (Exception e) {
+          log.warn("Error evicting idle clients", e);
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Returns a client for a new session, which must call
+   * {@link #release(Object)} once it doesn't need it anymore
+   */
+  public T acquire() {
+    synchronized (this) {
+      Entry<T> best = null;
+      Iterator<Entry<T>> it = entries.iterator();
+      while (it.hasNext()) {
+        Entry<T> entry = it.next();
+        if (!alive.test(entry.client)) {
+          if (entry.sessions == 0) {
+            it.remove();
+            destroyQuietly(entry.client);
+          }
+          continue;
+        }
+        // Fill the busiest client first, so the rest can become idle
+        if (entry.sessions < maxSessionsPerClient && (best == null || entry.sessions > best.sessions)) {
+          best = entry;
+        }
+      }
+      if (best != null) {
+        best.sessions++;
+        reused.incrementAndGet();
+        return best.client;
+      }
+    }
+
+    // Connecting takes a while: don't block the sessions reusing clients
+    T client = factory.get();
+    created.incrementAndGet();
+    synchronized (this) {
+      Entry<T> entry = new Entry<>(client);
+      entry.sessions = 1;
+      entries.add(entry);
+      log.debug("New shared client created ({} clients)", entries.size());
+    }
+    return client;
+  }
+
+  /**
+   * Tells the pool a session doesn't use <code>client</code> anymore
+   */
+  public synchronized void release(T client) {
+    for (Entry<T> entry : entries) {
+      if (entry.client == client) {
+        entry.sessions = Math.max(0, entry.sessions - 1);
+        if (entry.sessions == 0) {
+          entry.idleSince = System.currentTimeMillis();
+        }
+        return;
+      }
+    }
+    log.warn("Releasing a client not acquired from the pool. Destroying it");
+    destroyQuietly(client);
+  }
+
+  /**
+   * Destroys the clients that have been idle longer than the idle timeout and
+   * those that are dead
+   *
+   * @return number of clients destroyed
+   */
+  public int evictIdle() {
+    List<T> toDestroy = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      Iterator<Entry<T>> it = entries.iterator();
+      while (it.hasNext()) {
+        Entry<T> entry = it.next();
+        if (entry.sessions == 0 && (now - entry.idleSince >= idleTimeout || !alive.test(entry.client))) {
+          it.remove();
+          toDestroy.add(entry.client);
+        }
+      }
+    }
+    for (T client : toDestroy) {
+      destroyQuietly(client);
+      evicted.incrementAndGet();
+    }
+    if (!toDestroy.isEmpty()) {
+      log.debug("{} idle shared clients destroyed (created: {}, reused: {}, evicted: {})",
+          toDestroy.size(), created.get(), reused.get(), evicted.get());
+    }
+    return toDestroy.size();
+  }
+
+  /**
+   * Stops the eviction and destroys every client
+   */
+  public void close() {
+    List<T> toDestroy = new ArrayList<>();
+    synchronized (this) {
+      if (evictor != null) {
+        evictor.shutdownNow();
+        evictor = null;
+      }
+      for (Entry<T> entry : entries) {
+        toDestroy.add(entry.client);
+      }
+      entries.clear();
+    }
+    toDestroy.forEach(this::destroyQuietly);
+  }
+
+  private void destroyQuietly(T client) {
+    try {
+      destroyer.accept(client);
+    } catch (Exception e) {
+      log.warn("Error destroying client", e);
+    }
+  }
+
+  public synchronized int getClientCount() {
+    return entries.size();
+  }
+
+  public long getCreated() {
+    return created.get();
+  }
+
+  public long getReused() {
+    return reused.get();
+  }
+
+  public long getEvicted() {
+    return evicted.get();
+  }
+}
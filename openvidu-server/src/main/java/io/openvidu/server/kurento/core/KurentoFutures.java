@@ -0,0 +1,90 @@
+package io.openvidu.server.kurento.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.kurento.client.Continuation;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+
+/**
+ * Helpers to chain the asynchronous operations of the Kurento client as
+ * {@link CompletableFuture}s, so no thread has to be parked while KMS answers
+ */
+public class KurentoFutures {
+
+	private static final ScheduledExecutorService timeoutScheduler = Executors
+			.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "kms-timeouts");
+				t.setDaemon(true);
+				return t;
+			});
+
+	private KurentoFutures() {
+	}
+
+	/**
+	 * Returns a {@link Continuation} that completes <code>future</code> when the
+	 * Kurento operation it is passed to finishes
+	 */
+	public static <T> Continuation<T> continuation(CompletableFuture<T> future) {
+		return new Continuation<T>() {
+			@Override
+			public void onSuccess(T result) throws Exception {
+				future.complete(result);
+			}
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				future.completeExceptionally(cause);
+			}
+		};
+	}
+
+	/**
+	 * Returns a future completed as <code>future</code>, or exceptionally with an
+	 * {@link OpenViduException} if <code>future</code> is not completed in
+	 * {@link KurentoSession#ASYNC_LATCH_TIMEOUT} seconds
+	 */
+	public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Code code, String message) {
+		if (future.isDone()) {
+			return future;
+		}
+		CompletableFuture<T> result = new CompletableFuture<>();
+		ScheduledFuture<?> timeout = timeoutScheduler.schedule(
+				() -> result.completeExceptionally(new OpenViduException(code, message)),
+				KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
+		future.whenComplete((value, error) -> {
+			timeout.cancel(false);
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else {
+				result.complete(value);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Returns the {@link OpenViduException} that made a future fail, wrapping any
+	 * other kind of error in a new one
+	 */
+	public static OpenViduException toOpenViduException(Throwable error, Code code, String message) {
+		Throwable cause = error;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+				&& cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof OpenViduException) {
+			return (OpenViduException) cause;
+		}
+		return new OpenViduException(code, message + ": " + cause.getMessage());
+	}
+
+}
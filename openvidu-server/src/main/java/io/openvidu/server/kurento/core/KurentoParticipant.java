@@ -1,11 +1,15 @@
 package io.openvidu.server.kurento.core;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.ErrorEvent;
@@ -22,11 +26,13 @@ import org.slf4j.LoggerFactory;
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
 import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.java.client.SubscriptionPolicy;
 import io.openvidu.server.cdr.CallDetailRecord;
 import io.openvidu.server.config.InfoHandler;
 import io.openvidu.server.core.MediaOptions;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.kurento.MutedMediaType;
+import io.openvidu.server.kurento.endpoint.EndpointEvent;
 import io.openvidu.server.kurento.endpoint.MediaEndpoint;
 import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
 import io.openvidu.server.kurento.endpoint.SdpType;
@@ -37,6 +43,8 @@ public class KurentoParticipant extends Participant {
 	private static final Logger log = LoggerFactory.getLogger(KurentoParticipant.class);
 
 	private InfoHandler infoHandler;
+	// Events of the endpoints subscribed to while no info websocket is connected
+	private Set<EndpointEvent> endpointEvents;
 	private CallDetailRecord CDR;
 
 	private boolean webParticipant = true;
@@ -45,40 +53,62 @@ public class KurentoParticipant extends Participant {
 	private final MediaPipeline pipeline;
 
 	private PublisherEndpoint publisher;
-	private CountDownLatch endPointLatch = new CountDownLatch(1);
+	// Completed once the first publisher endpoint has been created (or failed)
+	private final CompletableFuture<Void> publisherReady = new CompletableFuture<>();
 
 	private final ConcurrentMap<String, Filter> filters = new ConcurrentHashMap<>();
 	private final ConcurrentMap<String, SubscriberEndpoint> subscribers = new ConcurrentHashMap<String, SubscriberEndpoint>();
 
-	public KurentoParticipant(Participant participant, KurentoSession kurentoSession, MediaPipeline pipeline, InfoHandler infoHandler, CallDetailRecord CDR) {
+	public KurentoParticipant(Participant participant, KurentoSession kurentoSession, MediaPipeline pipeline,
+			InfoHandler infoHandler, Set<EndpointEvent> endpointEvents, CallDetailRecord CDR) {
 		super(participant.getParticipantPrivateId(), participant.getParticipantPublicId(), participant.getToken(),
 				participant.getClientMetadata());
 		this.session = kurentoSession;
 		this.pipeline = pipeline;
-		this.publisher = new PublisherEndpoint(webParticipant, this, participant.getParticipantPublicId(),
-				pipeline);
-
-		for (Participant other : session.getParticipants()) {
-			if (!other.getParticipantPublicId().equals(this.getParticipantPublicId())) {
-				getNewOrExistingSubscriber(other.getParticipantPublicId());
+		this.publisher = newPublisherEndpoint();
+
+		SubscriptionPolicy subscriptionPolicy = session.getSubscriptionPolicy();
+		if (!SubscriptionPolicy.ON_DEMAND.equals(subscriptionPolicy)) {
+			for (Participant other : session.getParticipants()) {
+				if (!other.getParticipantPublicId().equals(this.getParticipantPublicId())
+						&& (SubscriptionPolicy.EAGER.equals(subscriptionPolicy) || other.isStreaming())) {
+					getNewOrExistingSubscriber(other.getParticipantPublicId());
+				}
 			}
 		}
 		this.infoHandler = infoHandler;
+		this.endpointEvents = endpointEvents;
 		this.CDR = CDR;
 	}
 
-	public void createPublishingEndpoint(MediaOptions mediaOptions) {
-		publisher.createEndpoint(endPointLatch);
-		if (getPublisher().getEndpoint() == null) {
-			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "Unable to create publisher endpoint");
-		}
-		this.publisher.getEndpoint().addTag("name", "PUBLISHER " + this.getParticipantPublicId());
+	/**
+	 * Asynchronously creates the publisher endpoint in KMS. Once created, its
+	 * listeners are registered in a thread of <code>executor</code>, as those are
+	 * still synchronous calls to KMS
+	 *
+	 * @return future completed with the ready publisher endpoint
+	 */
+	public CompletableFuture<PublisherEndpoint> createPublishingEndpoint(MediaOptions mediaOptions,
+			Executor executor) {
+		final PublisherEndpoint publisher = this.publisher;
+		CompletableFuture<SdpEndpoint> endpointCreation = KurentoFutures.withTimeout(publisher.createEndpoint(),
+				Code.MEDIA_ENDPOINT_ERROR_CODE, "Timeout reached while waiting for publisher endpoint to be ready");
+		endpointCreation.whenComplete((endpoint, error) -> publisherReady.complete(null));
+
+		return endpointCreation.handle((endpoint, error) -> {
+			if (error != null) {
+				throw KurentoFutures.toOpenViduException(error, Code.MEDIA_ENDPOINT_ERROR_CODE,
+						"Unable to create publisher endpoint");
+			}
+			return endpoint;
+		}).thenApplyAsync(endpoint -> {
+			publisher.setNameTag("PUBLISHER " + this.getParticipantPublicId());
+
+			addEndpointListeners(publisher);
 
-		addEndpointListeners(this.publisher);
-		
-		
-		CDR.recordNewPublisher(this, this.session.getSessionId(), mediaOptions);
-		
+			CDR.recordNewPublisher(this, this.session.getSessionId(), mediaOptions);
+			return publisher;
+		}, executor);
 	}
 
 	public void shapePublisherMedia(MediaElement element, MediaType type) {
@@ -140,17 +170,33 @@ public class KurentoParticipant extends Participant {
 
 	public PublisherEndpoint getPublisher() {
 		try {
-			if (!endPointLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS)) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-						"Timeout reached while waiting for publisher endpoint to be ready");
-			}
-		} catch (InterruptedException e) {
+			publisherReady.get(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+					"Timeout reached while waiting for publisher endpoint to be ready");
+		} catch (InterruptedException | ExecutionException e) {
 			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
 					"Interrupted while waiting for publisher endpoint to be ready: " + e.getMessage());
 		}
 		return this.publisher;
 	}
 
+	/**
+	 * Same as {@link #getPublisher()}, but without blocking the calling thread
+	 */
+	public CompletableFuture<PublisherEndpoint> getPublisherAsync() {
+		return KurentoFutures.withTimeout(publisherReady, Code.MEDIA_ENDPOINT_ERROR_CODE,
+				"Timeout reached while waiting for publisher endpoint to be ready").thenApply(v -> this.publisher);
+	}
+
+	/**
+	 * Creates the publisher endpoint of this participant, initially without its
+	 * internal endpoint
+	 */
+	protected PublisherEndpoint newPublisherEndpoint() {
+		return new PublisherEndpoint(webParticipant, this, this.getParticipantPublicId(), pipeline);
+	}
+
 	public KurentoSession getSession() {
 		return session;
 	}
@@ -207,14 +253,22 @@ public class KurentoParticipant extends Participant {
 		log.info("PARTICIPANT {}: unpublishing media stream from room {}", this.getParticipantPublicId(),
 				this.session.getSessionId());
 		releasePublisherEndpoint(reason);
-		this.publisher = new PublisherEndpoint(webParticipant, this, this.getParticipantPublicId(),
-				pipeline);
+		this.publisher = newPublisherEndpoint();
 		log.info(
 				"PARTICIPANT {}: released publisher endpoint and left it initialized (ready for future streaming)",
 				this.getParticipantPublicId());
 	}
 
-	public String receiveMediaFrom(Participant sender, String sdpOffer) {
+	/**
+	 * Asynchronously creates a subscriber endpoint connected to the publisher of
+	 * <code>sender</code>. The SDP negotiation and the connection to the
+	 * publisher are still synchronous calls to KMS, and they run in a thread of
+	 * <code>executor</code>
+	 *
+	 * @return future completed with the SDP answer, or with null if the
+	 *         subscription couldn't be completed
+	 */
+	public CompletableFuture<String> receiveMediaFrom(Participant sender, String sdpOffer, Executor executor) {
 		final String senderName = sender.getParticipantPublicId();
 
 		log.info("PARTICIPANT {}: Request to receive media from {} in room {}", this.getParticipantPublicId(), senderName,
@@ -228,42 +282,46 @@ public class KurentoParticipant extends Participant {
 
 		KurentoParticipant kSender = (KurentoParticipant) sender;
 
-		if (kSender.getPublisher() == null) {
-			log.warn("PARTICIPANT {}: Trying to connect to a user without " + "a publishing endpoint",
-					this.getParticipantPublicId());
-			return null;
-		}
+		return kSender.getPublisherAsync().thenCompose(senderPublisher -> {
+			if (senderPublisher == null) {
+				log.warn("PARTICIPANT {}: Trying to connect to a user without " + "a publishing endpoint",
+						this.getParticipantPublicId());
+				return CompletableFuture.completedFuture(null);
+			}
 
-		log.debug("PARTICIPANT {}: Creating a subscriber endpoint to user {}", this.getParticipantPublicId(),
-				senderName);
+			log.debug("PARTICIPANT {}: Creating a subscriber endpoint to user {}", this.getParticipantPublicId(),
+					senderName);
 
-		SubscriberEndpoint subscriber = getNewOrExistingSubscriber(senderName);
+			SubscriberEndpoint subscriber = getNewOrExistingSubscriber(senderName);
 
-		try {
-			CountDownLatch subscriberLatch = new CountDownLatch(1);
-			SdpEndpoint oldMediaEndpoint = subscriber.createEndpoint(subscriberLatch);
-			try {
-				if (!subscriberLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS)) {
-					throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-							"Timeout reached when creating subscriber endpoint");
+			CompletableFuture<SdpEndpoint> endpointCreation;
+			synchronized (subscriber) {
+				if (subscriber.getEndpointFuture() != null) {
+					log.warn(
+							"PARTICIPANT {}: Two threads are trying to create at "
+									+ "the same time a subscriber endpoint for user {}",
+							this.getParticipantPublicId(), senderName);
+					return CompletableFuture.completedFuture(null);
 				}
-			} catch (InterruptedException e) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-						"Interrupted when creating subscriber endpoint: " + e.getMessage());
-			}
-			if (oldMediaEndpoint != null) {
-				log.warn(
-						"PARTICIPANT {}: Two threads are trying to create at "
-								+ "the same time a subscriber endpoint for user {}",
-						this.getParticipantPublicId(), senderName);
-				return null;
-			}
-			if (subscriber.getEndpoint() == null) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "Unable to create subscriber endpoint");
+				endpointCreation = subscriber.createEndpoint();
 			}
 
-			subscriber.getEndpoint().addTag("name",
-					"SUBSCRIBER " + senderName + " for user " + this.getParticipantPublicId());
+			return KurentoFutures.withTimeout(endpointCreation, Code.MEDIA_ENDPOINT_ERROR_CODE,
+					"Timeout reached when creating subscriber endpoint").handle((endpoint, error) -> {
+						if (error != null) {
+							this.subscribers.remove(senderName);
+							throw KurentoFutures.toOpenViduException(error, Code.MEDIA_ENDPOINT_ERROR_CODE,
+									"Unable to create subscriber endpoint");
+						}
+						return endpoint;
+					}).thenApplyAsync(endpoint -> connectSubscriber(subscriber, kSender, sdpOffer), executor);
+		});
+	}
+
+	private String connectSubscriber(SubscriberEndpoint subscriber, KurentoParticipant kSender, String sdpOffer) {
+		final String senderName = kSender.getParticipantPublicId();
+		try {
+			subscriber.setNameTag("SUBSCRIBER " + senderName + " for user " + this.getParticipantPublicId());
 
 			addEndpointListeners(subscriber);
 
@@ -280,7 +338,7 @@ public class KurentoParticipant extends Participant {
 					this.session.getSessionId());
 			
 			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(this.getParticipantPublicId())) {
-				CDR.recordNewSubscriber(this, this.session.getSessionId(), sender.getParticipantPublicId());
+				CDR.recordNewSubscriber(this, this.session.getSessionId(), senderName);
 			}
 			
 			return sdpAnswer;
@@ -393,6 +451,10 @@ public class KurentoParticipant extends Participant {
 	 * @return the endpoint instance
 	 */
 	public SubscriberEndpoint getNewOrExistingSubscriber(String remotePublicId) {
+		SubscriberEndpoint existing = this.subscribers.get(remotePublicId);
+		if (existing != null) {
+			return existing;
+		}
 		SubscriberEndpoint sendingEndpoint = new SubscriberEndpoint(webParticipant, this, remotePublicId, pipeline);
 		SubscriberEndpoint existingSendingEndpoint = this.subscribers.putIfAbsent(remotePublicId, sendingEndpoint);
 		if (existingSendingEndpoint != null) {
@@ -406,6 +468,10 @@ public class KurentoParticipant extends Participant {
 		return sendingEndpoint;
 	}
 
+	public int getSubscriberCount() {
+		return this.subscribers.size();
+	}
+
 	public void addIceCandidate(String endpointName, IceCandidate iceCandidate) {
 		if (this.getParticipantPublicId().equals(endpointName)) {
 			this.publisher.addIceCandidate(iceCandidate);
@@ -478,7 +544,33 @@ public class KurentoParticipant extends Participant {
 		}
 	}
 
+	/**
+	 * Subscribes the endpoints already created to all the events of KMS, so they
+	 * are reported to the info websocket
+	 */
+	public void addAllEndpointListeners() {
+		Set<EndpointEvent> all = EnumSet.allOf(EndpointEvent.class);
+		// Null once the participant has unpublished
+		PublisherEndpoint publisher = this.publisher;
+		if (publisher != null && publisher.getEndpoint() != null) {
+			addEndpointListeners(publisher, all);
+		}
+		for (SubscriberEndpoint subscriber : this.subscribers.values()) {
+			if (subscriber.getEndpoint() != null) {
+				addEndpointListeners(subscriber, all);
+			}
+		}
+	}
+
 	private void addEndpointListeners(MediaEndpoint endpoint) {
+		if (this.infoHandler != null && this.infoHandler.isActive()) {
+			addEndpointListeners(endpoint, EnumSet.allOf(EndpointEvent.class));
+		} else {
+			addEndpointListeners(endpoint, this.endpointEvents);
+		}
+	}
+
+	private void addEndpointListeners(MediaEndpoint endpoint, Set<EndpointEvent> events) {
 
 		/*
 		 * endpoint.getWebEndpoint().addElementConnectedListener((element) -> { String
@@ -498,112 +590,138 @@ public class KurentoParticipant extends Participant {
 		 * System.out.println(msg); this.infoHandler.sendInfo(msg); });
 		 */
 
-		endpoint.getWebEndpoint().addErrorListener((event) -> {
-			String msg = "                  Error (PUBLISHER) -> " + "ERRORCODE: " + event.getErrorCode()
-					+ " | DESCRIPTION: " + event.getDescription() + " | TIMESTAMP: " + System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addMediaFlowInStateChangeListener((event) -> {
-			String msg1 = "                  Media flow in state change (" + endpoint.getEndpoint().getTag("name")
-					+ ") -> " + "STATE: " + event.getState() + " | SOURCE: " + event.getSource().getName() + " | PAD: "
-					+ event.getPadName() + " | MEDIATYPE: " + event.getMediaType() + " | TIMESTAMP: "
-					+ System.currentTimeMillis();
-
-			endpoint.flowInMedia.put(event.getSource().getName() + "/" + event.getMediaType(), event.getSource());
-
-			String msg2;
-
-			if (endpoint.flowInMedia.values().size() != 2) {
-				msg2 = "                        THERE ARE LESS FLOW IN MEDIA'S THAN EXPECTED IN "
-						+ endpoint.getEndpoint().getTag("name") + " (" + endpoint.flowInMedia.values().size() + ")";
-			} else {
-				msg2 = "                        NUMBER OF FLOW IN MEDIA'S IS NOW CORRECT IN "
-						+ endpoint.getEndpoint().getTag("name") + " (" + endpoint.flowInMedia.values().size() + ")";
-			}
-
-			log.debug(msg1);
-			log.debug(msg2);
-			this.infoHandler.sendInfo(msg1);
-			this.infoHandler.sendInfo(msg2);
-		});
-
-		endpoint.getWebEndpoint().addMediaFlowOutStateChangeListener((event) -> {
-			String msg1 = "                  Media flow out state change (" + endpoint.getEndpoint().getTag("name")
-					+ ") -> " + "STATE: " + event.getState() + " | SOURCE: " + event.getSource().getName() + " | PAD: "
-					+ event.getPadName() + " | MEDIATYPE: " + event.getMediaType() + " | TIMESTAMP: "
-					+ System.currentTimeMillis();
-
-			endpoint.flowOutMedia.put(event.getSource().getName() + "/" + event.getMediaType(), event.getSource());
-
-			String msg2;
-
-			if (endpoint.flowOutMedia.values().size() != 2) {
-				msg2 = "                        THERE ARE LESS FLOW OUT MEDIA'S THAN EXPECTED IN "
-						+ endpoint.getEndpoint().getTag("name") + " (" + endpoint.flowOutMedia.values().size() + ")";
-			} else {
-				msg2 = "                        NUMBER OF FLOW OUT MEDIA'S IS NOW CORRECT IN "
-						+ endpoint.getEndpoint().getTag("name") + " (" + endpoint.flowOutMedia.values().size() + ")";
+		for (EndpointEvent eventType : endpoint.newEventSubscriptions(events)) {
+			switch (eventType) {
+			case ERROR:
+				endpoint.getWebEndpoint().addErrorListener((event) -> {
+					String msg = "                  Error (PUBLISHER) -> " + "ERRORCODE: " + event.getErrorCode()
+							+ " | DESCRIPTION: " + event.getDescription() + " | TIMESTAMP: "
+							+ System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case MEDIA_FLOW_IN:
+				endpoint.getWebEndpoint().addMediaFlowInStateChangeListener((event) -> {
+					String msg1 = "                  Media flow in state change (" + endpoint.getNameTag() + ") -> "
+							+ "STATE: " + event.getState() + " | SOURCE: " + event.getSource().getName() + " | PAD: "
+							+ event.getPadName() + " | MEDIATYPE: " + event.getMediaType() + " | TIMESTAMP: "
+							+ System.currentTimeMillis();
+
+					endpoint.flowInMedia.put(event.getSource().getName() + "/" + event.getMediaType(),
+							event.getSource());
+
+					String msg2;
+
+					if (endpoint.flowInMedia.values().size() != 2) {
+						msg2 = "                        THERE ARE LESS FLOW IN MEDIA'S THAN EXPECTED IN "
+								+ endpoint.getNameTag() + " (" + endpoint.flowInMedia.values().size() + ")";
+					} else {
+						msg2 = "                        NUMBER OF FLOW IN MEDIA'S IS NOW CORRECT IN "
+								+ endpoint.getNameTag() + " (" + endpoint.flowInMedia.values().size() + ")";
+					}
+
+					log.debug(msg1);
+					log.debug(msg2);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg1);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg2);
+				});
+				break;
+
+			case MEDIA_FLOW_OUT:
+				endpoint.getWebEndpoint().addMediaFlowOutStateChangeListener((event) -> {
+					String msg1 = "                  Media flow out state change (" + endpoint.getNameTag() + ") -> "
+							+ "STATE: " + event.getState() + " | SOURCE: " + event.getSource().getName() + " | PAD: "
+							+ event.getPadName() + " | MEDIATYPE: " + event.getMediaType() + " | TIMESTAMP: "
+							+ System.currentTimeMillis();
+
+					endpoint.flowOutMedia.put(event.getSource().getName() + "/" + event.getMediaType(),
+							event.getSource());
+
+					String msg2;
+
+					if (endpoint.flowOutMedia.values().size() != 2) {
+						msg2 = "                        THERE ARE LESS FLOW OUT MEDIA'S THAN EXPECTED IN "
+								+ endpoint.getNameTag() + " (" + endpoint.flowOutMedia.values().size() + ")";
+					} else {
+						msg2 = "                        NUMBER OF FLOW OUT MEDIA'S IS NOW CORRECT IN "
+								+ endpoint.getNameTag() + " (" + endpoint.flowOutMedia.values().size() + ")";
+					}
+
+					log.debug(msg1);
+					log.debug(msg2);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg1);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg2);
+				});
+				break;
+
+			case MEDIA_SESSION_STARTED:
+				endpoint.getWebEndpoint().addMediaSessionStartedListener((event) -> {
+					String msg = "                  Media session started (" + endpoint.getNameTag()
+							+ ") | TIMESTAMP: " + System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case MEDIA_SESSION_TERMINATED:
+				endpoint.getWebEndpoint().addMediaSessionTerminatedListener((event) -> {
+					String msg = "                  Media session terminated (" + endpoint.getNameTag()
+							+ ") | TIMESTAMP: " + System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case MEDIA_STATE:
+				endpoint.getWebEndpoint().addMediaStateChangedListener((event) -> {
+					String msg = "                  Media state changed (" + endpoint.getNameTag() + ") from "
+							+ event.getOldState() + " to " + event.getNewState();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case CONNECTION_STATE:
+				endpoint.getWebEndpoint().addConnectionStateChangedListener((event) -> {
+					String msg = "                  Connection state changed (" + endpoint.getNameTag() + ") from "
+							+ event.getOldState() + " to " + event.getNewState() + " | TIMESTAMP: "
+							+ System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case ICE_CANDIDATE_FOUND:
+				endpoint.getWebEndpoint().addIceCandidateFoundListener((event) -> {
+					String msg = "                  ICE CANDIDATE FOUND (" + endpoint.getNameTag() + "): CANDIDATE: "
+							+ event.getCandidate().getCandidate() + " | TIMESTAMP: " + System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case ICE_COMPONENT_STATE:
+				endpoint.getWebEndpoint().addIceComponentStateChangeListener((event) -> {
+					String msg = "                  ICE COMPONENT STATE CHANGE (" + endpoint.getNameTag()
+							+ "): for component " + event.getComponentId() + " - STATE: " + event.getState()
+							+ " | TIMESTAMP: " + System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
+
+			case ICE_GATHERING_DONE:
+				endpoint.getWebEndpoint().addIceGatheringDoneListener((event) -> {
+					String msg = "                  ICE GATHERING DONE! (" + endpoint.getNameTag() + ")"
+							+ " | TIMESTAMP: " + System.currentTimeMillis();
+					log.debug(msg);
+					this.infoHandler.sendInfo(this.session.getSessionId(), msg);
+				});
+				break;
 			}
-
-			log.debug(msg1);
-			log.debug(msg2);
-			this.infoHandler.sendInfo(msg1);
-			this.infoHandler.sendInfo(msg2);
-		});
-
-		endpoint.getWebEndpoint().addMediaSessionStartedListener((event) -> {
-			String msg = "                  Media session started (" + endpoint.getEndpoint().getTag("name")
-					+ ") | TIMESTAMP: " + System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addMediaSessionTerminatedListener((event) -> {
-			String msg = "                  Media session terminated (" + endpoint.getEndpoint().getTag("name")
-					+ ") | TIMESTAMP: " + System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addMediaStateChangedListener((event) -> {
-			String msg = "                  Media state changed (" + endpoint.getEndpoint().getTag("name") + ") from "
-					+ event.getOldState() + " to " + event.getNewState();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addConnectionStateChangedListener((event) -> {
-			String msg = "                  Connection state changed (" + endpoint.getEndpoint().getTag("name")
-					+ ") from " + event.getOldState() + " to " + event.getNewState() + " | TIMESTAMP: "
-					+ System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addIceCandidateFoundListener((event) -> {
-			String msg = "                  ICE CANDIDATE FOUND (" + endpoint.getEndpoint().getTag("name")
-					+ "): CANDIDATE: " + event.getCandidate().getCandidate() + " | TIMESTAMP: "
-					+ System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addIceComponentStateChangeListener((event) -> {
-			String msg = "                  ICE COMPONENT STATE CHANGE (" + endpoint.getEndpoint().getTag("name")
-					+ "): for component " + event.getComponentId() + " - STATE: " + event.getState() + " | TIMESTAMP: "
-					+ System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
-
-		endpoint.getWebEndpoint().addIceGatheringDoneListener((event) -> {
-			String msg = "                  ICE GATHERING DONE! (" + endpoint.getEndpoint().getTag("name") + ")"
-					+ " | TIMESTAMP: " + System.currentTimeMillis();
-			log.debug(msg);
-			this.infoHandler.sendInfo(msg);
-		});
+		}
 
 	}
 
@@ -2,10 +2,13 @@ package io.openvidu.server.kurento.core;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.kurento.client.Continuation;
@@ -13,6 +16,7 @@ import org.kurento.client.ErrorEvent;
 import org.kurento.client.EventListener;
 import org.kurento.client.IceCandidate;
 import org.kurento.client.KurentoClient;
+import org.kurento.client.ListenerSubscription;
 import org.kurento.client.MediaPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +25,13 @@ import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.java.client.SessionProperties;
+import io.openvidu.java.client.SubscriptionPolicy;
 import io.openvidu.server.cdr.CallDetailRecord;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.Session;
+import io.openvidu.server.kurento.KurentoClientProvider;
+import io.openvidu.server.kurento.endpoint.IceCandidateCoalescer;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 
 /**
  * @author Pablo Fuente (pablofuenteperez@gmail.com)
@@ -34,13 +42,18 @@ public class KurentoSession implements Session {
 	public static final int ASYNC_LATCH_TIMEOUT = 30;
 
 	private final ConcurrentMap<String, KurentoParticipant> participants = new ConcurrentHashMap<>();
+	// Same participants indexed by their public id. Both maps are only modified
+	// while holding participantsLock, so they never disagree with each other
+	private final ConcurrentMap<String, KurentoParticipant> participantsByPublicId = new ConcurrentHashMap<>();
+	private final Object participantsLock = new Object();
 	private String sessionId;
 	private SessionProperties sessionProperties;
 
 	private MediaPipeline pipeline;
-	private CountDownLatch pipelineLatch = new CountDownLatch(1);
+	private CompletableFuture<MediaPipeline> pipelineFuture = new CompletableFuture<>();
 
 	private KurentoClient kurentoClient;
+	private MediaPipelinePool pipelinePool;
 	private KurentoSessionEventsHandler kurentoSessionHandler;
 
 	private volatile boolean closed = false;
@@ -49,18 +62,27 @@ public class KurentoSession implements Session {
 	private AtomicInteger activePublishers = new AtomicInteger(0);
 
 	private Object pipelineCreateLock = new Object();
+	private boolean pipelineCreationStarted = false;
 	private Object pipelineReleaseLock = new Object();
 	private volatile boolean pipelineReleased = false;
-	private boolean destroyKurentoClient;
+	private KurentoClientProvider kurentoClientProvider;
+	private IceCandidateCoalescer iceCandidateCoalescer;
 	
 	private CallDetailRecord CDR;
 
-	public KurentoSession(String sessionId, SessionProperties sessionProperties, KurentoClient kurentoClient, KurentoSessionEventsHandler kurentoSessionHandler,
-			boolean destroyKurentoClient, CallDetailRecord CDR) {
+	// Runs the handling of the events KMS reports about this session
+	private volatile Executor eventExecutor = Runnable::run;
+
+	public KurentoSession(String sessionId, SessionProperties sessionProperties, KurentoClient kurentoClient,
+			MediaPipelinePool pipelinePool, KurentoSessionEventsHandler kurentoSessionHandler,
+			KurentoClientProvider kurentoClientProvider, IceCandidateCoalescer iceCandidateCoalescer,
+			CallDetailRecord CDR) {
 		this.sessionId = sessionId;
 		this.sessionProperties = sessionProperties;
 		this.kurentoClient = kurentoClient;
-		this.destroyKurentoClient = destroyKurentoClient;
+		this.pipelinePool = pipelinePool;
+		this.kurentoClientProvider = kurentoClientProvider;
+		this.iceCandidateCoalescer = iceCandidateCoalescer;
 		this.kurentoSessionHandler = kurentoSessionHandler;
 		this.CDR = CDR;
 		log.debug("New SESSION instance with id '{}'", sessionId);
@@ -76,13 +98,42 @@ public class KurentoSession implements Session {
 		return this.sessionProperties;
 	}
 
+	/**
+	 * Makes the events KMS reports about this session (ICE candidates, media
+	 * element and pipeline errors) be handled by <code>eventExecutor</code>
+	 * instead of the Kurento client thread receiving them. By default they are
+	 * handled in that thread
+	 */
+	public void setEventExecutor(Executor eventExecutor) {
+		this.eventExecutor = eventExecutor;
+	}
+
+	public IceCandidateCoalescer getIceCandidateCoalescer() {
+		return this.iceCandidateCoalescer;
+	}
+
+	public SubscriptionPolicy getSubscriptionPolicy() {
+		if (this.sessionProperties == null || this.sessionProperties.subscriptionPolicy() == null) {
+			return SubscriptionPolicy.EAGER;
+		}
+		return this.sessionProperties.subscriptionPolicy();
+	}
+
 	@Override
 	public void join(Participant participant) {
 		checkClosed();
 		createPipeline();
+		if (getPipeline() == null) {
+			throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+					"Unable to create media pipeline for session '" + sessionId + "'");
+		}
 
-		KurentoParticipant kurentoParticipant = new KurentoParticipant(participant, this, getPipeline(), kurentoSessionHandler.getInfoHandler(), this.CDR);
-		participants.put(participant.getParticipantPrivateId(), kurentoParticipant);
+		KurentoParticipant kurentoParticipant = new KurentoParticipant(participant, this, getPipeline(),
+				kurentoSessionHandler.getInfoHandler(), kurentoSessionHandler.getEndpointEvents(), this.CDR);
+		synchronized (participantsLock) {
+			participants.put(participant.getParticipantPrivateId(), kurentoParticipant);
+			participantsByPublicId.put(participant.getParticipantPublicId(), kurentoParticipant);
+		}
 
 		filterStates.forEach((filterId, state) -> {
 			log.info("Adding filter {}", filterId);
@@ -99,6 +150,11 @@ public class KurentoSession implements Session {
 	public void newPublisher(Participant participant) {
 		registerPublisher();
 
+		if (SubscriptionPolicy.ON_DEMAND.equals(getSubscriptionPolicy())) {
+			// Subscriber endpoints will be created as participants subscribe
+			return;
+		}
+
 		// pre-load endpoints to recv video from the new publisher
 		for (KurentoParticipant p : participants.values()) {
 			if (participant.equals(p)) {
@@ -167,12 +223,7 @@ public class KurentoSession implements Session {
 	@Override
 	public Participant getParticipantByPublicId(String participantPublicId) {
 		checkClosed();
-		for (Participant p : participants.values()) {
-			if (p.getParticipantPublicId().equals(participantPublicId)) {
-				return p;
-			}
-		}
-		return null;
+		return participantsByPublicId.get(participantPublicId);
 	}
 	
 	@Override
@@ -184,14 +235,17 @@ public class KurentoSession implements Session {
 				participant.close(reason);
 			}
 
-			participants.clear();
+			synchronized (participantsLock) {
+				participants.clear();
+				participantsByPublicId.clear();
+			}
 
 			closePipeline();
 
 			log.debug("Session {} closed", this.sessionId);
 
-			if (destroyKurentoClient) {
-				kurentoClient.destroy();
+			if (kurentoClientProvider != null) {
+				kurentoClientProvider.releaseKurentoClient(kurentoClient);
 			}
 
 			this.closed = true;
@@ -203,11 +257,13 @@ public class KurentoSession implements Session {
 	}
 
 	public void sendIceCandidate(String participantId, String endpointName, IceCandidate candidate) {
-		this.kurentoSessionHandler.onIceCandidate(sessionId, participantId, endpointName, candidate);
+		this.eventExecutor.execute(
+				() -> this.kurentoSessionHandler.onIceCandidate(sessionId, participantId, endpointName, candidate));
 	}
 
 	public void sendMediaError(String participantId, String description) {
-		this.kurentoSessionHandler.onMediaElementError(sessionId, participantId, description);
+		this.eventExecutor
+				.execute(() -> this.kurentoSessionHandler.onMediaElementError(sessionId, participantId, description));
 	}
 
 	@Override
@@ -225,7 +281,12 @@ public class KurentoSession implements Session {
 
 		checkClosed();
 
-		participants.remove(participant.getParticipantPrivateId());
+		synchronized (participantsLock) {
+			KurentoParticipant removed = participants.remove(participant.getParticipantPrivateId());
+			if (removed != null) {
+				participantsByPublicId.remove(removed.getParticipantPublicId(), removed);
+			}
+		}
 
 		log.debug("SESSION {}: Cancel receiving media from participant '{}' for other participant", this.sessionId, participant.getParticipantPublicId());
 		for (KurentoParticipant other : participants.values()) {
@@ -248,52 +309,88 @@ public class KurentoSession implements Session {
 
 	public MediaPipeline getPipeline() {
 		try {
-			pipelineLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
+			pipelineFuture.get(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
+		} catch (ExecutionException | TimeoutException e) {
+			// No pipeline
 		}
 		return this.pipeline;
 	}
 
-	private void createPipeline() {
+	/**
+	 * Same as {@link #getPipeline()}, but without blocking the calling thread
+	 */
+	public CompletableFuture<MediaPipeline> getPipelineAsync() {
+		return KurentoFutures.withTimeout(pipelineFuture, Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+				"Timeout reached while waiting for the media pipeline of session '" + sessionId + "'");
+	}
+
+	/**
+	 * Starts getting the media pipeline of this session, from the pool of its KMS
+	 * or by creating a new one, if not started yet. Doesn't wait for KMS: the
+	 * pipeline is ready when {@link #getPipelineAsync()} completes
+	 */
+	public void createPipeline() {
 		synchronized (pipelineCreateLock) {
-			if (pipeline != null) {
+			if (pipelineCreationStarted) {
 				return;
 			}
-			log.info("SESSION {}: Creating MediaPipeline", sessionId);
-			try {
-				kurentoClient.createMediaPipeline(new Continuation<MediaPipeline>() {
-					@Override
-					public void onSuccess(MediaPipeline result) throws Exception {
-						pipeline = result;
-						pipelineLatch.countDown();
-						log.debug("SESSION {}: Created MediaPipeline", sessionId);
-					}
-
-					@Override
-					public void onError(Throwable cause) throws Exception {
-						pipelineLatch.countDown();
-						log.error("SESSION {}: Failed to create MediaPipeline", sessionId, cause);
-					}
-				});
-			} catch (Exception e) {
-				log.error("Unable to create media pipeline for session '{}'", sessionId, e);
-				pipelineLatch.countDown();
+			pipelineCreationStarted = true;
+			MediaPipeline pooledPipeline = pipelinePool != null ? pipelinePool.poll() : null;
+			if (pooledPipeline != null) {
+				log.info("SESSION {}: Using MediaPipeline from pool", sessionId);
+				pipeline = pooledPipeline;
+				pipelineFuture.complete(pooledPipeline);
+			} else {
+				log.info("SESSION {}: Creating MediaPipeline", sessionId);
+				createNewPipeline();
+			}
+			pipelineFuture.thenAccept(this::addPipelineErrorListener);
+		}
+	}
+
+	private void addPipelineErrorListener(MediaPipeline pipeline) {
+		pipeline.addErrorListener(new EventListener<ErrorEvent>() {
+			@Override
+			public void onEvent(ErrorEvent event) {
+				String desc = event.getType() + ": " + event.getDescription() + "(errCode=" + event.getErrorCode()
+						+ ")";
+				log.warn("SESSION {}: Pipeline error encountered: {}", sessionId, desc);
+				eventExecutor.execute(() -> kurentoSessionHandler.onPipelineError(sessionId, getParticipants(), desc));
+			}
+		}, new Continuation<ListenerSubscription>() {
+			@Override
+			public void onSuccess(ListenerSubscription result) throws Exception {
+				log.debug("SESSION {}: Subscribed to the errors of the MediaPipeline", sessionId);
 			}
-			if (getPipeline() == null) {
-				throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
-						"Unable to create media pipeline for session '" + sessionId + "'");
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				log.warn("SESSION {}: Could not subscribe to the errors of the MediaPipeline", sessionId, cause);
 			}
+		});
+	}
+
+	private void createNewPipeline() {
+		try {
+			kurentoClient.createMediaPipeline(new Continuation<MediaPipeline>() {
+				@Override
+				public void onSuccess(MediaPipeline result) throws Exception {
+					pipeline = result;
+					pipelineFuture.complete(result);
+					log.debug("SESSION {}: Created MediaPipeline", sessionId);
+				}
 
-			pipeline.addErrorListener(new EventListener<ErrorEvent>() {
 				@Override
-				public void onEvent(ErrorEvent event) {
-					String desc = event.getType() + ": " + event.getDescription() + "(errCode=" + event.getErrorCode()
-							+ ")";
-					log.warn("SESSION {}: Pipeline error encountered: {}", sessionId, desc);
-					kurentoSessionHandler.onPipelineError(sessionId, getParticipants(), desc);
+				public void onError(Throwable cause) throws Exception {
+					pipelineFuture.completeExceptionally(cause);
+					log.error("SESSION {}: Failed to create MediaPipeline", sessionId, cause);
 				}
 			});
+		} catch (Exception e) {
+			log.error("Unable to create media pipeline for session '{}'", sessionId, e);
+			pipelineFuture.completeExceptionally(e);
 		}
 	}
 
@@ -1,27 +1,121 @@
 package io.openvidu.server.kurento.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 
 import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.kurento.endpoint.EndpointEvent;
+import io.openvidu.server.rpc.RpcConnection;
 
 public class KurentoSessionEventsHandler extends SessionEventsHandler {
 
+	private static final Logger log = LoggerFactory.getLogger(KurentoSessionEventsHandler.class);
+
+	// Candidates not notified yet to the participants that receive them in
+	// batches, by participant private id and endpoint name
+	private final ConcurrentMap<String, List<IceCandidate>> pendingIceCandidates = new ConcurrentHashMap<>();
+	private ScheduledExecutorService iceCandidateScheduler;
+
+	private volatile Set<EndpointEvent> endpointEvents;
+
 	public KurentoSessionEventsHandler() {
 	}
 
+	@PreDestroy
+	public synchronized void close() {
+		if (iceCandidateScheduler != null) {
+			iceCandidateScheduler.shutdownNow();
+			iceCandidateScheduler = null;
+		}
+	}
+
+	/**
+	 * @return events of the endpoints to subscribe to while no info websocket is
+	 *         connected, as configured in openvidu.kms.endpoint-events
+	 */
+	public Set<EndpointEvent> getEndpointEvents() {
+		if (endpointEvents == null) {
+			endpointEvents = EndpointEvent.parse(openviduConfig != null ? openviduConfig.getKmsEndpointEvents() : null);
+		}
+		return endpointEvents;
+	}
+
 	public void onIceCandidate(String roomName, String participantId, String endpointName, IceCandidate candidate) {
+		long window = openviduConfig.getIceCandidateBatchWindow();
+		RpcConnection rpcConnection = rpcNotificationService.getRpcConnection(participantId);
+		if (window <= 0 || rpcConnection == null || !rpcConnection.isIceCandidateBatching()) {
+			JsonObject params = new JsonObject();
+			params.addProperty(ProtocolElements.ICECANDIDATE_EPNAME_PARAM, endpointName);
+			params.addProperty(ProtocolElements.ICECANDIDATE_SDPMLINEINDEX_PARAM, candidate.getSdpMLineIndex());
+			params.addProperty(ProtocolElements.ICECANDIDATE_SDPMID_PARAM, candidate.getSdpMid());
+			params.addProperty(ProtocolElements.ICECANDIDATE_CANDIDATE_PARAM, candidate.getCandidate());
+			rpcNotificationService.sendNotification(participantId, ProtocolElements.ICECANDIDATE_METHOD, params);
+			return;
+		}
+		// The first candidate of a batch schedules its notification
+		pendingIceCandidates.compute(participantId + "/" + endpointName, (key, batch) -> {
+			if (batch == null) {
+				batch = new ArrayList<>();
+				getIceCandidateScheduler().schedule(() -> sendIceCandidates(key, participantId, endpointName), window,
+						TimeUnit.MILLISECONDS);
+			}
+			batch.add(candidate);
+			return batch;
+		});
+	}
+
+	private void sendIceCandidates(String key, String participantId, String endpointName) {
+		List<IceCandidate> batch = pendingIceCandidates.remove(key);
+		if (batch == null) {
+			return;
+		}
+		RpcConnection rpcConnection = rpcNotificationService.getRpcConnection(participantId);
+		if (rpcConnection == null || rpcConnection.getSession() == null) {
+			// The participant left while its candidates were being gathered
+			log.debug("Discarding {} ICE candidates of endpoint {} for participant with private id {}: not connected",
+					batch.size(), endpointName, participantId);
+			return;
+		}
+		JsonArray candidates = new JsonArray();
+		for (IceCandidate candidate : batch) {
+			JsonObject c = new JsonObject();
+			c.addProperty(ProtocolElements.ICECANDIDATE_SDPMLINEINDEX_PARAM, candidate.getSdpMLineIndex());
+			c.addProperty(ProtocolElements.ICECANDIDATE_SDPMID_PARAM, candidate.getSdpMid());
+			c.addProperty(ProtocolElements.ICECANDIDATE_CANDIDATE_PARAM, candidate.getCandidate());
+			candidates.add(c);
+		}
 		JsonObject params = new JsonObject();
-		params.addProperty(ProtocolElements.ICECANDIDATE_EPNAME_PARAM, endpointName);
-		params.addProperty(ProtocolElements.ICECANDIDATE_SDPMLINEINDEX_PARAM, candidate.getSdpMLineIndex());
-		params.addProperty(ProtocolElements.ICECANDIDATE_SDPMID_PARAM, candidate.getSdpMid());
-		params.addProperty(ProtocolElements.ICECANDIDATE_CANDIDATE_PARAM, candidate.getCandidate());
-		rpcNotificationService.sendNotification(participantId, ProtocolElements.ICECANDIDATE_METHOD, params);
+		params.addProperty(ProtocolElements.ICECANDIDATES_EPNAME_PARAM, endpointName);
+		params.add(ProtocolElements.ICECANDIDATES_CANDIDATES_PARAM, candidates);
+		rpcNotificationService.sendNotification(participantId, ProtocolElements.ICECANDIDATES_METHOD, params);
+	}
+
+	private synchronized ScheduledExecutorService getIceCandidateScheduler() {
+		if (iceCandidateScheduler == null) {
+			iceCandidateScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "ice-candidate-notifications");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return iceCandidateScheduler;
 	}
 
 	public void onPipelineError(String roomName, Set<Participant> participants, String description) {
@@ -2,6 +2,12 @@ package io.openvidu.server.kurento.core;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import org.kurento.client.IceCandidate;
 import org.kurento.client.KurentoClient;
@@ -12,8 +18,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
@@ -23,10 +27,14 @@ import io.openvidu.java.client.RecordingMode;
 import io.openvidu.java.client.RecordingProperties;
 import io.openvidu.java.client.MediaMode;
 import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.InfoHandler;
+import io.openvidu.server.core.SessionEventsHandler.JoinNotifications;
 import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.core.Signal;
 import io.openvidu.server.kurento.KurentoClientProvider;
 import io.openvidu.server.kurento.KurentoClientSessionInfo;
 import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.endpoint.IceCandidateCoalescer;
 import io.openvidu.server.kurento.endpoint.SdpType;
 import io.openvidu.server.rpc.RpcHandler;
 import io.openvidu.server.core.MediaOptions;
@@ -43,21 +51,58 @@ public class KurentoSessionManager extends SessionManager {
 	@Autowired
 	private KurentoSessionEventsHandler kurentoSessionEventsHandler;
 
+	@Autowired
+	private IceCandidateCoalescer iceCandidateCoalescer;
+
+	// Runs the steps of publish and subscribe operations that still make
+	// synchronous calls to KMS, so threads serving client requests never wait for
+	// KMS and the number of threads doesn't grow with concurrent negotiations
+	private final ExecutorService kmsExecutor = newKmsExecutor();
+
+	@Override
+	public void init() {
+		super.init();
+		InfoHandler infoHandler = kurentoSessionEventsHandler.getInfoHandler();
+		if (infoHandler != null) {
+			infoHandler.addFirstConnectionListener(() -> kmsExecutor.execute(this::addAllEndpointListeners));
+		}
+	}
+
+	/**
+	 * Subscribes the endpoints of every session to all the events of KMS, so they
+	 * are reported to the info websocket just connected
+	 */
+	private void addAllEndpointListeners() {
+		for (Session session : sessions.values()) {
+			for (Participant participant : session.getParticipants()) {
+				try {
+					((KurentoParticipant) participant).addAllEndpointListeners();
+				} catch (Exception e) {
+					log.warn("PARTICIPANT {}: Error subscribing to the events of its endpoints",
+							participant.getParticipantPublicId(), e);
+				}
+			}
+		}
+	}
+
 	@Override
-	public synchronized void joinRoom(Participant participant, String sessionId, Integer transactionId) {
-		Set<Participant> existingParticipants = null;
+	public void joinRoom(Participant participant, String sessionId, Integer transactionId) {
+		KurentoSession session = null;
+		OpenViduException error = null;
+		Lock lock = sessionLocks.get(sessionId);
+		lock.lock();
 		try {
 
 			KurentoClientSessionInfo kcSessionInfo = new OpenViduKurentoClientSessionInfo(
 					participant.getParticipantPrivateId(), sessionId);
-			KurentoSession session = (KurentoSession) sessions.get(sessionId);
+			session = (KurentoSession) sessions.get(sessionId);
 
 			if (session == null && kcSessionInfo != null) {
 				SessionProperties properties = sessionProperties.get(sessionId);
 				if (properties == null && this.isInsecureParticipant(participant.getParticipantPrivateId())) {
 					properties = new SessionProperties.Builder().mediaMode(MediaMode.ROUTED)
 							.recordingMode(RecordingMode.ALWAYS).defaultRecordingLayout(RecordingLayout.BEST_FIT)
-							.build();
+							.subscriptionPolicy(openviduConfig.getSubscriptionPolicy()).build();
 				}
 				createSession(kcSessionInfo, properties);
 			}
@@ -67,22 +112,75 @@ public class KurentoSessionManager extends SessionManager {
 				throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId
 						+ "' was not found, must be created before '" + sessionId + "' can join");
 			}
-			if (session.isClosed()) {
-				log.warn("'{}' is trying to join session '{}' but it is closing", participant.getParticipantPublicId(),
-						sessionId);
-				throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "'" + participant.getParticipantPublicId()
-						+ "' is trying to join room '" + sessionId + "' but it is closing");
-			}
-			existingParticipants = getParticipants(sessionId);
-			session.join(participant);
+			checkNotClosing(participant, session);
+			session.createPipeline();
 
 		} catch (OpenViduException e) {
 			log.warn("PARTICIPANT {}: Error joining/creating session {}", participant.getParticipantPublicId(),
 					sessionId, e);
-			sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, e);
+			error = e;
+		} finally {
+			lock.unlock();
+		}
+
+		if (error != null) {
+			sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, error);
+			return;
+		}
+
+		// The participant is added when the pipeline of the session is ready,
+		// without blocking this thread (or the event loop of the session) while KMS
+		// creates it
+		KurentoSession joinedSession = session;
+		session.getPipelineAsync().whenCompleteAsync((pipeline, pipelineError) -> {
+			if (pipelineError != null) {
+				OpenViduException e = KurentoFutures.toOpenViduException(pipelineError,
+						Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+						"Unable to create media pipeline for session '" + sessionId + "'");
+				log.warn("PARTICIPANT {}: Error joining/creating session {}", participant.getParticipantPublicId(),
+						sessionId, e);
+				sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, e);
+			} else {
+				addParticipant(participant, joinedSession, transactionId);
+			}
+		}, getSessionExecutor(sessionId));
+	}
+
+	private void addParticipant(Participant participant, KurentoSession session, Integer transactionId) {
+		String sessionId = session.getSessionId();
+		JoinNotifications notifications = null;
+		OpenViduException error = null;
+		Lock lock = sessionLocks.get(sessionId);
+		lock.lock();
+		try {
+			checkNotClosing(participant, session);
+			Set<Participant> existingParticipants = getParticipants(sessionId);
+			session.join(participant);
+			participantprivateidSession.put(participant.getParticipantPrivateId(), session);
+			signalLimiter.addParticipant(sessionId, participant.getParticipantPrivateId());
+			notifications = sessionEventsHandler.prepareParticipantJoined(participant, existingParticipants);
+		} catch (OpenViduException e) {
+			log.warn("PARTICIPANT {}: Error joining session {}", participant.getParticipantPublicId(), sessionId, e);
+			error = e;
+		} finally {
+			lock.unlock();
 		}
-		if (existingParticipants != null) {
-			sessionEventsHandler.onParticipantJoined(participant, sessionId, existingParticipants, transactionId, null);
+
+		// Sent out of the lock: a slow websocket must not block the sessions sharing
+		// the same lock
+		if (error != null) {
+			sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, error);
+		} else {
+			sessionEventsHandler.sendParticipantJoined(participant, transactionId, notifications);
+		}
+	}
+
+	private void checkNotClosing(Participant participant, KurentoSession session) {
+		if (session.isClosed()) {
+			log.warn("'{}' is trying to join session '{}' but it is closing", participant.getParticipantPublicId(),
+					session.getSessionId());
+			throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "'" + participant.getParticipantPublicId()
+					+ "' is trying to join room '" + session.getSessionId() + "' but it is closing");
 		}
 	}
 
@@ -94,6 +192,24 @@ public class KurentoSessionManager extends SessionManager {
 		KurentoSession session = kParticipant.getSession();
 		String sessionId = session.getSessionId();
 
+		// Leaving and closing the session when empty must not interleave with a
+		// concurrent join to the same session
+		Lock lock = sessionLocks.get(sessionId);
+		lock.lock();
+		try {
+			this.leaveRoomLocked(participant, session, transactionId, reason);
+		} finally {
+			lock.unlock();
+		}
+
+		// Finally close websocket session
+		sessionEventsHandler.closeRpcSession(participant.getParticipantPrivateId());
+	}
+
+	private void leaveRoomLocked(Participant participant, KurentoSession session, Integer transactionId,
+			String reason) {
+		String sessionId = session.getSessionId();
+
 		if (session.isClosed()) {
 			log.warn("'{}' is trying to leave from session '{}' but it is closing",
 					participant.getParticipantPublicId(), sessionId);
@@ -104,20 +220,14 @@ public class KurentoSessionManager extends SessionManager {
 
 		// Update control data structures
 
+		participantprivateidSession.remove(participant.getParticipantPrivateId(), session);
+		signalLimiter.removeParticipant(participant.getParticipantPrivateId());
+
 		if (sessionidParticipantpublicidParticipant.get(sessionId) != null) {
 			Participant p = sessionidParticipantpublicidParticipant.get(sessionId)
 					.remove(participant.getParticipantPublicId());
-			if (sessionidTokenTokenobj.get(sessionId) != null) {
-				sessionidTokenTokenobj.get(sessionId).remove(p.getToken().getToken());
-			}
-			boolean stillParticipant = false;
-			for (Session s : sessions.values()) {
-				if (s.getParticipantByPrivateId(p.getParticipantPrivateId()) != null) {
-					stillParticipant = true;
-					break;
-				}
-			}
-			if (!stillParticipant) {
+			removeToken(sessionId, p.getToken().getToken());
+			if (!participantprivateidSession.containsKey(p.getParticipantPrivateId())) {
 				insecureUsers.remove(p.getParticipantPrivateId());
 			}
 		}
@@ -144,10 +254,11 @@ public class KurentoSessionManager extends SessionManager {
 				sessionEventsHandler.onSessionClosed(sessionId, "lastParticipantLeft");
 			}
 			sessions.remove(sessionId);
+			signalLimiter.removeSession(sessionId);
 
 			sessionProperties.remove(sessionId);
 			sessionidParticipantpublicidParticipant.remove(sessionId);
-			sessionidTokenTokenobj.remove(sessionId);
+			removeTokens(sessionId);
 
 			showTokens();
 
@@ -164,9 +275,6 @@ public class KurentoSessionManager extends SessionManager {
 			evictParticipant(session.getParticipantByPublicId(ProtocolElements.RECORDER_PARTICIPANT_PUBLICID)
 					.getParticipantPrivateId(), "EVICT_RECORDER");
 		}
-
-		// Finally close websocket session
-		sessionEventsHandler.closeRpcSession(participant.getParticipantPrivateId());
 	}
 
 	/**
@@ -197,9 +305,6 @@ public class KurentoSessionManager extends SessionManager {
 	public void publishVideo(Participant participant, MediaOptions mediaOptions, Integer transactionId)
 			throws OpenViduException {
 
-		Set<Participant> participants = null;
-		String sdpAnswer = null;
-
 		KurentoMediaOptions kurentoOptions = (KurentoMediaOptions) mediaOptions;
 		KurentoParticipant kurentoParticipant = (KurentoParticipant) participant;
 
@@ -213,21 +318,35 @@ public class KurentoSessionManager extends SessionManager {
 		SdpType sdpType = kurentoOptions.isOffer ? SdpType.OFFER : SdpType.ANSWER;
 		KurentoSession session = kurentoParticipant.getSession();
 
-		kurentoParticipant.createPublishingEndpoint(mediaOptions);
-
-		for (MediaElement elem : kurentoOptions.mediaElements) {
-			kurentoParticipant.getPublisher().apply(elem);
-		}
+		// The response is sent when KMS is done, without blocking this thread
+		kurentoParticipant.createPublishingEndpoint(mediaOptions, kmsExecutor).thenApplyAsync(publisher -> {
+			for (MediaElement elem : kurentoOptions.mediaElements) {
+				publisher.apply(elem);
+			}
+			return kurentoParticipant.publishToRoom(sdpType, kurentoOptions.sdpOffer, kurentoOptions.doLoopback,
+					kurentoOptions.loopbackAlternativeSrc, kurentoOptions.loopbackConnectionType);
+		}, kmsExecutor).whenCompleteAsync((sdpAnswer, error) -> {
+			if (error != null) {
+				OpenViduException e = KurentoFutures.toOpenViduException(error, Code.MEDIA_SDP_ERROR_CODE,
+						"Error publishing media of user " + participant.getParticipantPublicId());
+				log.error("PARTICIPANT {}: Error publishing media", participant.getParticipantPublicId(), e);
+				sessionEventsHandler.onPublishMedia(participant, session.getSessionId(), mediaOptions, null, null,
+						transactionId, e);
+			} else {
+				onMediaPublished(kurentoParticipant, session, kurentoOptions, sdpAnswer, transactionId);
+			}
+		}, getSessionExecutor(session.getSessionId()));
+	}
 
-		sdpAnswer = kurentoParticipant.publishToRoom(sdpType, kurentoOptions.sdpOffer, kurentoOptions.doLoopback,
-				kurentoOptions.loopbackAlternativeSrc, kurentoOptions.loopbackConnectionType);
+	private void onMediaPublished(KurentoParticipant kurentoParticipant, KurentoSession session,
+			KurentoMediaOptions kurentoOptions, String sdpAnswer, Integer transactionId) {
 
 		if (sdpAnswer == null) {
 			OpenViduException e = new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
-					"Error generating SDP response for publishing user " + participant.getParticipantPublicId());
-			log.error("PARTICIPANT {}: Error publishing media", participant.getParticipantPublicId(), e);
-			sessionEventsHandler.onPublishMedia(participant, session.getSessionId(), mediaOptions, sdpAnswer,
-					participants, transactionId, e);
+					"Error generating SDP response for publishing user " + kurentoParticipant.getParticipantPublicId());
+			log.error("PARTICIPANT {}: Error publishing media", kurentoParticipant.getParticipantPublicId(), e);
+			sessionEventsHandler.onPublishMedia(kurentoParticipant, session.getSessionId(), kurentoOptions, sdpAnswer,
+					null, transactionId, e);
 		}
 
 		if (this.openviduConfig.isRecordingModuleEnabled()
@@ -244,17 +363,17 @@ public class KurentoSessionManager extends SessionManager {
 			}).start();
 		}
 
-		session.newPublisher(participant);
+		session.newPublisher(kurentoParticipant);
 
 		kurentoParticipant.setAudioActive(kurentoOptions.audioActive);
 		kurentoParticipant.setVideoActive(kurentoOptions.videoActive);
 		kurentoParticipant.setTypeOfVideo(kurentoOptions.typeOfVideo);
 		kurentoParticipant.setFrameRate(kurentoOptions.frameRate);
 
-		participants = kurentoParticipant.getSession().getParticipants();
+		Set<Participant> participants = session.getParticipants();
 
 		if (sdpAnswer != null) {
-			sessionEventsHandler.onPublishMedia(participant, session.getSessionId(), mediaOptions, sdpAnswer,
+			sessionEventsHandler.onPublishMedia(kurentoParticipant, session.getSessionId(), kurentoOptions, sdpAnswer,
 					participants, transactionId, null);
 		}
 	}
@@ -285,7 +404,6 @@ public class KurentoSessionManager extends SessionManager {
 
 	@Override
 	public void subscribe(Participant participant, String senderName, String sdpOffer, Integer transactionId) {
-		String sdpAnswer = null;
 		Session session = null;
 		try {
 			log.debug("Request [SUBSCRIBE] remoteParticipant={} sdpOffer={} ({})", senderName, sdpOffer,
@@ -312,19 +430,31 @@ public class KurentoSessionManager extends SessionManager {
 						"User '" + senderName + " not streaming media in room '" + session.getSessionId() + "'");
 			}
 
-			sdpAnswer = kParticipant.receiveMediaFrom(senderParticipant, sdpOffer);
-			if (sdpAnswer == null) {
-				throw new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
-						"Unable to generate SDP answer when subscribing '" + participant.getParticipantPublicId()
-								+ "' to '" + senderName + "'");
-			}
+			final Session s = session;
+			// The response is sent when KMS is done, without blocking this thread
+			kParticipant.receiveMediaFrom(senderParticipant, sdpOffer, kmsExecutor).whenCompleteAsync((sdpAnswer,
+					error) -> {
+				OpenViduException e = null;
+				if (error != null) {
+					e = KurentoFutures.toOpenViduException(error, Code.MEDIA_SDP_ERROR_CODE,
+							"Unable to subscribe '" + participant.getParticipantPublicId() + "' to '" + senderName + "'");
+				} else if (sdpAnswer == null) {
+					e = new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
+							"Unable to generate SDP answer when subscribing '" + participant.getParticipantPublicId()
+									+ "' to '" + senderName + "'");
+				}
+				if (e != null) {
+					log.error("PARTICIPANT {}: Error subscribing to {}", participant.getParticipantPublicId(), senderName,
+							e);
+					sessionEventsHandler.onSubscribe(participant, s, senderName, null, transactionId, e);
+				} else {
+					sessionEventsHandler.onSubscribe(participant, s, senderName, sdpAnswer, transactionId, null);
+				}
+			}, getSessionExecutor(s.getSessionId()));
 		} catch (OpenViduException e) {
 			log.error("PARTICIPANT {}: Error subscribing to {}", participant.getParticipantPublicId(), senderName, e);
 			sessionEventsHandler.onSubscribe(participant, session, senderName, null, transactionId, e);
 		}
-		if (sdpAnswer != null) {
-			sessionEventsHandler.onSubscribe(participant, session, senderName, sdpAnswer, transactionId, null);
-		}
 	}
 
 	@Override
@@ -351,15 +481,11 @@ public class KurentoSessionManager extends SessionManager {
 
 	@Override
 	public void sendMessage(Participant participant, String message, Integer transactionId) {
-		try {
-			JsonObject messageJSON = new JsonParser().parse(message).getAsJsonObject();
-			KurentoParticipant kParticipant = (KurentoParticipant) participant;
-			sessionEventsHandler.onSendMessage(participant, messageJSON,
-					getParticipants(kParticipant.getSession().getSessionId()), transactionId, null);
-		} catch (JsonSyntaxException | IllegalStateException e) {
-			throw new OpenViduException(Code.SIGNAL_FORMAT_INVALID_ERROR_CODE,
-					"Provided signal object '" + message + "' has not a valid JSON format");
-		}
+		KurentoParticipant kParticipant = (KurentoParticipant) participant;
+		// Limits are checked before spending any time parsing the signal
+		signalLimiter.check(kParticipant.getSession().getSessionId(), participant.getParticipantPrivateId(), message);
+		Signal signal = Signal.parse(message);
+		sessionEventsHandler.onSendMessage(participant, signal, kParticipant.getSession(), transactionId, null);
 	}
 
 	@Override
@@ -398,12 +524,15 @@ public class KurentoSessionManager extends SessionManager {
 					"Session '" + sessionId + "' already exists");
 		}
 		KurentoClient kurentoClient = kcProvider.getKurentoClient(kcSessionInfo);
-		session = new KurentoSession(sessionId, sessionProperties, kurentoClient, kurentoSessionEventsHandler,
-				kcProvider.destroyWhenUnused(), this.CDR);
+		session = new KurentoSession(sessionId, sessionProperties, kurentoClient,
+				kcProvider.getPipelinePool(kurentoClient), kurentoSessionEventsHandler, kcProvider,
+				iceCandidateCoalescer, this.CDR);
+		session.setEventExecutor(getSessionExecutor(sessionId));
 
 		KurentoSession oldSession = (KurentoSession) sessions.putIfAbsent(sessionId, session);
 		if (oldSession != null) {
 			log.warn("Session '{}' has just been created by another thread", sessionId);
+			kcProvider.releaseKurentoClient(kurentoClient);
 			return;
 		}
 		String kcName = "[NAME NOT AVAILABLE]";
@@ -429,6 +558,22 @@ public class KurentoSessionManager extends SessionManager {
 		sessionEventsHandler.onParticipantEvicted(participant);
 	}
 
+	@Override
+	public void close() {
+		super.close();
+		kmsExecutor.shutdown();
+	}
+
+	private static ExecutorService newKmsExecutor() {
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+		AtomicInteger count = new AtomicInteger(0);
+		return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "kms-negotiation-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
 	@Override
 	public MediaOptions generateMediaOptions(Request<JsonObject> request) {
 
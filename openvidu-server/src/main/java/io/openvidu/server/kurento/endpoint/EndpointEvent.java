@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.endpoint;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Events of the internal {@link org.kurento.client.WebRtcEndpoint} that can be
+ * subscribed to. Every subscription is a request to KMS, and none of these
+ * events is needed for the media to flow: they are only reported to the logs
+ * and to the info websocket.
+ */
+public enum EndpointEvent {
+
+  ERROR, MEDIA_FLOW_IN, MEDIA_FLOW_OUT, MEDIA_SESSION_STARTED, MEDIA_SESSION_TERMINATED, MEDIA_STATE,
+  CONNECTION_STATE, ICE_CANDIDATE_FOUND, ICE_COMPONENT_STATE, ICE_GATHERING_DONE;
+
+  /**
+   * @param events
+   *          comma separated names of events, or ALL
+   * @return the events in <code>events</code>, which may be empty
+   * @throws IllegalArgumentException
+   *           if an event doesn't exist
+   */
+  public static Set<EndpointEvent> parse(String events) {
+    Set<EndpointEvent> result = EnumSet.noneOf(EndpointEvent.class);
+    if (events == null) {
+      return Collections.unmodifiableSet(result);
+    }
+    for (String name : events.split(",")) {
+      name = name.trim().toUpperCase();
+      if ("ALL".equals(name)) {
+        result.addAll(EnumSet.allOf(EndpointEvent.class));
+      } else if (!name.isEmpty()) {
+        result.add(EndpointEvent.valueOf(name));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.endpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lock-free queue of the remote {@link IceCandidate}s of one endpoint. The
+ * candidates are held until the endpoint is ready and then handed to the sender
+ * in batches: every candidate queued while a flush is pending is sent along
+ * with it.
+ */
+public class IceCandidateBuffer {
+
+  private static final Logger log = LoggerFactory.getLogger(IceCandidateBuffer.class);
+
+  private final ConcurrentLinkedQueue<IceCandidate> candidates = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushPending = new AtomicBoolean(false);
+  private volatile boolean ready = false;
+
+  private final IceCandidateCoalescer coalescer;
+  private final Consumer<List<IceCandidate>> sender;
+
+  /**
+   * @param coalescer
+   *          decides when the queued candidates are sent. If null, they are sent
+   *          as soon as they are added
+   * @param sender
+   *          sends a batch of candidates to KMS
+   */
+  public IceCandidateBuffer(IceCandidateCoalescer coalescer, Consumer<List<IceCandidate>> sender) {
+    this.coalescer = coalescer;
+    this.sender = sender;
+  }
+
+  public void add(IceCandidate candidate) {
+    candidates.add(candidate);
+    if (ready) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Marks the endpoint as ready and sends the candidates queued until now
+   */
+  public void ready() {
+    ready = true;
+    flush();
+  }
+
+  public int size() {
+    return candidates.size();
+  }
+
+  private void scheduleFlush() {
+    if (flushPending.compareAndSet(false, true)) {
+      if (coalescer != null) {
+        coalescer.schedule(this::flush);
+      } else {
+        flush();
+      }
+    }
+  }
+
+  private void flush() {
+    // Candidates added from now on schedule another flush
+    flushPending.set(false);
+    List<IceCandidate> batch = new ArrayList<>();
+    IceCandidate candidate;
+    while ((candidate = candidates.poll()) != null) {
+      batch.add(candidate);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (coalescer != null) {
+      coalescer.recordRequest(batch);
+    }
+    try {
+      sender.accept(batch);
+    } catch (Exception e) {
+      log.warn("Error sending {} ICE candidates to KMS", batch.size(), e);
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.endpoint;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import io.openvidu.server.config.OpenviduConfig;
+
+/**
+ * Delays the forwarding of the remote {@link IceCandidate}s of each endpoint
+ * for a short window, so all the candidates received for the same endpoint in
+ * that window are sent to KMS in a single request (see
+ * {@link IceCandidateBuffer}). With a window of 0 candidates are forwarded as
+ * soon as they are received.
+ */
+public class IceCandidateCoalescer {
+
+  private static final Logger log = LoggerFactory.getLogger(IceCandidateCoalescer.class);
+
+  @Autowired
+  private OpenviduConfig openviduConfig;
+
+  private volatile long windowMillis = 0;
+  private ScheduledExecutorService scheduler;
+
+  private final AtomicLong candidates = new AtomicLong(0);
+  private final AtomicLong kmsRequests = new AtomicLong(0);
+
+  @PostConstruct
+  public void init() {
+    start(openviduConfig.getKmsIceCandidateWindow());
+  }
+
+  @PreDestroy
+  public void close() {
+    stop();
+  }
+
+  public synchronized void start(long windowMillis) {
+    this.windowMillis = windowMillis;
+    if (windowMillis > 0 && scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ice-candidate-coalescer");
+        t.setDaemon(true);
+        return t;
+      });
+      log.info("Coalescing ICE candidates sent to KMS every {} ms", windowMillis);
+    }
+  }
+
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    log.info("ICE candidates: {} forwarded to KMS in {} requests", getCandidates(), getKmsRequests());
+  }
+
+  /**
+   * Runs <code>flush</code> once the window has elapsed, or right now if there is
+   * no window
+   */
+  void schedule(Runnable flush) {
+    ScheduledExecutorService scheduler = this.scheduler;
+    if (scheduler != null) {
+      scheduler.schedule(flush, windowMillis, TimeUnit.MILLISECONDS);
+    } else {
+      flush.run();
+    }
+  }
+
+  void recordRequest(List<IceCandidate> batch) {
+    candidates.addAndGet(batch.size());
+    kmsRequests.incrementAndGet();
+  }
+
+  /**
+   * @return number of remote candidates forwarded to KMS
+   */
+  public long getCandidates() {
+    return candidates.get();
+  }
+
+  /**
+   * @return number of requests sent to KMS to forward them
+   */
+  public long getKmsRequests() {
+    return kmsRequests.get();
+  }
+
+  /**
+   * @return number of requests that would have been sent without coalescing
+   *         candidates but were not
+   */
+  public long getSavedRequests() {
+    return candidates.get() - kmsRequests.get();
+  }
+
+}
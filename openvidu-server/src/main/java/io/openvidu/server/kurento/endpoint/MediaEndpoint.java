@@ -16,10 +16,12 @@
 
 package io.openvidu.server.kurento.endpoint;
 
-import java.util.LinkedList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.ErrorEvent;
@@ -32,6 +34,7 @@ import org.kurento.client.MediaPipeline;
 import org.kurento.client.OnIceCandidateEvent;
 import org.kurento.client.RtpEndpoint;
 import org.kurento.client.SdpEndpoint;
+import org.kurento.client.Transaction;
 import org.kurento.client.WebRtcEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,7 +57,7 @@ public abstract class MediaEndpoint {
 
   private boolean web = false;
 
-  private WebRtcEndpoint webEndpoint = null;
+  private volatile WebRtcEndpoint webEndpoint = null;
   private RtpEndpoint endpoint = null;
 
   private KurentoParticipant owner;
@@ -63,9 +66,14 @@ public abstract class MediaEndpoint {
   private MediaPipeline pipeline = null;
   private ListenerSubscription endpointSubscription = null;
 
-  private LinkedList<IceCandidate> candidates = new LinkedList<IceCandidate>();
+  private CompletableFuture<SdpEndpoint> endpointFuture = null;
+
+  private final IceCandidateBuffer candidates;
 
   private MutedMediaType muteType;
+
+  private volatile String nameTag;
+  private final Set<EndpointEvent> subscribedEvents = EnumSet.noneOf(EndpointEvent.class);
   
   public Map<String, MediaObject> flowInMedia = new ConcurrentHashMap<>();
   public Map<String, MediaObject> flowOutMedia = new ConcurrentHashMap<>();
@@ -90,6 +98,9 @@ public abstract class MediaEndpoint {
     this.owner = owner;
     this.setEndpointName(endpointName);
     this.setMediaPipeline(pipeline);
+    this.candidates = new IceCandidateBuffer(
+        owner != null ? owner.getSession().getIceCandidateCoalescer() : null,
+        this::internalAddIceCandidates);
   }
 
   public boolean isWeb() {
@@ -114,6 +125,35 @@ public abstract class MediaEndpoint {
     }
   }
 
+  /**
+   * Tags the internal endpoint with <code>name</code>. The name is also kept in this object, so
+   * reading it doesn't take a request to KMS
+   */
+  public void setNameTag(String name) {
+    this.nameTag = name;
+    getEndpoint().addTag("name", name);
+  }
+
+  public String getNameTag() {
+    return nameTag;
+  }
+
+  /**
+   * Marks the <code>events</code> of the internal endpoint as subscribed
+   *
+   * @return the events of <code>events</code> that weren't already subscribed, which the caller
+   *         must subscribe to
+   */
+  public synchronized Set<EndpointEvent> newEventSubscriptions(Set<EndpointEvent> events) {
+    Set<EndpointEvent> newEvents = EnumSet.noneOf(EndpointEvent.class);
+    for (EndpointEvent event : events) {
+      if (subscribedEvents.add(event)) {
+        newEvents.add(event);
+      }
+    }
+    return newEvents;
+  }
+
   public WebRtcEndpoint getWebEndpoint() {
     return webEndpoint;
   }
@@ -123,29 +163,34 @@ public abstract class MediaEndpoint {
   }
 
   /**
-   * If this object doesn't have a {@link WebRtcEndpoint}, it is created in a thread-safe way using
-   * the internal {@link MediaPipeline}. Otherwise no actions are taken. It also registers an error
-   * listener for the endpoint and for any additional media elements.
-   *
-   * @param endpointLatch
-   *          latch whose countdown is performed when the asynchronous call to build the
-   *          {@link WebRtcEndpoint} returns
+   * If this object doesn't have a {@link WebRtcEndpoint}, it is asynchronously created in a
+   * thread-safe way using the internal {@link MediaPipeline}. Otherwise no actions are taken. It
+   * also registers an error listener for the endpoint and for any additional media elements. The
+   * {@link IceCandidate}s buffered until then are added to the endpoint as soon as it is created.
    *
-   * @return the existing endpoint, if any
+   * @return future completed with the internal endpoint when KMS has created it (or exceptionally
+   *         if it couldn't be created). All the calls return the same future
    */
-  public synchronized SdpEndpoint createEndpoint(CountDownLatch endpointLatch) {
-    SdpEndpoint old = this.getEndpoint();
-    if (old == null) {
-      internalEndpointInitialization(endpointLatch);
-    } else {
-      endpointLatch.countDown();
-    }
-    if (this.isWeb()) {
-      while (!candidates.isEmpty()) {
-        internalAddIceCandidate(candidates.removeFirst());
-      }
+  public synchronized CompletableFuture<SdpEndpoint> createEndpoint() {
+    if (endpointFuture == null) {
+      CompletableFuture<SdpEndpoint> created = new CompletableFuture<>();
+      endpointFuture = created.thenApply(endpoint -> {
+        if (this.isWeb()) {
+          candidates.ready();
+        }
+        return endpoint;
+      });
+      internalEndpointInitialization(created);
     }
-    return old;
+    return endpointFuture;
+  }
+
+  /**
+   * @return the future returned by {@link #createEndpoint()}, or null if the creation of the
+   *         internal endpoint hasn't been requested yet
+   */
+  public synchronized CompletableFuture<SdpEndpoint> getEndpointFuture() {
+    return endpointFuture;
   }
 
   /**
@@ -236,70 +281,74 @@ public abstract class MediaEndpoint {
   /**
    * Creates the endpoint (RTP or WebRTC) and any other additional elements (if needed).
    *
-   * @param endpointLatch
+   * @param endpointFuture
+   *          future to complete when the endpoint has been created
    */
-  protected void internalEndpointInitialization(final CountDownLatch endpointLatch) {
-    if (this.isWeb()) {
-      WebRtcEndpoint.Builder builder = new WebRtcEndpoint.Builder(pipeline);
-      /*if (this.dataChannels) {
-        builder.useDataChannels();
-      }*/
-      builder.buildAsync(new Continuation<WebRtcEndpoint>() {
-        @Override
-        public void onSuccess(WebRtcEndpoint result) throws Exception {
-          webEndpoint = result;
-
-          webEndpoint.setMaxVideoRecvBandwidth(600);
-          webEndpoint.setMinVideoRecvBandwidth(300);
-          webEndpoint.setMaxVideoSendBandwidth(600);
-          webEndpoint.setMinVideoSendBandwidth(300);
-
-          endpointLatch.countDown();
-          log.trace("EP {}: Created a new WebRtcEndpoint", endpointName);
-          endpointSubscription = registerElemErrListener(webEndpoint);
-        }
+  protected void internalEndpointInitialization(final CompletableFuture<SdpEndpoint> endpointFuture) {
+    try {
+      if (this.isWeb()) {
+        WebRtcEndpoint.Builder builder = new WebRtcEndpoint.Builder(pipeline);
+        /*if (this.dataChannels) {
+          builder.useDataChannels();
+        }*/
+        builder.buildAsync(new Continuation<WebRtcEndpoint>() {
+          @Override
+          public void onSuccess(WebRtcEndpoint result) throws Exception {
+            webEndpoint = result;
+
+            webEndpoint.setMaxVideoRecvBandwidth(600);
+            webEndpoint.setMinVideoRecvBandwidth(300);
+            webEndpoint.setMaxVideoSendBandwidth(600);
+            webEndpoint.setMinVideoSendBandwidth(300);
+
+            log.trace("EP {}: Created a new WebRtcEndpoint", endpointName);
+            endpointSubscription = registerElemErrListener(webEndpoint);
+            endpointFuture.complete(webEndpoint);
+          }
 
-        @Override
-        public void onError(Throwable cause) throws Exception {
-          endpointLatch.countDown();
-          log.error("EP {}: Failed to create a new WebRtcEndpoint", endpointName, cause);
-        }
-      });
-    } else {
-      new RtpEndpoint.Builder(pipeline).buildAsync(new Continuation<RtpEndpoint>() {
-        @Override
-        public void onSuccess(RtpEndpoint result) throws Exception {
-          endpoint = result;
-          endpointLatch.countDown();
-          log.trace("EP {}: Created a new RtpEndpoint", endpointName);
-          endpointSubscription = registerElemErrListener(endpoint);
-        }
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            log.error("EP {}: Failed to create a new WebRtcEndpoint", endpointName, cause);
+            endpointFuture.completeExceptionally(cause);
+          }
+        });
+      } else {
+        new RtpEndpoint.Builder(pipeline).buildAsync(new Continuation<RtpEndpoint>() {
+          @Override
+          public void onSuccess(RtpEndpoint result) throws Exception {
+            endpoint = result;
+            log.trace("EP {}: Created a new RtpEndpoint", endpointName);
+            endpointSubscription = registerElemErrListener(endpoint);
+            endpointFuture.complete(endpoint);
+          }
 
-        @Override
-        public void onError(Throwable cause) throws Exception {
-          endpointLatch.countDown();
-          log.error("EP {}: Failed to create a new RtpEndpoint", endpointName, cause);
-        }
-      });
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            log.error("EP {}: Failed to create a new RtpEndpoint", endpointName, cause);
+            endpointFuture.completeExceptionally(cause);
+          }
+        });
+      }
+    } catch (Exception e) {
+      log.error("EP {}: Unable to request the creation of the endpoint", endpointName, e);
+      endpointFuture.completeExceptionally(e);
     }
   }
 
   /**
    * Add a new {@link IceCandidate} received gathered by the remote peer of this
-   * {@link WebRtcEndpoint}.
+   * {@link WebRtcEndpoint}. Candidates are buffered until the {@link WebRtcEndpoint} is created,
+   * and then coalesced with the ones received for this endpoint in the same window (see
+   * {@link IceCandidateCoalescer}).
    *
    * @param candidate
    *          the remote candidate
    */
-  public synchronized void addIceCandidate(IceCandidate candidate) throws OpenViduException {
+  public void addIceCandidate(IceCandidate candidate) throws OpenViduException {
     if (!this.isWeb()) {
       throw new OpenViduException(Code.MEDIA_NOT_A_WEB_ENDPOINT_ERROR_CODE, "Operation not supported");
     }
-    if (webEndpoint == null) {
-      candidates.addLast(candidate);
-    } else {
-      internalAddIceCandidate(candidate);
-    }
+    candidates.add(candidate);
   }
 
   /**
@@ -459,6 +508,37 @@ public abstract class MediaEndpoint {
     });
   }
 
+  /**
+   * Adds all the candidates of <code>batch</code> to the internal endpoint in a single
+   * {@link Transaction}, so they only take one request to KMS
+   */
+  private void internalAddIceCandidates(List<IceCandidate> batch) throws OpenViduException {
+    if (batch.size() == 1) {
+      internalAddIceCandidate(batch.get(0));
+      return;
+    }
+    if (webEndpoint == null) {
+      throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
+          "Can't add existing ICE candidates to null WebRtcEndpoint (ep: " + endpointName + ")");
+    }
+    Transaction tx = pipeline.beginTransaction();
+    for (IceCandidate candidate : batch) {
+      this.webEndpoint.addIceCandidate(tx, candidate);
+    }
+    tx.commit(new Continuation<Void>() {
+      @Override
+      public void onSuccess(Void result) throws Exception {
+        log.trace("{} ice candidates added to the internal endpoint", batch.size());
+      }
+
+      @Override
+      public void onError(Throwable cause) throws Exception {
+        log.warn("EP {}: Failed to add {} ice candidates to the internal endpoint", endpointName,
+            batch.size(), cause);
+      }
+    });
+  }
+
   private void internalAddIceCandidate(IceCandidate candidate) throws OpenViduException {
     if (webEndpoint == null) {
       throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
@@ -20,7 +20,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.ListenerSubscription;
@@ -28,6 +28,7 @@ import org.kurento.client.MediaElement;
 import org.kurento.client.MediaPipeline;
 import org.kurento.client.MediaType;
 import org.kurento.client.PassThrough;
+import org.kurento.client.SdpEndpoint;
 import org.kurento.client.WebRtcEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,10 +62,39 @@ public class PublisherEndpoint extends MediaEndpoint {
   }
 
   @Override
-  protected void internalEndpointInitialization(final CountDownLatch endpointLatch) {
-    super.internalEndpointInitialization(endpointLatch);
-    passThru = new PassThrough.Builder(getPipeline()).build();
-    passThruSubscription = registerElemErrListener(passThru);
+  protected void internalEndpointInitialization(final CompletableFuture<SdpEndpoint> endpointFuture) {
+    // The WebRtcEndpoint and the PassThrough are created in parallel
+    CompletableFuture<SdpEndpoint> mainEndpointFuture = new CompletableFuture<>();
+    super.internalEndpointInitialization(mainEndpointFuture);
+
+    CompletableFuture<PassThrough> passThruFuture = new CompletableFuture<>();
+    try {
+      new PassThrough.Builder(getPipeline()).buildAsync(new Continuation<PassThrough>() {
+        @Override
+        public void onSuccess(PassThrough result) throws Exception {
+          passThru = result;
+          passThruSubscription = registerElemErrListener(passThru);
+          passThruFuture.complete(result);
+        }
+
+        @Override
+        public void onError(Throwable cause) throws Exception {
+          log.error("EP {}: Failed to create a new PassThrough", getEndpointName(), cause);
+          passThruFuture.completeExceptionally(cause);
+        }
+      });
+    } catch (Exception e) {
+      passThruFuture.completeExceptionally(e);
+    }
+
+    mainEndpointFuture.thenCombine(passThruFuture, (endpoint, passThrough) -> endpoint)
+        .whenComplete((endpoint, error) -> {
+          if (error != null) {
+            endpointFuture.completeExceptionally(error);
+          } else {
+            endpointFuture.complete(endpoint);
+          }
+        });
   }
 
   @Override
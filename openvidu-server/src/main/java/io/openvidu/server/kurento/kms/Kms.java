@@ -24,22 +24,83 @@ public class Kms {
   private LoadManager loadManager = new MaxWebRtcLoadManager(10000);
   private KurentoClient client;
   private String kmsUri;
+  private MediaPipelinePool pipelinePool;
+  private KmsCircuitBreaker circuitBreaker;
+
+  // Last load figures sampled by the load manager. Written by a single
+  // sampling thread and read without locking when choosing a KMS
+  private volatile int pipelineCount = 0;
+  private volatile int elementCount = 0;
+  private volatile double sampledLoad = 0;
+  private volatile long loadSampleTime = 0;
+  private volatile long elementSampleTime = 0;
+  // Latency of the health probe reported by the load manager in the current
+  // sample, or -1 if it reported none
+  private volatile long probeLatency = -1;
 
   public Kms(KurentoClient client, String kmsUri) {
     this.client = client;
     this.kmsUri = kmsUri;
+    this.circuitBreaker = new KmsCircuitBreaker(kmsUri);
   }
 
   public void setLoadManager(LoadManager loadManager) {
     this.loadManager = loadManager;
   }
 
+  public void setCircuitBreaker(KmsCircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public KmsCircuitBreaker getCircuitBreaker() {
+    return this.circuitBreaker;
+  }
+
+  /**
+   * Refreshes the load figures of this KMS with a query to the media server.
+   * The query also probes the health of the KMS: its latency is the one of the
+   * whole sample, unless the load manager reports the one of a cheaper query
+   * with {@link #reportProbeLatency(long)}
+   */
+  public void sampleLoad() {
+    circuitBreaker.requestStarted();
+    this.probeLatency = -1;
+    long start = System.currentTimeMillis();
+    try {
+      loadManager.sampleLoad(this);
+    } catch (RuntimeException e) {
+      circuitBreaker.recordFailure(System.currentTimeMillis() - start);
+      throw e;
+    }
+    long latency = this.probeLatency;
+    circuitBreaker.recordSuccess(latency >= 0 ? latency : System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Called by load managers whose samples wait on purpose or make many queries,
+   * with the latency in milliseconds of a single cheap query of the sample. The
+   * health of this KMS is judged by that latency instead of the one of the
+   * whole sample, and the rest of the sample may take longer than the max
+   * latency without the KMS being considered hung
+   */
+  public void reportProbeLatency(long probeLatency) {
+    this.probeLatency = probeLatency;
+    circuitBreaker.requestAnswered();
+  }
+
+  /**
+   * @return false if the KMS is failing or too slow to host new sessions
+   */
+  public boolean isAvailable() {
+    return circuitBreaker.isClosed();
+  }
+
   public double getLoad() {
     return loadManager.calculateLoad(this);
   }
 
   public boolean allowMoreElements() {
-    return loadManager.allowMoreElements(this);
+    return isAvailable() && loadManager.allowMoreElements(this);
   }
 
   public String getUri() {
@@ -49,4 +110,92 @@ public class Kms {
   public KurentoClient getKurentoClient() {
     return this.client;
   }
+
+  /**
+   * Starts keeping <code>size</code> idle pipelines ready in this KMS
+   */
+  public synchronized void startPipelinePool(int size, long maxIdleTime, long evictionInterval) {
+    if (this.pipelinePool == null) {
+      this.pipelinePool = new MediaPipelinePool(client, kmsUri, size, maxIdleTime, evictionInterval);
+    }
+  }
+
+  public synchronized void closePipelinePool() {
+    if (this.pipelinePool != null) {
+      this.pipelinePool.close();
+      this.pipelinePool = null;
+    }
+  }
+
+  /**
+   * @return the pipeline pool of this KMS or null if pooling is disabled
+   */
+  public MediaPipelinePool getPipelinePool() {
+    return this.pipelinePool;
+  }
+
+  /**
+   * @return the number of pipelines created in this KMS that are waiting in the
+   *         pool and not used by any session
+   */
+  public int getIdlePipelines() {
+    MediaPipelinePool pool = this.pipelinePool;
+    return pool != null ? pool.getIdleCount() : 0;
+  }
+
+  public void updatePipelineCount(int pipelineCount) {
+    this.pipelineCount = pipelineCount;
+    this.loadSampleTime = System.currentTimeMillis();
+  }
+
+  /**
+   * @return the number of pipelines in this KMS when its load was last sampled
+   */
+  public int getPipelineCount() {
+    return this.pipelineCount;
+  }
+
+  /**
+   * @return time in milliseconds of the last load sample, or 0 if never sampled
+   */
+  public long getLoadSampleTime() {
+    return this.loadSampleTime;
+  }
+
+  public void updateElementCount(int elementCount) {
+    this.elementCount = elementCount;
+  }
+
+  /**
+   * @return the number of media elements in this KMS when its load was last
+   *         sampled, if the load manager counts them
+   */
+  public int getElementCount() {
+    return this.elementCount;
+  }
+
+  public void updateElementSampleTime(long elementSampleTime) {
+    this.elementSampleTime = elementSampleTime;
+  }
+
+  /**
+   * @return time in milliseconds the media elements of this KMS were last
+   *         counted, or 0 if never counted
+   */
+  public long getElementSampleTime() {
+    return this.elementSampleTime;
+  }
+
+  public void updateSampledLoad(double sampledLoad) {
+    this.sampledLoad = sampledLoad;
+    this.loadSampleTime = System.currentTimeMillis();
+  }
+
+  /**
+   * @return the load score computed by the load manager in the last sample, if
+   *         the load manager computes one
+   */
+  public double getSampledLoad() {
+    return this.sampledLoad;
+  }
 }
@@ -0,0 +1,225 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the latency and the errors of the last requests made to one KMS.
+ * When too many of them fail, or they take too long on average, the circuit
+ * is opened and the KMS is not chosen for new sessions. After the open time
+ * the circuit is half-open: requests (probes) are still made to the KMS, and
+ * once enough of them in a row succeed the KMS is admitted again. A request
+ * that doesn't complete in the max latency opens the circuit by itself, so a
+ * hung KMS is detected before its request times out.
+ */
+public class KmsCircuitBreaker {
+
+  private static final Logger log = LoggerFactory.getLogger(KmsCircuitBreaker.class);
+
+  public static final int DEFAULT_WINDOW_SIZE = 20;
+  public static final double DEFAULT_MAX_ERROR_RATE = 0.5;
+  public static final long DEFAULT_MAX_LATENCY = 5000;
+  public static final long DEFAULT_OPEN_TIME = 10000;
+  public static final int DEFAULT_PROBES_TO_CLOSE = 3;
+
+  // Requests needed in the window before evaluating the error rate
+  private static final int MIN_REQUESTS = 5;
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String kmsUri;
+  private final int windowSize;
+  private final double maxErrorRate;
+  private final long maxLatency;
+  private final long openTime;
+  private final int probesToClose;
+
+  // Circular window with the outcome of the last requests
+  private final boolean[] failures;
+  private final long[] latencies;
+  private int requests = 0;
+  private int next = 0;
+
+  private volatile State state = State.CLOSED;
+  private long openedAt = 0;
+  private int successfulProbes = 0;
+  private long opened = 0;
+
+  private volatile long requestStartTime = 0;
+
+  public KmsCircuitBreaker(String kmsUri) {
+    this(kmsUri, DEFAULT_WINDOW_SIZE, DEFAULT_MAX_ERROR_RATE, DEFAULT_MAX_LATENCY, DEFAULT_OPEN_TIME,
+        DEFAULT_PROBES_TO_CLOSE);
+  }
+
+  /**
+   * @param kmsUri
+   *          URI of the KMS (only used for logging)
+   * @param windowSize
+   *          number of last requests used to calculate error rate and latency
+   * @param maxErrorRate
+   *          ratio of failed requests in the window that opens the circuit
+   * @param maxLatency
+   *          average latency in milliseconds that opens the circuit
+   * @param openTime
+   *          milliseconds the circuit stays open before probing the KMS
+   * @param probesToClose
+   *          successful probes in a row needed to close the circuit again
+   */
+  public KmsCircuitBreaker(String kmsUri, int windowSize, double maxErrorRate, long maxLatency,
+      long openTime, int probesToClose) {
+    this.kmsUri = kmsUri;
+    this.windowSize = Math.max(1, windowSize);
+    this.maxErrorRate = maxErrorRate;
+    this.maxLatency = maxLatency;
+    this.openTime = openTime;
+    this.probesToClose = Math.max(1, probesToClose);
+    this.failures = new boolean[this.windowSize];
+    this.latencies = new long[this.windowSize];
+  }
+
+  /**
+   * Must be called before each request made to the KMS
+   */
+  public void requestStarted() {
+    requestStartTime = System.currentTimeMillis();
+  }
+
+  /**
+   * The KMS answered the pending request, so it is not hung, but its outcome
+   * will be recorded later
+   */
+  public void requestAnswered() {
+    requestStartTime = 0;
+  }
+
+  public synchronized void recordSuccess(long latency) {
+    requestStartTime = 0;
+    switch (updateState()) {
+      case CLOSED:
+        record(false, latency);
+        break;
+      case HALF_OPEN:
+        if (latency > maxLatency) {
+          open("probe took " + latency + " ms");
+        } else if (++successfulProbes >= probesToClose) {
+          close();
+        }
+        break;
+      case OPEN:
+        break;
+    }
+  }
+
+  public synchronized void recordFailure(long latency) {
+    requestStartTime = 0;
+    switch (updateState()) {
+      case CLOSED:
+        record(true, latency);
+        break;
+      case HALF_OPEN:
+        open("probe failed");
+        break;
+      case OPEN:
+        break;
+    }
+  }
+
+  /**
+   * @return true if new sessions can be placed in the KMS
+   */
+  public boolean isClosed() {
+    if (state != State.CLOSED) {
+      return false;
+    }
+    long start = requestStartTime;
+    if (start > 0 && System.currentTimeMillis() - start > maxLatency) {
+      synchronized (this) {
+        if (state == State.CLOSED && requestStartTime > 0) {
+          open("request pending for more than " + maxLatency + " ms");
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+
+  public synchronized State getState() {
+    return updateState();
+  }
+
+  /**
+   * @return number of times the circuit has been opened
+   */
+  public synchronized long getOpenCount() {
+    return opened;
+  }
+
+  private void record(boolean failure, long latency) {
+    failures[next] = failure;
+    latencies[next] = latency;
+    next = (next + 1) % windowSize;
+    requests = Math.min(requests + 1, windowSize);
+
+    int failed = 0;
+    long totalLatency = 0;
+    for (int i = 0; i < requests; i++) {
+      if (failures[i]) {
+        failed++;
+      }
+      totalLatency += latencies[i];
+    }
+    if (requests >= Math.min(MIN_REQUESTS, windowSize)) {
+      double errorRate = failed / (double) requests;
+      long averageLatency = totalLatency / requests;
+      if (errorRate >= maxErrorRate) {
+        open("error rate " + errorRate);
+      } else if (averageLatency > maxLatency) {
+        open("average latency " + averageLatency + " ms");
+      }
+    }
+  }
+
+  private State updateState() {
+    if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openTime) {
+      state = State.HALF_OPEN;
+      successfulProbes = 0;
+      log.info("KMS {}: circuit half-open, probing", kmsUri);
+    }
+    return state;
+  }
+
+  private void open(String reason) {
+    state = State.OPEN;
+    openedAt = System.currentTimeMillis();
+    opened++;
+    log.warn("KMS {}: circuit opened ({}). No new sessions will be placed in it", kmsUri, reason);
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    requests = 0;
+    next = 0;
+    log.info("KMS {}: circuit closed after {} successful probes. Admitted again", kmsUri,
+        successfulProbes);
+  }
+}
@@ -18,15 +18,24 @@ package io.openvidu.server.kurento.kms;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.kurento.client.KurentoClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.kurento.KurentoClientProvider;
 import io.openvidu.server.kurento.KurentoClientSessionInfo;
 import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
@@ -59,8 +68,13 @@ public abstract class KmsManager implements KurentoClientProvider {
 
   private final Logger log = LoggerFactory.getLogger(KmsManager.class);
 
-  private List<Kms> kmss = new ArrayList<Kms>();
-  private Iterator<Kms> usageIterator = null;
+  @Autowired
+  protected OpenviduConfig openviduConfig;
+
+  private List<Kms> kmss = new CopyOnWriteArrayList<Kms>();
+  private volatile KmsSelectionStrategy selectionStrategy = new RoundRobinKmsSelection();
+
+  private ScheduledExecutorService loadSampler;
 
   @Override
   public KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) throws OpenViduException {
@@ -72,27 +86,73 @@ public abstract class KmsManager implements KurentoClientProvider {
   }
 
   /**
-   * Returns a {@link Kms} using a round-robin strategy.
+   * Returns a {@link Kms} chosen by the configured selection strategy (by
+   * default round-robin). If every KMS is full, the less loaded one that is
+   * available is returned.
    *
    * @param sessionInfo
    *          session's id
    */
-  public synchronized Kms getKms(OpenViduKurentoClientSessionInfo sessionInfo) {
-    if (usageIterator == null || !usageIterator.hasNext()) {
-      usageIterator = kmss.iterator();
+  public Kms getKms(OpenViduKurentoClientSessionInfo sessionInfo) {
+    Kms kms = selectionStrategy.select(kmss, sessionInfo);
+    if (kms == null) {
+      KmsLoad lessLoaded = null;
+      for (KmsLoad kmsLoad : getKmsLoads()) {
+        if (kmsLoad.kms.isAvailable() && (lessLoaded == null || kmsLoad.compareTo(lessLoaded) < 0)) {
+          lessLoaded = kmsLoad;
+        }
+      }
+      if (lessLoaded == null) {
+        throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+            "No KMS available to host session '" + sessionInfo.getRoomName() + "'");
+      }
+      kms = lessLoaded.kms;
+      log.warn("All KMS are full. Session {} will be hosted in the less loaded one: {}",
+          sessionInfo.getRoomName(), kms.getUri());
+    }
+    return kms;
+  }
+
+  public void setSelectionStrategy(KmsSelectionStrategy selectionStrategy) {
+    this.selectionStrategy = selectionStrategy;
+  }
+
+  public KmsSelectionStrategy getSelectionStrategy() {
+    return this.selectionStrategy;
+  }
+
+  /**
+   * @param name
+   *          ROUND_ROBIN, LEAST_LOADED, POWER_OF_TWO or SESSION_HASH
+   */
+  public static KmsSelectionStrategy createSelectionStrategy(String name) {
+    switch (name.trim().toUpperCase()) {
+      case "ROUND_ROBIN":
+        return new RoundRobinKmsSelection();
+      case "LEAST_LOADED":
+        return new LeastLoadedKmsSelection();
+      case "POWER_OF_TWO":
+        return new PowerOfTwoKmsSelection();
+      case "SESSION_HASH":
+        return new SessionHashKmsSelection();
+      default:
+        throw new IllegalArgumentException("Unknown KMS selection strategy: " + name);
     }
-    return usageIterator.next();
   }
 
   public synchronized void addKms(Kms kms) {
     this.kmss.add(kms);
   }
 
-  public synchronized Kms getLessLoadedKms() {
+  /**
+   * Returns the {@link Kms} with the lowest load, as last sampled. Doesn't
+   * contact any media server.
+   */
+  public Kms getLessLoadedKms() {
     return Collections.min(getKmsLoads()).kms;
   }
 
-  public synchronized Kms getNextLessLoadedKms() {
+  public Kms getNextLessLoadedKms() {
     List<KmsLoad> sortedLoads = getKmssSortedByLoad();
     if (sortedLoads.size() > 1) {
       return sortedLoads.get(1).kms;
@@ -101,7 +161,7 @@ public abstract class KmsManager implements KurentoClientProvider {
     }
   }
 
-  public synchronized List<KmsLoad> getKmssSortedByLoad() {
+  public List<KmsLoad> getKmssSortedByLoad() {
     List<KmsLoad> kmsLoads = getKmsLoads();
     Collections.sort(kmsLoads);
     return kmsLoads;
@@ -117,8 +177,112 @@ public abstract class KmsManager implements KurentoClientProvider {
     return kmsLoads;
   }
 
+  @Override
+  public MediaPipelinePool getPipelinePool(KurentoClient kurentoClient) {
+    for (Kms kms : kmss) {
+      if (kms.getKurentoClient() == kurentoClient) {
+        return kms.getPipelinePool();
+      }
+    }
+    return null;
+  }
+
   @Override
   public boolean destroyWhenUnused() {
     return false;
   }
+
+  @PostConstruct
+  public void init() {
+    setSelectionStrategy(createSelectionStrategy(openviduConfig.getKmsSelectionStrategy()));
+    log.info("Choosing KMS with {}", selectionStrategy.getClass().getSimpleName());
+    for (Kms kms : kmss) {
+      kms.setLoadManager(createLoadManager());
+      kms.setCircuitBreaker(new KmsCircuitBreaker(kms.getUri(), openviduConfig.getKmsHealthWindowSize(),
+          openviduConfig.getKmsHealthMaxErrorRate(), openviduConfig.getKmsHealthMaxLatency(),
+          openviduConfig.getKmsHealthOpenTime() * 1000, openviduConfig.getKmsHealthProbes()));
+    }
+    startPipelinePools();
+    startLoadSampling(openviduConfig.getKmsLoadSamplingInterval());
+  }
+
+  /**
+   * Creates the {@link LoadManager} of a KMS as configured in
+   * openvidu.kms.load-manager
+   */
+  protected LoadManager createLoadManager() {
+    String name = openviduConfig.getKmsLoadManager().trim().toUpperCase();
+    switch (name) {
+      case "MAX_WEBRTC":
+        return new MaxWebRtcLoadManager(openviduConfig.getKmsLoadMaxElements());
+      case "RESOURCES":
+        return new ResourceLoadManager(openviduConfig.getKmsLoadCpuWeight(),
+            openviduConfig.getKmsLoadMemoryWeight(), openviduConfig.getKmsLoadElementsWeight(),
+            openviduConfig.getKmsLoadMaxMemory() * 1024, openviduConfig.getKmsLoadMaxElements(),
+            openviduConfig.getKmsLoadSmoothing(), openviduConfig.getKmsLoadMaxLoad(),
+            openviduConfig.getKmsLoadElementSamplingInterval());
+      default:
+        throw new IllegalArgumentException("Unknown KMS load manager: " + name);
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    stopLoadSampling();
+    closePipelinePools();
+  }
+
+  /**
+   * Samples the load of every KMS each <code>interval</code> milliseconds in
+   * background threads, so choosing a KMS never waits for a media server
+   */
+  public synchronized void startLoadSampling(long interval) {
+    if (loadSampler != null) {
+      return;
+    }
+    AtomicInteger threadCount = new AtomicInteger(0);
+    loadSampler = Executors.newScheduledThreadPool(Math.min(Math.max(1, kmss.size()), 4), r -> {
+      Thread t = new Thread(r, "kms-load-sampler-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    for (Kms kms : kmss) {
+      loadSampler.scheduleWithFixedDelay(() -> {
+        try {
+          kms.sampleLoad();
+          log.trace("Sampled load {} for kms: {}", kms.getLoad(), kms.getUri());
+        } catch (Exception e) {
+          log.warn("Error sampling load of KMS {}", kms.getUri(), e);
+        }
+      }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+    log.info("Sampling load of {} KMS every {} ms", kmss.size(), interval);
+  }
+
+  public synchronized void stopLoadSampling() {
+    if (loadSampler != null) {
+      loadSampler.shutdownNow();
+      loadSampler = null;
+    }
+  }
+
+  public synchronized void startPipelinePools() {
+    int size = openviduConfig.getKmsPipelinePoolSize();
+    if (size <= 0) {
+      log.info("MediaPipeline pool disabled");
+      return;
+    }
+    long maxIdleTime = openviduConfig.getKmsPipelinePoolMaxIdleTime() * 1000;
+    long evictionInterval = openviduConfig.getKmsPipelinePoolEvictionInterval() * 1000;
+    for (Kms kms : kmss) {
+      log.info("Keeping {} idle MediaPipelines in KMS {}", size, kms.getUri());
+      kms.startPipelinePool(size, maxIdleTime, evictionInterval);
+    }
+  }
+
+  public synchronized void closePipelinePools() {
+    for (Kms kms : kmss) {
+      kms.closePipelinePool();
+    }
+  }
 }
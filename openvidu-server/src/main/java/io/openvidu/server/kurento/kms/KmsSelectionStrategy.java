@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+
+/**
+ * Strategy used by {@link KmsManager} to choose the KMS that will host a new
+ * session. Implementations are called concurrently and must not lock.
+ */
+public interface KmsSelectionStrategy {
+
+  /**
+   * Chooses a KMS among <code>kmss</code>, skipping those that don't allow
+   * more elements ({@link Kms#allowMoreElements()})
+   *
+   * @param kmss
+   *          available KMS (not empty)
+   * @param sessionInfo
+   *          session that will be hosted in the chosen KMS
+   * @return the chosen KMS or null if all of them are full
+   */
+  Kms select(List<Kms> kmss, KurentoClientSessionInfo sessionInfo);
+
+}
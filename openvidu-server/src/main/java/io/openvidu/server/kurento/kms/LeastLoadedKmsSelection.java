@@ -0,0 +1,46 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+
+/**
+ * Chooses the KMS with the lowest load. All sessions created between two load
+ * samples go to the same KMS
+ */
+public class LeastLoadedKmsSelection implements KmsSelectionStrategy {
+
+  @Override
+  public Kms select(List<Kms> kmss, KurentoClientSessionInfo sessionInfo) {
+    Kms selected = null;
+    double selectedLoad = Double.MAX_VALUE;
+    for (Kms kms : kmss) {
+      if (kms.allowMoreElements()) {
+        double load = kms.getLoad();
+        if (load < selectedLoad) {
+          selected = kms;
+          selectedLoad = load;
+        }
+      }
+    }
+    return selected;
+  }
+
+}
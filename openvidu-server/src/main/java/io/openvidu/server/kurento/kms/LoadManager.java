@@ -19,6 +19,18 @@ package io.openvidu.server.kurento.kms;
 
 public interface LoadManager {
 
+  /**
+   * Queries the KMS for its current load figures and stores them in
+   * <code>kms</code>. Called periodically from a background thread, as it may
+   * take several round-trips to the media server. Errors contacting the media
+   * server must be thrown, as they count as failures of the KMS
+   */
+  void sampleLoad(Kms kms);
+
+  /**
+   * Calculates the load of <code>kms</code> from the last sampled figures,
+   * without contacting the media server
+   */
   double calculateLoad(Kms kms);
 
   boolean allowMoreElements(Kms kms);
@@ -29,6 +29,11 @@ public class MaxWebRtcLoadManager implements LoadManager {
     this.maxWebRtcPerKms = maxWebRtcPerKms;
   }
 
+  @Override
+  public void sampleLoad(Kms kms) {
+    kms.updatePipelineCount(kms.getKurentoClient().getServerManager().getPipelines().size());
+  }
+
   @Override
   public double calculateLoad(Kms kms) {
     int numWebRtcs = countWebRtcEndpoints(kms);
@@ -44,12 +49,8 @@ public class MaxWebRtcLoadManager implements LoadManager {
     return countWebRtcEndpoints(kms) < maxWebRtcPerKms;
   }
 
-  private synchronized int countWebRtcEndpoints(Kms kms) {
-    try {
-      return kms.getKurentoClient().getServerManager().getPipelines().size();
-    } catch (Throwable e) {
-      log.warn("Error counting KurentoClient pipelines", e);
-      return 0;
-    }
+  private int countWebRtcEndpoints(Kms kms) {
+    // Pipelines waiting in the pool don't hold any endpoint yet
+    return Math.max(0, kms.getPipelineCount() - kms.getIdlePipelines());
   }
 }
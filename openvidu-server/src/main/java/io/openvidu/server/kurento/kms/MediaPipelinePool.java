@@ -0,0 +1,244 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.JSONObject;
+import org.kurento.client.Continuation;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of idle {@link MediaPipeline} created in advance in one KMS, so a new
+ * session doesn't have to wait for the media server to create its pipeline.
+ * Every pipeline taken from the pool is replaced in the background. Pipelines
+ * that stay idle longer than the configured max idle time are released and
+ * replaced by new ones, so a pipeline lost by a KMS restart is not handed out
+ * forever.
+ */
+public class MediaPipelinePool {
+
+  private static final Logger log = LoggerFactory.getLogger(MediaPipelinePool.class);
+
+  private static class IdlePipeline {
+
+    private final MediaPipeline pipeline;
+    private final long creationTime = System.currentTimeMillis();
+
+    private IdlePipeline(MediaPipeline pipeline) {
+      this.pipeline = pipeline;
+    }
+  }
+
+  private final KurentoClient client;
+  private final String kmsUri;
+  private final int size;
+  private final long maxIdleTime;
+
+  private final ConcurrentLinkedDeque<IdlePipeline> idlePipelines = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger(0);
+  private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+  private final AtomicLong evictions = new AtomicLong(0);
+
+  private final ScheduledExecutorService executor;
+  private volatile boolean closed = false;
+
+  /**
+   * @param client
+   *          client of the KMS where the pipelines are created
+   * @param kmsUri
+   *          URI of the KMS (only used for logging)
+   * @param size
+   *          number of idle pipelines the pool tries to keep ready
+   * @param maxIdleTime
+   *          milliseconds after which an idle pipeline is released and replaced
+   * @param evictionInterval
+   *          milliseconds between two checks for expired idle pipelines
+   */
+  public MediaPipelinePool(KurentoClient client, String kmsUri, int size, long maxIdleTime,
+      long evictionInterval) {
+    this.client = client;
+    this.kmsUri = kmsUri;
+    this.size = size;
+    this.maxIdleTime = maxIdleTime;
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "pipeline-pool-" + kmsUri);
+      t.setDaemon(true);
+      return t;
+    });
+    this.executor.scheduleWithFixedDelay(this::evictExpired, evictionInterval, evictionInterval,
+        TimeUnit.MILLISECONDS);
+    this.executor.execute(this::refill);
+  }
+
+  /**
+   * Takes an idle pipeline from the pool and schedules the creation of its
+   * replacement.
+   *
+   * @return a ready {@link MediaPipeline} or null if the pool is empty, in which
+   *         case the caller must create its own pipeline
+   */
+  public MediaPipeline poll() {
+    // Newest first: the oldest ones are the next to expire
+    IdlePipeline idle = idlePipelines.pollLast();
+    if (idle == null) {
+      misses.incrementAndGet();
+      log.debug("KMS {}: No idle MediaPipeline available in pool", kmsUri);
+    } else {
+      idleCount.decrementAndGet();
+      hits.incrementAndGet();
+    }
+    try {
+      executor.execute(this::refill);
+    } catch (RejectedExecutionException e) {
+      // Pool closed
+    }
+    return idle != null ? idle.pipeline : null;
+  }
+
+  private void refill() {
+    while (!closed && idleCount.get() + pendingCount.get() < size) {
+      pendingCount.incrementAndGet();
+      try {
+        createPipeline(new Continuation<MediaPipeline>() {
+          @Override
+          public void onSuccess(MediaPipeline result) throws Exception {
+            if (closed) {
+              releasePipeline(result);
+            } else {
+              idlePipelines.offerLast(new IdlePipeline(result));
+              idleCount.incrementAndGet();
+              log.trace("KMS {}: Added MediaPipeline to pool", kmsUri);
+            }
+            pendingCount.decrementAndGet();
+          }
+
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            pendingCount.decrementAndGet();
+            log.warn("KMS {}: Failed to create pooled MediaPipeline", kmsUri, cause);
+          }
+        });
+      } catch (Exception e) {
+        pendingCount.decrementAndGet();
+        log.warn("KMS {}: Unable to create pooled MediaPipeline", kmsUri, e);
+        // Don't keep on trying until next eviction run
+        return;
+      }
+    }
+  }
+
+  /**
+   * Asks the KMS for a new pipeline, reporting it to <code>continuation</code>
+   */
+  protected void createPipeline(Continuation<MediaPipeline> continuation) {
+    client.createMediaPipeline(continuation);
+  }
+
+  private void evictExpired() {
+    long now = System.currentTimeMillis();
+    IdlePipeline oldest;
+    while ((oldest = idlePipelines.peekFirst()) != null && now - oldest.creationTime > maxIdleTime) {
+      if (idlePipelines.removeFirstOccurrence(oldest)) {
+        idleCount.decrementAndGet();
+        evictions.incrementAndGet();
+        releasePipeline(oldest.pipeline);
+      }
+    }
+    log.debug("KMS {}: MediaPipeline pool with {} idle (hits: {}, misses: {}, evictions: {})", kmsUri,
+        idleCount.get(), hits.get(), misses.get(), evictions.get());
+    refill();
+  }
+
+  private void releasePipeline(MediaPipeline pipeline) {
+    pipeline.release(new Continuation<Void>() {
+      @Override
+      public void onSuccess(Void result) throws Exception {
+        log.trace("KMS {}: Released pooled MediaPipeline", kmsUri);
+      }
+
+      @Override
+      public void onError(Throwable cause) throws Exception {
+        log.warn("KMS {}: Could not release pooled MediaPipeline", kmsUri, cause);
+      }
+    });
+  }
+
+  /**
+   * Stops refilling the pool and releases all its idle pipelines
+   */
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    IdlePipeline idle;
+    while ((idle = idlePipelines.pollFirst()) != null) {
+      idleCount.decrementAndGet();
+      releasePipeline(idle.pipeline);
+    }
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public double getHitRate() {
+    long total = hits.get() + misses.get();
+    return total == 0 ? 0 : hits.get() / (double) total;
+  }
+
+  @SuppressWarnings("unchecked")
+  public JSONObject toJson() {
+    JSONObject json = new JSONObject();
+    json.put("kms", kmsUri);
+    json.put("size", size);
+    json.put("idle", getIdleCount());
+    json.put("hits", getHits());
+    json.put("misses", getMisses());
+    json.put("evictions", getEvictions());
+    json.put("hitRate", getHitRate());
+    return json;
+  }
+}
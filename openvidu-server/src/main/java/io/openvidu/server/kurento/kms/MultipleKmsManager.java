@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.kurento.client.KurentoClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link KmsManager} with one {@link Kms} for each configured KMS URI. All KMS
+ * are connected at the same time, so startup doesn't take longer with more
+ * media servers. KMS that can't be connected at startup are left out.
+ */
+public class MultipleKmsManager extends KmsManager {
+
+  private static final Logger log = LoggerFactory.getLogger(MultipleKmsManager.class);
+
+  private static final int MAX_CONNECTION_THREADS = 16;
+
+  public MultipleKmsManager(List<String> kmsWsUris) {
+    this(kmsWsUris, KurentoClient::create);
+  }
+
+  /**
+   * @param kmsWsUris
+   *          URIs of the KMS to connect to
+   * @param clientFactory
+   *          connects to the KMS of a URI, throwing an exception on failure
+   */
+  public MultipleKmsManager(List<String> kmsWsUris, Function<String, KurentoClient> clientFactory) {
+    if (kmsWsUris.isEmpty()) {
+      throw new IllegalArgumentException("At least one KMS URI is required");
+    }
+    AtomicInteger threadCount = new AtomicInteger(0);
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(kmsWsUris.size(), MAX_CONNECTION_THREADS), r -> {
+          Thread t = new Thread(r, "kms-connect-" + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+    try {
+      Map<String, CompletableFuture<KurentoClient>> connections = new LinkedHashMap<>();
+      for (String uri : kmsWsUris) {
+        connections.put(uri, CompletableFuture.supplyAsync(() -> clientFactory.apply(uri), executor));
+      }
+
+      List<String> failed = new ArrayList<>();
+      for (Map.Entry<String, CompletableFuture<KurentoClient>> connection : connections.entrySet()) {
+        String uri = connection.getKey();
+        try {
+          this.addKms(new Kms(connection.getValue().get(), uri));
+          log.info("Connected to KMS {}", uri);
+        } catch (ExecutionException e) {
+          log.error("Could not connect to KMS {}", uri, e.getCause());
+          failed.add(uri);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while connecting to KMS", e);
+        }
+      }
+      if (failed.size() == kmsWsUris.size()) {
+        throw new IllegalStateException("Could not connect to any KMS: " + kmsWsUris);
+      }
+      log.info("Connected to {} of {} KMS", kmsWsUris.size() - failed.size(), kmsWsUris.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
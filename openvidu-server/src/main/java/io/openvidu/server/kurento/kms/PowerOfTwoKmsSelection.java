@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+
+/**
+ * Picks two KMS at random and chooses the less loaded of them. Balances almost
+ * as well as {@link LeastLoadedKmsSelection}, but doesn't send every session
+ * to the same KMS while its load figures are being refreshed
+ */
+public class PowerOfTwoKmsSelection implements KmsSelectionStrategy {
+
+  private final LeastLoadedKmsSelection fallback = new LeastLoadedKmsSelection();
+
+  @Override
+  public Kms select(List<Kms> kmss, KurentoClientSessionInfo sessionInfo) {
+    int size = kmss.size();
+    if (size == 1) {
+      return kmss.get(0).allowMoreElements() ? kmss.get(0) : null;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+    Kms a = kmss.get(first);
+    Kms b = kmss.get(second);
+    boolean aAllowed = a.allowMoreElements();
+    boolean bAllowed = b.allowMoreElements();
+    if (aAllowed && bAllowed) {
+      return a.getLoad() <= b.getLoad() ? a : b;
+    } else if (aAllowed) {
+      return a;
+    } else if (bAllowed) {
+      return b;
+    }
+    // Both full: look for any KMS with room
+    return fallback.select(kmss, sessionInfo);
+  }
+
+}
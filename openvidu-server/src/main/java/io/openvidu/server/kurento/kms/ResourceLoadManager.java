@@ -0,0 +1,163 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.ServerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load manager that combines the CPU usage, the memory used and the number of
+ * media elements reported by each KMS into a single load score between 0 and
+ * 1. Every figure is normalized against its limit and weighted, and the score
+ * is smoothed with an exponential moving average so a single spike doesn't
+ * exclude a KMS. No more sessions are placed in a KMS once its score reaches
+ * the configured max load. Counting the media elements takes one query per
+ * pipeline, so they are counted less often than the rest of figures are
+ * sampled.
+ */
+public class ResourceLoadManager implements LoadManager {
+
+  private static final Logger log = LoggerFactory.getLogger(ResourceLoadManager.class);
+
+  // Milliseconds KMS measures its CPU usage for each sample
+  private static final int CPU_SAMPLE_INTERVAL = 500;
+
+  private final double cpuWeight;
+  private final double memoryWeight;
+  private final double elementsWeight;
+  private final long maxMemory;
+  private final int maxElements;
+  private final double smoothing;
+  private final double maxLoad;
+  private final long elementSamplingInterval;
+
+  /**
+   * @param cpuWeight
+   *          weight of the CPU usage in the load score
+   * @param memoryWeight
+   *          weight of the memory usage in the load score
+   * @param elementsWeight
+   *          weight of the number of media elements in the load score
+   * @param maxMemory
+   *          KiB of memory KMS can use
+   * @param maxElements
+   *          number of media elements KMS can hold
+   * @param smoothing
+   *          weight of each new sample in the load score, between 0 (never
+   *          changes) and 1 (no smoothing)
+   * @param maxLoad
+   *          load score from which no more elements are allowed
+   * @param elementSamplingInterval
+   *          minimum milliseconds between two counts of the media elements of a
+   *          KMS
+   */
+  public ResourceLoadManager(double cpuWeight, double memoryWeight, double elementsWeight,
+      long maxMemory, int maxElements, double smoothing, double maxLoad,
+      long elementSamplingInterval) {
+    double totalWeight = cpuWeight + memoryWeight + elementsWeight;
+    if (totalWeight <= 0) {
+      throw new IllegalArgumentException("At least one load weight must be positive");
+    }
+    this.cpuWeight = cpuWeight / totalWeight;
+    this.memoryWeight = memoryWeight / totalWeight;
+    this.elementsWeight = elementsWeight / totalWeight;
+    this.maxMemory = maxMemory;
+    this.maxElements = maxElements;
+    this.smoothing = Math.min(1, Math.max(0, smoothing));
+    this.maxLoad = maxLoad;
+    this.elementSamplingInterval = elementSamplingInterval;
+  }
+
+  @Override
+  public void sampleLoad(Kms kms) {
+    ServerManager serverManager = kms.getKurentoClient().getServerManager();
+    long start = System.currentTimeMillis();
+    long memory = serverManager.getUsedMemory();
+    // The CPU query waits CPU_SAMPLE_INTERVAL on purpose and counting elements
+    // takes one query per pipeline, so only this one probes the KMS health
+    kms.reportProbeLatency(System.currentTimeMillis() - start);
+    float cpu = serverManager.getUsedCpu(CPU_SAMPLE_INTERVAL);
+    List<MediaPipeline> pipelines = serverManager.getPipelines();
+    int elements = kms.getElementCount();
+    long now = System.currentTimeMillis();
+    if (isElementCountDue(kms, now)) {
+      elements = 0;
+      for (MediaPipeline pipeline : pipelines) {
+        elements += pipeline.getChildren().size();
+      }
+      kms.updateElementSampleTime(now);
+    }
+    updateLoad(kms, cpu, memory, elements);
+    kms.updatePipelineCount(pipelines.size());
+  }
+
+  /**
+   * @return whether the media elements of <code>kms</code> must be counted again
+   *         in a sample taken at <code>now</code>, instead of reusing the last
+   *         count
+   */
+  public boolean isElementCountDue(Kms kms, long now) {
+    return now - kms.getElementSampleTime() >= elementSamplingInterval;
+  }
+
+  /**
+   * Updates the smoothed load score of <code>kms</code> with a new sample
+   *
+   * @param cpu
+   *          percentage of CPU used by KMS
+   * @param memory
+   *          KiB of memory used by KMS
+   * @param elements
+   *          number of media elements in KMS
+   */
+  public void updateLoad(Kms kms, float cpu, long memory, int elements) {
+    boolean firstSample = kms.getLoadSampleTime() == 0;
+    double load = calculateScore(cpu / 100.0, memory / (double) maxMemory,
+        elements / (double) maxElements);
+    kms.updateElementCount(elements);
+    kms.updateSampledLoad(firstSample ? load
+        : smoothing * load + (1 - smoothing) * kms.getSampledLoad());
+    log.debug("KMS {}: CPU {}%, memory {} KiB, {} media elements. Load {}", kms.getUri(), cpu,
+        memory, elements, kms.getSampledLoad());
+  }
+
+  /**
+   * Weighted load score of the given usage ratios, each one between 0 and 1
+   */
+  public double calculateScore(double cpu, double memory, double elements) {
+    return cpuWeight * clamp(cpu) + memoryWeight * clamp(memory) + elementsWeight * clamp(elements);
+  }
+
+  @Override
+  public double calculateLoad(Kms kms) {
+    return kms.getSampledLoad();
+  }
+
+  @Override
+  public boolean allowMoreElements(Kms kms) {
+    return kms.getSampledLoad() < maxLoad;
+  }
+
+  private static double clamp(double ratio) {
+    return Math.min(1, Math.max(0, ratio));
+  }
+}
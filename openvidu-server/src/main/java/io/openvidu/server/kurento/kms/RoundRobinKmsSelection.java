@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+
+/**
+ * Chooses each KMS in turn, ignoring their load
+ */
+public class RoundRobinKmsSelection implements KmsSelectionStrategy {
+
+  private final AtomicInteger next = new AtomicInteger(0);
+
+  @Override
+  public Kms select(List<Kms> kmss, KurentoClientSessionInfo sessionInfo) {
+    int size = kmss.size();
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      Kms kms = kmss.get((start + i) % size);
+      if (kms.allowMoreElements()) {
+        return kms;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+
+/**
+ * Always chooses the same KMS for the same session id, using rendezvous
+ * hashing: the chosen KMS is the one with the highest hash of session id and
+ * KMS URI. Adding or removing a KMS only moves the sessions of that KMS, and a
+ * full KMS only moves its sessions to their second choice
+ */
+public class SessionHashKmsSelection implements KmsSelectionStrategy {
+
+  @Override
+  public Kms select(List<Kms> kmss, KurentoClientSessionInfo sessionInfo) {
+    String sessionId = sessionInfo != null && sessionInfo.getRoomName() != null
+        ? sessionInfo.getRoomName() : "";
+    Kms selected = null;
+    long selectedWeight = Long.MIN_VALUE;
+    for (Kms kms : kmss) {
+      if (kms.allowMoreElements()) {
+        long weight = mix(sessionId.hashCode() * 31L + kms.getUri().hashCode());
+        if (selected == null || weight > selectedWeight) {
+          selected = kms;
+          selectedWeight = weight;
+        }
+      }
+    }
+    return selected;
+  }
+
+  // Final step of MurmurHash3, so similar session ids get unrelated weights
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+}
@@ -40,11 +40,19 @@ import io.openvidu.java.client.RecordingMode;
 import io.openvidu.java.client.RecordingProperties;
 import io.openvidu.java.client.MediaMode;
 import io.openvidu.java.client.SessionProperties;
+import io.openvidu.java.client.SubscriptionPolicy;
+import io.openvidu.server.config.InfoHandler;
+import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.core.ParticipantRole;
 import io.openvidu.server.core.Session;
 import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.core.SignalLimiter;
+import io.openvidu.server.kurento.KurentoClientProvider;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 import io.openvidu.server.recording.Recording;
 import io.openvidu.server.recording.ComposedRecordingService;
+import io.openvidu.server.rpc.RpcNotificationService;
 
 /**
  *
@@ -61,6 +69,18 @@ public class SessionRestController {
 	@Autowired
 	private ComposedRecordingService recordingService;
 
+	@Autowired
+	private OpenviduConfig openviduConfig;
+
+	@Autowired
+	private KurentoClientProvider kmsManager;
+
+	@Autowired
+	private RpcNotificationService notificationService;
+
+	@Autowired
+	private InfoHandler infoHandler;
+
 	@RequestMapping(value = "/sessions", method = RequestMethod.GET)
 	public Set<String> getAllSessions() {
 		return sessionManager.getSessions();
@@ -70,12 +90,14 @@ public class SessionRestController {
 	@RequestMapping(value = "/sessions", method = RequestMethod.POST)
 	public ResponseEntity<JSONObject> getSessionId(@RequestBody(required = false) Map<?, ?> params) {
 
-		SessionProperties.Builder builder = new SessionProperties.Builder();
+		SessionProperties.Builder builder = new SessionProperties.Builder()
+				.subscriptionPolicy(openviduConfig.getSubscriptionPolicy());
 		if (params != null) {
 			String mediaModeString = (String) params.get("mediaMode");
 			String recordingModeString = (String) params.get("recordingMode");
 			String defaultRecordingLayoutString = (String) params.get("defaultRecordingLayout");
 			String defaultCustomLayout = (String) params.get("defaultCustomLayout");
+			String subscriptionPolicyString = (String) params.get("subscriptionPolicy");
 
 			try {
 
@@ -99,11 +121,16 @@ public class SessionRestController {
 					builder = builder.mediaMode(MediaMode.ROUTED);
 				}
 				builder = builder.defaultCustomLayout((defaultCustomLayout != null) ? defaultCustomLayout : "");
+				if (subscriptionPolicyString != null) {
+					SubscriptionPolicy subscriptionPolicy = SubscriptionPolicy.valueOf(subscriptionPolicyString);
+					builder = builder.subscriptionPolicy(subscriptionPolicy);
+				}
 
 			} catch (IllegalArgumentException e) {
 				return this.generateErrorResponse("RecordingMode " + params.get("recordingMode") + " | "
 						+ "Default RecordingLayout " + params.get("defaultRecordingLayout") + " | " + "MediaMode "
-						+ params.get("mediaMode") + " are not defined", "/api/tokens", HttpStatus.BAD_REQUEST);
+						+ params.get("mediaMode") + " | " + "SubscriptionPolicy " + params.get("subscriptionPolicy")
+						+ " are not defined", "/api/tokens", HttpStatus.BAD_REQUEST);
 			}
 		}
 
@@ -225,8 +252,10 @@ public class SessionRestController {
 
 		Recording stoppedRecording = this.recordingService.stopRecording(session);
 
-		sessionManager.evictParticipant(session.getParticipantByPublicId(ProtocolElements.RECORDER_PARTICIPANT_PUBLICID)
-				.getParticipantPrivateId(), "EVICT_RECORDER");
+		String recorderPrivateId = session.getParticipantByPublicId(ProtocolElements.RECORDER_PARTICIPANT_PUBLICID)
+				.getParticipantPrivateId();
+		sessionManager.getSessionExecutor(session.getSessionId())
+				.execute(() -> sessionManager.evictParticipant(recorderPrivateId, "EVICT_RECORDER"));
 
 		return new ResponseEntity<>(stoppedRecording.toJson(), HttpStatus.OK);
 	}
@@ -264,6 +293,76 @@ public class SessionRestController {
 		return new ResponseEntity<>(json, HttpStatus.OK);
 	}
 
+	@SuppressWarnings("unchecked")
+	@RequestMapping(value = "/kms/pipeline-pools", method = RequestMethod.GET)
+	public ResponseEntity<JSONObject> getPipelinePools() {
+		JSONArray jsonArray = new JSONArray();
+		if (kmsManager instanceof KmsManager) {
+			((KmsManager) kmsManager).getKmssSortedByLoad().forEach(kmsLoad -> {
+				MediaPipelinePool pool = kmsLoad.getKms().getPipelinePool();
+				if (pool != null) {
+					jsonArray.add(pool.toJson());
+				}
+			});
+		}
+		JSONObject json = new JSONObject();
+		json.put("count", jsonArray.size());
+		json.put("items", jsonArray);
+		return new ResponseEntity<>(json, HttpStatus.OK);
+	}
+
+	@SuppressWarnings("unchecked")
+	@RequestMapping(value = "/metrics/tokens", method = RequestMethod.GET)
+	public ResponseEntity<JSONObject> getTokenMetrics() {
+		JSONObject json = new JSONObject();
+		json.put("count", sessionManager.getTokenCount());
+		json.put("expired", sessionManager.getExpiredTokens());
+		return new ResponseEntity<>(json, HttpStatus.OK);
+	}
+
+	@SuppressWarnings("unchecked")
+	@RequestMapping(value = "/metrics/signals", method = RequestMethod.GET)
+	public ResponseEntity<JSONObject> getSignalMetrics() {
+		SignalLimiter signalLimiter = sessionManager.getSignalLimiter();
+		JSONObject json = new JSONObject();
+		json.put("accepted", signalLimiter.getAccepted());
+		json.put("rejectedBySize", signalLimiter.getRejectedBySize());
+		json.put("rejectedByRate", signalLimiter.getRejectedByRate());
+		json.put("rejectedByQuota", signalLimiter.getRejectedByQuota());
+		return new ResponseEntity<>(json, HttpStatus.OK);
+	}
+
+	@SuppressWarnings("unchecked")
+	@RequestMapping(value = "/metrics/outbound-queues", method = RequestMethod.GET)
+	public ResponseEntity<JSONObject> getOutboundQueueMetrics() {
+		JSONArray jsonArray = new JSONArray();
+		notificationService.getOutboundQueues().forEach((participantPrivateId, queue) -> {
+			JSONObject queueJson = new JSONObject();
+			queueJson.put("participantPrivateId", participantPrivateId);
+			queueJson.put("depth", queue.getDepth());
+			queueJson.put("maxDepth", queue.getMaxDepth());
+			queueJson.put("sent", queue.getSent());
+			queueJson.put("dropped", queue.getDropped());
+			queueJson.put("coalesced", queue.getCoalesced());
+			jsonArray.add(queueJson);
+		});
+		JSONObject json = new JSONObject();
+		json.put("slowConnectionsClosed", notificationService.getSlowConnectionsClosed());
+		json.put("count", jsonArray.size());
+		json.put("items", jsonArray);
+		return new ResponseEntity<>(json, HttpStatus.OK);
+	}
+
+	@SuppressWarnings("unchecked")
+	@RequestMapping(value = "/metrics/info", method = RequestMethod.GET)
+	public ResponseEntity<JSONObject> getInfoMetrics() {
+		JSONObject json = new JSONObject();
+		json.put("connections", infoHandler.getConnections());
+		json.put("sent", infoHandler.getSent());
+		json.put("dropped", infoHandler.getDropped());
+		return new ResponseEntity<>(json, HttpStatus.OK);
+	}
+
 	@RequestMapping(value = "/recordings/{recordingId}", method = RequestMethod.DELETE)
 	public ResponseEntity<JSONObject> deleteRecording(@PathVariable("recordingId") String recordingId) {
 		return new ResponseEntity<>(this.recordingService.deleteRecordingFromHost(recordingId));
@@ -0,0 +1,363 @@
+package io.openvidu.server.rpc;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+
+/**
+ * Bounded queue of the messages waiting to be written to the websocket of one
+ * {@link RpcConnection}. Threads queueing messages never wait for the
+ * websocket: the queue is emptied by a sender thread, in the same order the
+ * messages were queued. Responses are always queued. When
+ * <code>capacity</code> notifications are already waiting, the
+ * {@link OverflowPolicy} decides what happens to the new one.
+ */
+public class OutboundQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(OutboundQueue.class);
+
+	public enum OverflowPolicy {
+		/**
+		 * The oldest notification waiting is dropped
+		 */
+		DROP_OLDEST,
+		/**
+		 * Notifications waiting about the same participant or recording as the new
+		 * one are dropped if the client would not miss them: a pair of them that
+		 * cancel each other out (joined and then left, published and then
+		 * unpublished, recording started and then stopped), or else the last one
+		 * if it has the same method as the new one, which supersedes it. If there's
+		 * none, or the new notification is of a kind never superseded (signals, ICE
+		 * candidates...), the client is disconnected
+		 */
+		COALESCE,
+		/**
+		 * The client is disconnected
+		 */
+		DISCONNECT
+	}
+
+	// Kind of entity and param identifying the entity each kind of notification
+	// is about. Kinds not listed are never coalesced
+	private static final Map<String, String> ENTITY_KINDS = new HashMap<>();
+	private static final Map<String, String> ENTITY_PARAMS = new HashMap<>();
+	// Notifications undoing what the one they are mapped to did
+	private static final Map<String, String> CLOSING_METHODS = new HashMap<>();
+	static {
+		entity(ProtocolElements.PARTICIPANTJOINED_METHOD, "participant", ProtocolElements.PARTICIPANTJOINED_USER_PARAM);
+		entity(ProtocolElements.PARTICIPANTLEFT_METHOD, "participant", ProtocolElements.PARTICIPANTLEFT_NAME_PARAM);
+		entity(ProtocolElements.PARTICIPANTPUBLISHED_METHOD, "participant",
+				ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM);
+		entity(ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, "participant",
+				ProtocolElements.PARTICIPANTUNPUBLISHED_NAME_PARAM);
+		entity(ProtocolElements.RECORDINGSTARTED_METHOD, "recording", ProtocolElements.RECORDINGSTARTED_ID_PARAM);
+		entity(ProtocolElements.RECORDINGSTOPPED_METHOD, "recording", ProtocolElements.RECORDINGSTOPPED_ID_PARAM);
+		entity(ProtocolElements.ROOMCLOSED_METHOD, "session", ProtocolElements.ROOMCLOSED_ROOM_PARAM);
+
+		CLOSING_METHODS.put(ProtocolElements.PARTICIPANTJOINED_METHOD, ProtocolElements.PARTICIPANTLEFT_METHOD);
+		CLOSING_METHODS.put(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD);
+		CLOSING_METHODS.put(ProtocolElements.RECORDINGSTARTED_METHOD, ProtocolElements.RECORDINGSTOPPED_METHOD);
+	}
+
+	private static void entity(String method, String kind, String param) {
+		ENTITY_KINDS.put(method, kind);
+		ENTITY_PARAMS.put(method, param);
+	}
+
+	public interface Sender {
+		void send() throws Exception;
+	}
+
+	private static class Message {
+
+		private final String method;
+		private final Object params;
+		private final Sender sender;
+		// Notifications with the same key are about the same entity. Null if never
+		// coalesced
+		private final String coalescingKey;
+
+		private Message(String method, Object params, Sender sender, String coalescingKey) {
+			this.method = method;
+			this.params = params;
+			this.sender = sender;
+			this.coalescingKey = coalescingKey;
+		}
+
+		private boolean isNotification() {
+			return method != null;
+		}
+	}
+
+	private final String participantPrivateId;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final Executor senders;
+	private final Runnable disconnector;
+
+	private final ArrayDeque<Message> messages = new ArrayDeque<>();
+	private int notifications = 0;
+	private int maxDepth = 0;
+	private boolean disconnected = false;
+
+	// True while a sender is emptying the queue
+	private final AtomicBoolean sending = new AtomicBoolean(false);
+
+	private final AtomicLong sent = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final AtomicLong coalesced = new AtomicLong(0);
+
+	/**
+	 * @param capacity
+	 *            maximum number of notifications waiting to be sent
+	 * @param senders
+	 *            executor running the sender of the queue
+	 * @param disconnector
+	 *            closes the connection when the client can't keep up. Run by
+	 *            <code>senders</code>
+	 */
+	public OutboundQueue(String participantPrivateId, int capacity, OverflowPolicy policy, Executor senders,
+			Runnable disconnector) {
+		this.participantPrivateId = participantPrivateId;
+		this.capacity = Math.max(1, capacity);
+		this.policy = policy;
+		this.senders = senders;
+		this.disconnector = disconnector;
+	}
+
+	/**
+	 * Queues a notification
+	 *
+	 * @return false if the notification was rejected because the client has been
+	 *         disconnected for not keeping up
+	 */
+	public boolean offerNotification(String method, Object params, Sender sender) {
+		return offer(new Message(method, params, sender,
+				policy == OverflowPolicy.COALESCE ? coalescingKey(method, params) : null));
+	}
+
+	/**
+	 * Queues a response to a request of the client. Responses are never dropped
+	 * and don't count towards the capacity of the queue
+	 */
+	public boolean offerResponse(Sender sender) {
+		return offer(new Message(null, null, sender, null));
+	}
+
+	/**
+	 * @return the participant, recording or session the notification is about,
+	 *         or null if the notification is never coalesced with others
+	 */
+	public static String coalescingKey(String method, Object params) {
+		String entityParam = ENTITY_PARAMS.get(method);
+		if (entityParam == null) {
+			return null;
+		}
+		JsonElement json = params instanceof SerializedParams ? ((SerializedParams) params).getParams()
+				: params instanceof JsonElement ? (JsonElement) params : null;
+		if (json == null || !json.isJsonObject()) {
+			return null;
+		}
+		JsonElement entity = ((JsonObject) json).get(entityParam);
+		if (entity == null || !entity.isJsonPrimitive()) {
+			return null;
+		}
+		return ENTITY_KINDS.get(method) + '/' + entity.getAsString();
+	}
+
+	private boolean offer(Message message) {
+		boolean disconnect = false;
+		synchronized (this) {
+			if (disconnected) {
+				return false;
+			}
+			if (message.isNotification() && notifications >= capacity) {
+				switch (policy) {
+				case DROP_OLDEST:
+					remove(m -> true);
+					dropped.incrementAndGet();
+					break;
+				case COALESCE:
+					int removed = message.coalescingKey != null ? coalesce(message) : 0;
+					if (removed > 0) {
+						coalesced.addAndGet(removed);
+					} else {
+						disconnect = true;
+					}
+					break;
+				case DISCONNECT:
+					disconnect = true;
+					break;
+				}
+			}
+			if (disconnect) {
+				disconnected = true;
+				dropped.addAndGet(notifications + 1);
+				notifications = 0;
+				messages.clear();
+			} else {
+				messages.add(message);
+				if (message.isNotification()) {
+					notifications++;
+				}
+				maxDepth = Math.max(maxDepth, messages.size());
+			}
+		}
+		if (disconnect) {
+			log.warn("Participant with private id {} is not receiving its notifications fast enough ({} waiting). "
+					+ "Closing its connection", participantPrivateId, capacity);
+			senders.execute(disconnector);
+			return false;
+		}
+		scheduleSending();
+		return true;
+	}
+
+	private interface MessageFilter {
+		boolean matches(Message message);
+	}
+
+	/**
+	 * Removes the oldest notification matching <code>filter</code>
+	 */
+	private boolean remove(MessageFilter filter) {
+		Iterator<Message> it = messages.iterator();
+		while (it.hasNext()) {
+			Message m = it.next();
+			if (m.isNotification() && filter.matches(m)) {
+				it.remove();
+				notifications--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops the notifications waiting about the same entity as
+	 * <code>message</code> that the client doesn't need to see in order: the
+	 * oldest one followed by the one undoing it, or else the last one if
+	 * <code>message</code> supersedes it
+	 *
+	 * @return number of notifications dropped
+	 */
+	private int coalesce(Message message) {
+		Message previous = null;
+		Iterator<Message> it = messages.iterator();
+		while (it.hasNext()) {
+			Message m = it.next();
+			if (!m.isNotification() || !message.coalescingKey.equals(m.coalescingKey)) {
+				continue;
+			}
+			if (previous != null && m.method.equals(CLOSING_METHODS.get(previous.method))) {
+				it.remove();
+				messages.removeFirstOccurrence(previous);
+				notifications -= 2;
+				return 2;
+			}
+			previous = m;
+		}
+		if (previous != null && previous.method.equals(message.method)) {
+			messages.removeLastOccurrence(previous);
+			notifications--;
+			return 1;
+		}
+		return 0;
+	}
+
+	private synchronized Message poll() {
+		Message message = messages.poll();
+		if (message != null && message.isNotification()) {
+			notifications--;
+		}
+		return message;
+	}
+
+	private synchronized boolean isEmpty() {
+		return messages.isEmpty();
+	}
+
+	private void scheduleSending() {
+		if (sending.compareAndSet(false, true)) {
+			try {
+				senders.execute(this::send);
+			} catch (Exception e) {
+				sending.set(false);
+				log.warn("Messages to participant with private id {} not sent: {}", participantPrivateId,
+						e.getMessage());
+			}
+		}
+	}
+
+	private void send() {
+		Message message;
+		while ((message = poll()) != null) {
+			try {
+				message.sender.send();
+				sent.incrementAndGet();
+			} catch (Exception e) {
+				if (message.isNotification()) {
+					log.error("Exception sending notification '{}': {} to participant with private id {}",
+							message.method, message.params, participantPrivateId, e);
+				} else {
+					log.error("Exception responding to participant ({})", participantPrivateId, e);
+				}
+			}
+		}
+		sending.set(false);
+		// Messages queued after the last poll but before clearing the flag
+		if (!isEmpty()) {
+			scheduleSending();
+		}
+	}
+
+	/**
+	 * @return number of messages waiting to be sent
+	 */
+	public synchronized int getDepth() {
+		return messages.size();
+	}
+
+	/**
+	 * @return highest number of messages that have been waiting at the same time
+	 */
+	public synchronized int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public synchronized boolean isDisconnected() {
+		return disconnected;
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	/**
+	 * @return number of notifications not sent because the client didn't keep up
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return number of notifications superseded by a newer one
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+}
@@ -0,0 +1,113 @@
+package io.openvidu.server.rpc;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the requests of the clients out of the websocket container threads,
+ * which are released as soon as a request is queued. Each connection has its
+ * own lane: its requests run one after another, in the order they were
+ * received, while requests of different connections run in parallel in a pool
+ * of <code>threads</code> threads. When all of them are busy, requests wait in
+ * their lanes instead of in the container: the container keeps receiving
+ * messages, but requests don't complete sooner than with as many container
+ * threads.
+ */
+public class RequestDispatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(RequestDispatcher.class);
+
+	private class Lane implements Executor {
+
+		private final Queue<Runnable> requests = new ConcurrentLinkedQueue<>();
+
+		// True while a dispatcher thread is running the requests of the lane
+		private final AtomicBoolean running = new AtomicBoolean(false);
+
+		@Override
+		public void execute(Runnable request) {
+			requests.add(request);
+			queued.incrementAndGet();
+			schedule();
+		}
+
+		private void schedule() {
+			if (running.compareAndSet(false, true)) {
+				try {
+					pool.execute(this::run);
+				} catch (Exception e) {
+					running.set(false);
+					log.warn("Requests not dispatched: {}", e.getMessage());
+				}
+			}
+		}
+
+		private void run() {
+			Runnable request;
+			while ((request = requests.poll()) != null) {
+				try {
+					request.run();
+				} catch (Exception e) {
+					log.error("Error running request", e);
+				} finally {
+					queued.decrementAndGet();
+					dispatched.incrementAndGet();
+				}
+			}
+			running.set(false);
+			// Requests queued after the last poll but before clearing the flag
+			if (!requests.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+
+	private final ExecutorService pool;
+
+	private final AtomicLong queued = new AtomicLong(0);
+	private final AtomicLong dispatched = new AtomicLong(0);
+
+	public RequestDispatcher(int threads) {
+		AtomicInteger threadCount = new AtomicInteger(0);
+		this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				r -> {
+					Thread t = new Thread(r, "rpc-dispatcher-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	/**
+	 * Returns a new lane. Requests executed in the same lane run in order
+	 */
+	public Executor newLane() {
+		return new Lane();
+	}
+
+	/**
+	 * @return number of requests waiting or running
+	 */
+	public long getQueued() {
+		return queued.get();
+	}
+
+	public long getDispatched() {
+		return dispatched.get();
+	}
+
+	public void close() {
+		pool.shutdownNow();
+	}
+
+}
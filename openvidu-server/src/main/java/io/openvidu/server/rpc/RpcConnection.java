@@ -3,12 +3,15 @@ package io.openvidu.server.rpc;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import org.kurento.jsonrpc.Session;
 import org.kurento.jsonrpc.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.openvidu.server.core.Participant;
+
 /**
  * Object representing client-server WebSocket sessions. Stores information
  * about the connection itself and all the active RPC transactions for each one
@@ -24,6 +27,14 @@ public class RpcConnection {
 	private ConcurrentMap<Integer, Transaction> transactions;
 	private String sessionId;
 	private String participantPrivateId;
+	private volatile boolean iceCandidateBatching = false;
+	private volatile OutboundQueue outboundQueue;
+	private volatile Executor requestLane;
+
+	// Participant of the connection and its session, kept once resolved so
+	// requests don't have to look them up
+	private volatile Participant participant;
+	private volatile io.openvidu.server.core.Session participantSession;
 
 	public RpcConnection(Session session) {
 		this.session = session;
@@ -51,6 +62,67 @@ public class RpcConnection {
 		this.sessionId = sessionId;
 	}
 
+	/**
+	 * @return true if the client asked at joinRoom to receive its ICE candidates
+	 *         in batches (iceCandidates notifications)
+	 */
+	public boolean isIceCandidateBatching() {
+		return iceCandidateBatching;
+	}
+
+	public void setIceCandidateBatching(boolean iceCandidateBatching) {
+		this.iceCandidateBatching = iceCandidateBatching;
+	}
+
+	/**
+	 * @return the queue of the messages waiting to be sent to the client, or null
+	 *         if they are sent by the threads producing them
+	 */
+	public OutboundQueue getOutboundQueue() {
+		return outboundQueue;
+	}
+
+	public void setOutboundQueue(OutboundQueue outboundQueue) {
+		this.outboundQueue = outboundQueue;
+	}
+
+	/**
+	 * @return the participant of the connection, or null if it is not known or it
+	 *         has left its session or the session has been closed
+	 */
+	public Participant getParticipant() {
+		Participant participant = this.participant;
+		io.openvidu.server.core.Session session = this.participantSession;
+		if (participant == null || session == null) {
+			return null;
+		}
+		if (participant.isClosed() || session.isClosed()) {
+			this.participant = null;
+			this.participantSession = null;
+			return null;
+		}
+		return participant;
+	}
+
+	public void setParticipant(Participant participant, io.openvidu.server.core.Session session) {
+		// Cleared first, so the participant is never seen along with another session
+		this.participant = null;
+		this.participantSession = session;
+		this.participant = session != null ? participant : null;
+	}
+
+	/**
+	 * @return the executor running the requests of the client in order, or null if
+	 *         they run in the websocket container threads
+	 */
+	public Executor getRequestLane() {
+		return requestLane;
+	}
+
+	public void setRequestLane(Executor requestLane) {
+		this.requestLane = requestLane;
+	}
+
 	public Transaction getTransaction(Integer transactionId) {
 		return transactions.get(transactionId);
 	}
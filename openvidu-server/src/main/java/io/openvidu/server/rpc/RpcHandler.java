@@ -4,6 +4,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.kurento.jsonrpc.DefaultJsonRpcHandler;
 import org.kurento.jsonrpc.Session;
@@ -39,6 +43,25 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private ConcurrentMap<String, Boolean> webSocketTransportError = new ConcurrentHashMap<>();
 
+	// Runs the requests out of the websocket container threads. Null to run them
+	// in the container threads
+	private RequestDispatcher requestDispatcher;
+
+	@PostConstruct
+	public void init() {
+		if (openviduConfig.getRpcDispatchThreads() > 0) {
+			log.info("Requests will be dispatched to {} threads", openviduConfig.getRpcDispatchThreads());
+			requestDispatcher = new RequestDispatcher(openviduConfig.getRpcDispatchThreads());
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		if (requestDispatcher != null) {
+			requestDispatcher.close();
+		}
+	}
+
 	@Override
 	public void handleRequest(Transaction transaction, Request<JsonObject> request) throws Exception {
 
@@ -79,6 +102,44 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 		transaction.startAsync();
 
+		if (sessionManager.isEventLoopMode()) {
+			// Every request of a session runs in its event loop, releasing this thread
+			String loopSessionId = sessionId != null ? sessionId
+					: getStringParam(request, ProtocolElements.JOINROOM_ROOM_PARAM);
+			dispatchRequest(sessionManager.getSessionExecutor(loopSessionId), rpcConnection, request);
+		} else if (requestDispatcher != null) {
+			// Requests of the same connection run in order in its lane, releasing this
+			// thread
+			if (rpcConnection.getRequestLane() == null) {
+				rpcConnection.setRequestLane(requestDispatcher.newLane());
+			}
+			dispatchRequest(rpcConnection.getRequestLane(), rpcConnection, request);
+		} else {
+			dispatchRequest(rpcConnection, request);
+		}
+	}
+
+	/**
+	 * Runs the request in <code>executor</code>. Errors are sent back to the
+	 * client as the response to the request
+	 */
+	private void dispatchRequest(Executor executor, RpcConnection rpcConnection, Request<JsonObject> request) {
+		String participantPrivateId = rpcConnection.getParticipantPrivateId();
+		executor.execute(() -> {
+			try {
+				dispatchRequest(rpcConnection, request);
+			} catch (OpenViduException e) {
+				notificationService.sendErrorResponse(participantPrivateId, request.getId(), null, e);
+			} catch (Exception e) {
+				log.error("Error handling request {} of participant with private id {}", request,
+						participantPrivateId, e);
+				notificationService.sendErrorResponse(participantPrivateId, request.getId(), null,
+						new OpenViduException(Code.GENERIC_ERROR_CODE, e.getMessage()));
+			}
+		});
+	}
+
+	private void dispatchRequest(RpcConnection rpcConnection, Request<JsonObject> request) {
 		switch (request.getMethod()) {
 		case ProtocolElements.JOINROOM_METHOD:
 			joinRoom(rpcConnection, request);
@@ -125,6 +186,14 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			// Nothing happens. 'recorder' param to false
 		}
 
+		boolean iceCandidateBatching = false;
+
+		try {
+			iceCandidateBatching = getBooleanParam(request, ProtocolElements.JOINROOM_ICECANDIDATEBATCHING_PARAM);
+		} catch (RuntimeException e) {
+			// Nothing happens. Clients not aware of batching receive one notification per candidate
+		}
+
 		boolean generateRecorderParticipant = false;
 
 		if (openviduConfig.isOpenViduSecret(secret)) {
@@ -153,6 +222,8 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 				}
 
 				rpcConnection.setSessionId(sessionId);
+				rpcConnection.setParticipant(null, null);
+				rpcConnection.setIceCandidateBatching(iceCandidateBatching);
 				sessionManager.joinRoom(participant, sessionId, request.getId());
 
 			} else {
@@ -193,9 +264,8 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void publishVideo(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
 		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		if (sessionManager.isPublisherInSession(sessionId, participant)) {
 			MediaOptions options = sessionManager.generateMediaOptions(request);
@@ -209,9 +279,7 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void receiveVideoFrom(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
-		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		String senderName = getStringParam(request, ProtocolElements.RECEIVEVIDEO_SENDER_PARAM);
 		senderName = senderName.substring(0, senderName.indexOf("_"));
@@ -222,9 +290,7 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void unsubscribeFromVideo(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
-		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		String senderName = getStringParam(request, ProtocolElements.UNSUBSCRIBEFROMVIDEO_SENDER_PARAM);
 
@@ -233,9 +299,7 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void onIceCandidate(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
-		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		String endpointName = getStringParam(request, ProtocolElements.ONICECANDIDATE_EPNAME_PARAM);
 		String candidate = getStringParam(request, ProtocolElements.ONICECANDIDATE_CANDIDATE_PARAM);
@@ -247,9 +311,7 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void sendMessage(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
-		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		String message = getStringParam(request, ProtocolElements.SENDMESSAGE_MESSAGE_PARAM);
 
@@ -258,13 +320,26 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private void unpublishVideo(RpcConnection rpcConnection, Request<JsonObject> request) {
 
-		String participantPrivateId = rpcConnection.getParticipantPrivateId();
-		String sessionId = rpcConnection.getSessionId();
-		Participant participant = sessionManager.getParticipant(sessionId, participantPrivateId);
+		Participant participant = getParticipant(rpcConnection);
 
 		sessionManager.unpublishVideo(participant, request.getId(), "unpublish");
 	}
 
+	/**
+	 * Returns the participant of the connection. It is only looked up in its
+	 * session the first time: then it is kept in the connection until it leaves
+	 * the session or the session is closed
+	 */
+	private Participant getParticipant(RpcConnection rpcConnection) {
+		Participant participant = rpcConnection.getParticipant();
+		if (participant == null) {
+			String sessionId = rpcConnection.getSessionId();
+			participant = sessionManager.getParticipant(sessionId, rpcConnection.getParticipantPrivateId());
+			rpcConnection.setParticipant(participant, sessionManager.getSession(sessionId));
+		}
+		return participant;
+	}
+
 	public void leaveRoomAfterConnClosed(String participantPrivateId, String reason) {
 		try {
 			sessionManager.evictParticipant(participantPrivateId, reason);
@@ -289,7 +364,8 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 		if (rpc != null && rpc.getSessionId() != null) {
 			io.openvidu.server.core.Session session = this.sessionManager.getSession(rpc.getSessionId());
 			if (session != null && session.getParticipantByPrivateId(rpc.getParticipantPrivateId()) != null) {
-				leaveRoomAfterConnClosed(rpc.getParticipantPrivateId(), "networkDisconnect");
+				sessionManager.getSessionExecutor(rpc.getSessionId()).execute(
+						() -> leaveRoomAfterConnClosed(rpc.getParticipantPrivateId(), "networkDisconnect"));
 			}
 		}
 
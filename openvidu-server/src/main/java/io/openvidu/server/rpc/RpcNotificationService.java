@@ -1,28 +1,93 @@
 package io.openvidu.server.rpc;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.kurento.jsonrpc.Session;
 import org.kurento.jsonrpc.Transaction;
 import org.kurento.jsonrpc.message.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.rpc.OutboundQueue.OverflowPolicy;
 
 public class RpcNotificationService {
 
 	private static final Logger log = LoggerFactory.getLogger(RpcNotificationService.class);
 
+	@Autowired
+	protected OpenviduConfig openviduConfig;
+
 	private ConcurrentMap<String, RpcConnection> rpcConnections = new ConcurrentHashMap<>();
 
+	// Outbound queues are not used (messages are sent by the threads producing
+	// them) while the capacity is 0
+	private int outboundQueueCapacity = 0;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DISCONNECT;
+	private ExecutorService senders;
+
+	private final AtomicLong slowConnectionsClosed = new AtomicLong(0);
+
+	@PostConstruct
+	public void init() {
+		configureOutboundQueues(openviduConfig.getRpcOutboundQueueSize(), openviduConfig.getRpcOverflowPolicy());
+	}
+
+	@PreDestroy
+	public synchronized void close() {
+		if (this.senders != null) {
+			this.senders.shutdownNow();
+			this.senders = null;
+		}
+	}
+
+	/**
+	 * Makes every new connection queue up to <code>capacity</code> notifications,
+	 * sent by a sender thread of the connection. 0 sends them from the threads
+	 * producing them
+	 */
+	public synchronized void configureOutboundQueues(int capacity, OverflowPolicy policy) {
+		this.outboundQueueCapacity = Math.max(0, capacity);
+		this.overflowPolicy = policy;
+		if (this.outboundQueueCapacity > 0 && this.senders == null) {
+			// Each connection uses at most one thread, and only while it has messages
+			// waiting. A slow client doesn't delay the rest of them
+			AtomicInteger threadCount = new AtomicInteger(0);
+			this.senders = Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "rpc-sender-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		log.info("RPC outbound queues: {}", this.outboundQueueCapacity > 0
+				? this.outboundQueueCapacity + " notifications, overflow policy " + policy
+				: "disabled");
+	}
+
 	public RpcConnection newRpcConnection(Transaction t, Request<JsonObject> request) {
 		String participantPrivateId = t.getSession().getSessionId();
 		RpcConnection connection = new RpcConnection(t.getSession());
+		OutboundQueue outboundQueue = newOutboundQueue(connection);
+		if (outboundQueue != null) {
+			connection.setOutboundQueue(outboundQueue);
+		}
 		RpcConnection oldConnection = rpcConnections.putIfAbsent(participantPrivateId, connection);
 		if (oldConnection != null) {
 			log.warn("Concurrent initialization of rpcSession #{}", participantPrivateId);
@@ -45,6 +110,11 @@ public class RpcNotificationService {
 					transactionId, participantPrivateId, result);
 			return;
 		}
+		OutboundQueue outboundQueue = getOutboundQueue(participantPrivateId);
+		if (outboundQueue != null) {
+			outboundQueue.offerResponse(() -> t.sendResponse(result));
+			return;
+		}
 		try {
 			t.sendResponse(result);
 		} catch (Exception e) {
@@ -60,8 +130,13 @@ public class RpcNotificationService {
 					transactionId, participantPrivateId, data);
 			return;
 		}
+		String dataVal = data != null ? data.toString() : null;
+		OutboundQueue outboundQueue = getOutboundQueue(participantPrivateId);
+		if (outboundQueue != null) {
+			outboundQueue.offerResponse(() -> t.sendError(error.getCodeValue(), error.getMessage(), dataVal));
+			return;
+		}
 		try {
-			String dataVal = data != null ? data.toString() : null;
 			t.sendError(error.getCodeValue(), error.getMessage(), dataVal);
 		} catch (Exception e) {
 			log.error("Exception sending error response to user ({})", transactionId, e);
@@ -77,6 +152,11 @@ public class RpcNotificationService {
 		}
 		Session s = rpcSession.getSession();
 
+		OutboundQueue outboundQueue = rpcSession.getOutboundQueue();
+		if (outboundQueue != null) {
+			outboundQueue.offerNotification(method, params, () -> s.sendNotification(method, params));
+			return;
+		}
 		try {
 			s.sendNotification(method, params);
 		} catch (Exception e) {
@@ -85,6 +165,22 @@ public class RpcNotificationService {
 		}
 	}
 
+	/**
+	 * Sends the same notification to all the participants in
+	 * <code>participantPrivateIds</code>. Its params are serialized only once for
+	 * all of them
+	 */
+	public void broadcastNotification(Collection<String> participantPrivateIds, final String method,
+			final JsonElement params) {
+		if (participantPrivateIds.isEmpty()) {
+			return;
+		}
+		SerializedParams serializedParams = SerializedParams.of(params);
+		for (String participantPrivateId : participantPrivateIds) {
+			sendNotification(participantPrivateId, method, serializedParams);
+		}
+	}
+
 	public RpcConnection closeRpcSession(String participantPrivateId) {
 		RpcConnection rpcSession = rpcConnections.remove(participantPrivateId);
 		if (rpcSession == null || rpcSession.getSession() == null) {
@@ -102,6 +198,57 @@ public class RpcNotificationService {
 		return null;
 	}
 
+	/**
+	 * @return the outbound queue of each connection that has one, by participant
+	 *         private id
+	 */
+	public Map<String, OutboundQueue> getOutboundQueues() {
+		Map<String, OutboundQueue> queues = new HashMap<>();
+		for (RpcConnection connection : this.rpcConnections.values()) {
+			OutboundQueue outboundQueue = connection.getOutboundQueue();
+			if (outboundQueue != null) {
+				queues.put(connection.getParticipantPrivateId(), outboundQueue);
+			}
+		}
+		return queues;
+	}
+
+	/**
+	 * @return number of connections closed because their client didn't receive
+	 *         its notifications fast enough
+	 */
+	public long getSlowConnectionsClosed() {
+		return this.slowConnectionsClosed.get();
+	}
+
+	private synchronized OutboundQueue newOutboundQueue(RpcConnection connection) {
+		if (this.outboundQueueCapacity == 0) {
+			return null;
+		}
+		String participantPrivateId = connection.getParticipantPrivateId();
+		return new OutboundQueue(participantPrivateId, this.outboundQueueCapacity, this.overflowPolicy,
+				this.senders, () -> closeSlowConnection(connection));
+	}
+
+	private void closeSlowConnection(RpcConnection connection) {
+		this.slowConnectionsClosed.incrementAndGet();
+		OutboundQueue outboundQueue = connection.getOutboundQueue();
+		log.warn("Closing connection of participant with private id {}: {} notifications dropped",
+				connection.getParticipantPrivateId(), outboundQueue != null ? outboundQueue.getDropped() : 0);
+		try {
+			// The participant is evicted when the connection is closed
+			connection.getSession().close();
+		} catch (IOException e) {
+			log.error("Error closing session for participant with private id {}", connection.getParticipantPrivateId(),
+					e);
+		}
+	}
+
+	private OutboundQueue getOutboundQueue(String participantPrivateId) {
+		RpcConnection rpcSession = rpcConnections.get(participantPrivateId);
+		return rpcSession != null ? rpcSession.getOutboundQueue() : null;
+	}
+
 	private Transaction getAndRemoveTransaction(String participantPrivateId, Integer transactionId) {
 		RpcConnection rpcSession = rpcConnections.get(participantPrivateId);
 		if (rpcSession == null) {
@@ -0,0 +1,91 @@
+package io.openvidu.server.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.internal.bind.JsonTreeWriter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Params of a notification already serialized to JSON. The same instance can be
+ * sent to any number of participants: Gson copies the serialized JSON into each
+ * message instead of serializing the params again for every recipient.
+ * Messages serialized into a JsonElement tree (Gson#toJsonTree) can't take raw
+ * JSON, so the params are copied into the tree for each of them. Those copies
+ * are counted in {@link #getTreeFallbacks()}.
+ */
+@JsonAdapter(SerializedParams.Adapter.class)
+public final class SerializedParams {
+
+	private static final Logger log = LoggerFactory.getLogger(SerializedParams.class);
+
+	private static final TypeAdapter<JsonElement> JSON_ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+	private static final AtomicLong treeFallbacks = new AtomicLong(0);
+
+	private final String json;
+	private final JsonElement params;
+
+	private SerializedParams(JsonElement params) {
+		this.params = params;
+		this.json = params.toString();
+	}
+
+	public static SerializedParams of(JsonElement params) {
+		return new SerializedParams(params);
+	}
+
+	public String getJson() {
+		return json;
+	}
+
+	public JsonElement getParams() {
+		return params;
+	}
+
+	@Override
+	public String toString() {
+		return json;
+	}
+
+	/**
+	 * @return number of times some params were copied into a JsonElement tree
+	 *         (Gson#toJsonTree) instead of being written as raw JSON
+	 */
+	public static long getTreeFallbacks() {
+		return treeFallbacks.get();
+	}
+
+	public static class Adapter extends TypeAdapter<SerializedParams> {
+
+		@Override
+		public void write(JsonWriter out, SerializedParams value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+			} else if (out instanceof JsonTreeWriter) {
+				// Writers building a JsonElement tree can't take raw JSON, so the
+				// params are copied for each recipient
+				treeFallbacks.incrementAndGet();
+				log.debug("Params copied into a JSON tree instead of written as raw JSON");
+				JSON_ELEMENT_ADAPTER.write(out, value.params);
+			} else {
+				out.jsonValue(value.json);
+			}
+		}
+
+		@Override
+		public SerializedParams read(JsonReader in) throws IOException {
+			return new SerializedParams(new JsonParser().parse(in));
+		}
+	}
+
+}
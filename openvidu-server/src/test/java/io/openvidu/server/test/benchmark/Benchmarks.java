@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Helpers for the benchmarks of this package. Benchmarks are not unit tests:
+ * their names don't end in "Test", so the build doesn't run them and wall
+ * clock figures never fail a build. They only log what they measure. Run one
+ * with <code>mvn test -Dtest=SessionLocksBenchmark</code>.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Runs <code>task</code> once to warm it up and then <code>rounds</code>
+	 * times
+	 *
+	 * @return nanoseconds of the fastest round
+	 */
+	public static long bestOf(int rounds, Callable<?> task) throws Exception {
+		task.call();
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < rounds; i++) {
+			long start = System.nanoTime();
+			task.call();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+}
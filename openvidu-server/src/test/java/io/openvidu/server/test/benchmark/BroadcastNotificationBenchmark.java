@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Test;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.message.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.SerializedParams;
+
+/**
+ * Cost of serializing a notification broadcast to every participant of a
+ * session through kurento-jsonrpc, serializing its params for each recipient
+ * or once with {@link SerializedParams}.
+ */
+public class BroadcastNotificationBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(BroadcastNotificationBenchmark.class);
+
+	private static final int RECIPIENTS = 500;
+	private static final int ROUNDS = 200;
+
+	@Test
+	public void broadcast() throws Exception {
+		JsonObject params = participantPublished();
+		long perRecipientNanos = Benchmarks.bestOf(ROUNDS, () -> perRecipient(params));
+		long broadcastNanos = Benchmarks.bestOf(ROUNDS, () -> broadcast(params));
+		log.info("Notification to {} recipients: {} us serializing params per recipient, {} us serializing once",
+				RECIPIENTS, perRecipientNanos / 1000, broadcastNanos / 1000);
+	}
+
+	private long perRecipient(JsonObject params) {
+		long bytes = 0;
+		for (int i = 0; i < RECIPIENTS; i++) {
+			bytes += JsonUtils.toJson(new Request<>(ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params)).length();
+		}
+		return bytes;
+	}
+
+	private long broadcast(JsonObject params) {
+		SerializedParams serializedParams = SerializedParams.of(params);
+		long bytes = 0;
+		for (int i = 0; i < RECIPIENTS; i++) {
+			bytes += JsonUtils.toJson(new Request<>(ProtocolElements.PARTICIPANTPUBLISHED_METHOD, serializedParams))
+					.length();
+		}
+		return bytes;
+	}
+
+	private JsonObject participantPublished() {
+		JsonObject stream = new JsonObject();
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_STREAMID_PARAM, "con_abcdefghij_CAMERA");
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_AUDIOACTIVE_PARAM, true);
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_VIDEOACTIVE_PARAM, true);
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_TYPEOFVIDEO_PARAM, "CAMERA");
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_FRAMERATE_PARAM, 30);
+		JsonArray streams = new JsonArray();
+		streams.add(stream);
+		JsonObject params = new JsonObject();
+		params.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM, "con_abcdefghij");
+		params.addProperty("metadata", RandomStringUtils.randomAlphanumeric(500));
+		params.add(ProtocolElements.PARTICIPANTPUBLISHED_STREAMS_PARAM, streams);
+		return params;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.openvidu.server.config.InfoHandler;
+
+/**
+ * Measures how long {@link InfoHandler#sendInfo(String, String)} takes to
+ * queue a burst of messages for a client that is slow to receive them,
+ * compared to the time it would take to send them synchronously.
+ */
+public class InfoHandlerBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(InfoHandlerBenchmark.class);
+
+	private static final int BUFFER_SIZE = 100;
+	private static final int MESSAGES = 2000;
+	private static final long SLOW_CLIENT_MILLIS = 20;
+
+	@Test
+	public void slowClientBurst() throws Exception {
+		InfoHandler infoHandler = new InfoHandler(BUFFER_SIZE);
+		try {
+			infoHandler.afterConnectionEstablished(slowSession());
+			long start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				infoHandler.sendInfo("session", "Media flow in state change " + i);
+			}
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			log.info("{} messages queued in {} ms for a client taking {} ms per message ({} ms if sent "
+					+ "synchronously), {} dropped", MESSAGES, elapsedMillis, SLOW_CLIENT_MILLIS,
+					MESSAGES * SLOW_CLIENT_MILLIS, infoHandler.getDropped());
+		} finally {
+			infoHandler.close();
+		}
+	}
+
+	private WebSocketSession slowSession() {
+		return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+				new Class<?>[] { WebSocketSession.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getId":
+						return "slow";
+					case "sendMessage":
+						Thread.sleep(SLOW_CLIENT_MILLIS);
+						return null;
+					default:
+						return null;
+					}
+				});
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.test.core.FakePipelinePool;
+
+/**
+ * Subscribe storm benchmark for KurentoSession#getParticipantByPublicId. When a
+ * webinar fills up every participant subscribes to every other one, so the
+ * session resolves N * (N - 1) public ids. Compares the public id index against
+ * scanning the participants of the session, as the lookup did before.
+ */
+public class ParticipantLookupBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(ParticipantLookupBenchmark.class);
+
+	private static final int PARTICIPANTS = 300;
+	private static final int ROUNDS = 5;
+
+	@Test
+	public void subscribeStorm() throws Exception {
+		KurentoSession session = new KurentoSession("session", new SessionProperties.Builder().build(), null,
+				new FakePipelinePool(), new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			session.join(new Participant("privateId" + i, "con_" + i, new Token("token" + i), ""));
+		}
+
+		Function<String, Participant> scan = publicId -> {
+			for (Participant p : session.getParticipants()) {
+				if (p.getParticipantPublicId().equals(publicId)) {
+					return p;
+				}
+			}
+			return null;
+		};
+
+		long scanNanos = Benchmarks.bestOf(ROUNDS, () -> subscribeStorm(scan));
+		long indexNanos = Benchmarks.bestOf(ROUNDS, () -> subscribeStorm(session::getParticipantByPublicId));
+		log.info("Subscribe storm with {} participants: scan {} ms, public id index {} ms", PARTICIPANTS,
+				scanNanos / 1e6, indexNanos / 1e6);
+	}
+
+	private int subscribeStorm(Function<String, Participant> getParticipantByPublicId) {
+		int found = 0;
+		for (int subscriber = 0; subscriber < PARTICIPANTS; subscriber++) {
+			for (int publisher = 0; publisher < PARTICIPANTS; publisher++) {
+				if (subscriber != publisher && getParticipantByPublicId.apply("con_" + publisher) != null) {
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+
+}
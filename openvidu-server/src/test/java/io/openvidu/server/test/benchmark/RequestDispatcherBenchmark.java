@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.rpc.RequestDispatcher;
+
+/**
+ * Burst of negotiations, each one blocking the thread running it while waiting
+ * for KMS, run in the websocket container threads or dispatched out of them.
+ * The container is simulated with a pool of the same size as Tomcat's default,
+ * and the dispatcher has the same number of threads, so dispatching only moves
+ * where the requests wait: it keeps the container free to receive other
+ * messages, but negotiations don't complete sooner.
+ */
+public class RequestDispatcherBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(RequestDispatcherBenchmark.class);
+
+	private static final int THREADS = 200;
+	private static final int NEGOTIATIONS = 10000;
+	private static final long KMS_WAIT_MILLIS = 20;
+
+	@Test
+	public void negotiationBurst() throws Exception {
+		long[] inContainer = negotiate(null);
+		RequestDispatcher dispatcher = new RequestDispatcher(THREADS);
+		try {
+			long[] dispatching = negotiate(dispatcher);
+			log.info("{} negotiations, {} container threads, {} dispatcher threads. Longest wait for a container "
+					+ "thread: {} ms in the container, {} ms dispatching. All negotiations done in {} ms in the "
+					+ "container, {} ms dispatching", NEGOTIATIONS, THREADS, THREADS, inContainer[0],
+					dispatching[0], inContainer[1], dispatching[1]);
+		} finally {
+			dispatcher.close();
+		}
+	}
+
+	/**
+	 * @return longest time (in milliseconds) a negotiation waited for a container
+	 *         thread to receive it, and milliseconds until all of them completed
+	 */
+	private long[] negotiate(RequestDispatcher dispatcher) throws Exception {
+		ThreadPoolExecutor container = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>());
+		AtomicLong maxWaitNanos = new AtomicLong(0);
+		CountDownLatch done = new CountDownLatch(NEGOTIATIONS);
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < NEGOTIATIONS; i++) {
+				Runnable negotiation = () -> {
+					try {
+						Thread.sleep(KMS_WAIT_MILLIS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					done.countDown();
+				};
+				Executor lane = dispatcher != null ? dispatcher.newLane() : null;
+				long received = System.nanoTime();
+				container.execute(() -> {
+					maxWaitNanos.accumulateAndGet(System.nanoTime() - received, Math::max);
+					if (lane != null) {
+						lane.execute(negotiation);
+					} else {
+						negotiation.run();
+					}
+				});
+			}
+			done.await(1, TimeUnit.MINUTES);
+		} finally {
+			container.shutdownNow();
+		}
+		return new long[] { TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) };
+	}
+
+}
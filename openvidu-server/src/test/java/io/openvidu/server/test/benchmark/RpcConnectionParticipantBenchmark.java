@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.test.core.FakePipelinePool;
+
+/**
+ * Cost of resolving the participant of every request with a lookup in its
+ * session (as SessionManager#getParticipant does) against the participant kept
+ * by its {@link RpcConnection}.
+ */
+public class RpcConnectionParticipantBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(RpcConnectionParticipantBenchmark.class);
+
+	private static final int SESSIONS = 100;
+	private static final int PARTICIPANTS_PER_SESSION = 10;
+	private static final int MESSAGES_PER_PARTICIPANT = 200;
+	private static final int ROUNDS = 5;
+
+	@Test
+	public void perMessageDispatchCost() throws Exception {
+		ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+		List<RpcConnection> connections = new ArrayList<>();
+		for (int s = 0; s < SESSIONS; s++) {
+			KurentoSession session = new KurentoSession("wss://localhost:8443/session" + s,
+					new SessionProperties.Builder().build(), null, new FakePipelinePool(),
+					new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+			sessions.put(session.getSessionId(), session);
+			for (int p = 0; p < PARTICIPANTS_PER_SESSION; p++) {
+				String privateId = "privateId" + s + "_" + p;
+				session.join(new Participant(privateId, "con_" + s + "_" + p, new Token("token" + privateId), ""));
+				RpcConnection connection = connection(privateId);
+				connection.setSessionId(session.getSessionId());
+				connections.add(connection);
+			}
+		}
+
+		Function<RpcConnection, Participant> lookup = connection -> sessions.get(connection.getSessionId())
+				.getParticipantByPrivateId(connection.getParticipantPrivateId());
+		Function<RpcConnection, Participant> kept = connection -> {
+			Participant participant = connection.getParticipant();
+			if (participant == null) {
+				Session session = sessions.get(connection.getSessionId());
+				participant = session.getParticipantByPrivateId(connection.getParticipantPrivateId());
+				connection.setParticipant(participant, session);
+			}
+			return participant;
+		};
+
+		long lookupNanos = Benchmarks.bestOf(ROUNDS, () -> dispatch(connections, lookup));
+		long keptNanos = Benchmarks.bestOf(ROUNDS, () -> dispatch(connections, kept));
+		int messages = connections.size() * MESSAGES_PER_PARTICIPANT;
+		log.info("Resolving the participant of {} messages: session lookup {} ns/message, kept in the connection {} "
+				+ "ns/message", messages, lookupNanos / messages, keptNanos / messages);
+	}
+
+	private int dispatch(List<RpcConnection> connections, Function<RpcConnection, Participant> resolver) {
+		int resolved = 0;
+		for (int m = 0; m < MESSAGES_PER_PARTICIPANT; m++) {
+			// Messages of different connections interleaved, as they arrive
+			for (RpcConnection connection : connections) {
+				if (resolver.apply(connection) != null) {
+					resolved++;
+				}
+			}
+		}
+		return resolved;
+	}
+
+	private RpcConnection connection(String participantPrivateId) {
+		org.kurento.jsonrpc.Session session = (org.kurento.jsonrpc.Session) Proxy.newProxyInstance(
+				org.kurento.jsonrpc.Session.class.getClassLoader(), new Class<?>[] { org.kurento.jsonrpc.Session.class },
+				(proxy, method, args) -> "getSessionId".equals(method.getName()) ? participantPrivateId : null);
+		return new RpcConnection(session);
+	}
+
+}
@@ -0,0 +1,219 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.core.SessionEventLoops;
+import io.openvidu.server.core.SessionLocks;
+
+/**
+ * Compares the two ways of serializing the operations on a session: locks
+ * taken by the threads serving the requests, and an event loop per session. The
+ * workload is made of many small sessions whose participants keep joining and
+ * leaving, each operation changing the state of the session the same way
+ * KurentoSessionManager does (participants, tokens and the reverse index of
+ * participants).
+ */
+public class SessionEventLoopsBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionEventLoopsBenchmark.class);
+
+	private static final int SESSIONS = 1000;
+	private static final int BUSY_SESSIONS = 8;
+	private static final int PARTICIPANTS_PER_SESSION = 4;
+	private static final int OPERATIONS_PER_THREAD = 20000;
+	private static final int ROUNDS = 3;
+
+	private final SessionEventLoops eventLoops = new SessionEventLoops(4);
+
+	@After
+	public void close() {
+		eventLoops.close();
+	}
+
+	@Test
+	public void manySmallSessionsThroughput() throws Exception {
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		for (int sessionCount : new int[] { SESSIONS, BUSY_SESSIONS }) {
+			double locksThroughput = 0;
+			double eventLoopsThroughput = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				locksThroughput = throughput(threads, sessionCount, new LockedSessions());
+				eventLoopsThroughput = throughput(threads, sessionCount, new EventLoopSessions(eventLoops));
+			}
+			log.info("{} sessions, {} threads: locks {} ops/s | {} event loops {} ops/s", sessionCount, threads,
+					(long) locksThroughput, eventLoops.getThreads(), (long) eventLoopsThroughput);
+		}
+	}
+
+	private interface Sessions {
+		void join(String sessionId, String participantId, Runnable done);
+
+		void leave(String sessionId, String participantId, Runnable done);
+
+		int participants();
+	}
+
+	/**
+	 * Concurrent maps plus a lock per session held while joining and leaving
+	 */
+	private static class LockedSessions implements Sessions {
+
+		private final SessionLocks locks = new SessionLocks();
+		private final Map<String, Map<String, String>> participants = new ConcurrentHashMap<>();
+		private final Map<String, Map<String, String>> tokens = new ConcurrentHashMap<>();
+		private final Map<String, String> participantSession = new ConcurrentHashMap<>();
+
+		@Override
+		public void join(String sessionId, String participantId, Runnable done) {
+			Lock lock = locks.get(sessionId);
+			lock.lock();
+			try {
+				participants.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(participantId, sessionId);
+				tokens.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(participantId, participantId);
+				participantSession.put(participantId, sessionId);
+			} finally {
+				lock.unlock();
+			}
+			done.run();
+		}
+
+		@Override
+		public void leave(String sessionId, String participantId, Runnable done) {
+			Lock lock = locks.get(sessionId);
+			lock.lock();
+			try {
+				Map<String, String> sessionParticipants = participants.get(sessionId);
+				if (sessionParticipants != null && sessionParticipants.remove(participantId) != null) {
+					tokens.get(sessionId).remove(participantId);
+					participantSession.remove(participantId);
+					if (sessionParticipants.isEmpty()) {
+						participants.remove(sessionId);
+						tokens.remove(sessionId);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+			done.run();
+		}
+
+		@Override
+		public int participants() {
+			return participantSession.size();
+		}
+	}
+
+	/**
+	 * Plain maps per session, only touched by the event loop of the session
+	 */
+	private static class EventLoopSessions implements Sessions {
+
+		private static class State {
+			private final Map<String, String> participants = new HashMap<>();
+			private final Set<String> tokens = new HashSet<>();
+		}
+
+		private final SessionEventLoops eventLoops;
+		private final Map<String, State> sessions = new ConcurrentHashMap<>();
+		private final Map<String, String> participantSession = new ConcurrentHashMap<>();
+
+		private EventLoopSessions(SessionEventLoops eventLoops) {
+			this.eventLoops = eventLoops;
+		}
+
+		@Override
+		public void join(String sessionId, String participantId, Runnable done) {
+			eventLoops.get(sessionId).execute(() -> {
+				State state = sessions.computeIfAbsent(sessionId, id -> new State());
+				state.participants.put(participantId, sessionId);
+				state.tokens.add(participantId);
+				participantSession.put(participantId, sessionId);
+				done.run();
+			});
+		}
+
+		@Override
+		public void leave(String sessionId, String participantId, Runnable done) {
+			eventLoops.get(sessionId).execute(() -> {
+				State state = sessions.get(sessionId);
+				if (state != null && state.participants.remove(participantId) != null) {
+					state.tokens.remove(participantId);
+					participantSession.remove(participantId);
+					if (state.participants.isEmpty()) {
+						sessions.remove(sessionId);
+					}
+				}
+				done.run();
+			});
+		}
+
+		@Override
+		public int participants() {
+			return participantSession.size();
+		}
+	}
+
+	private double throughput(int threads, int sessionCount, Sessions sessions) throws Exception {
+		int operations = threads * OPERATIONS_PER_THREAD;
+		CountDownLatch done = new CountDownLatch(operations);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService requestThreads = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			requestThreads.submit(() -> {
+				start.await();
+				for (int i = 0; i < OPERATIONS_PER_THREAD; i += 2) {
+					int n = thread * OPERATIONS_PER_THREAD + i;
+					String sessionId = "wss://localhost:8443/session" + (n % sessionCount);
+					String participantId = sessionId + "/" + (n / sessionCount % PARTICIPANTS_PER_SESSION) + "/"
+							+ thread;
+					sessions.join(sessionId, participantId, done::countDown);
+					sessions.leave(sessionId, participantId, done::countDown);
+				}
+				return null;
+			});
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		assertTrue(done.await(1, TimeUnit.MINUTES));
+		long elapsed = System.nanoTime() - startTime;
+		requestThreads.shutdown();
+		// Every join was followed by its leave, in order
+		assertEquals(0, sessions.participants());
+		return operations / (elapsed / 1e9);
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.core.SessionLocks;
+
+/**
+ * Contention benchmark for the per-session locks used when joining sessions.
+ * Each simulated join holds the lock of its session while "waiting" for the
+ * media server, the same way KurentoSessionManager#joinRoom did while the
+ * MediaPipeline was being created, before it waited for it asynchronously.
+ */
+public class SessionLocksBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionLocksBenchmark.class);
+
+	private static final int SESSIONS = 64;
+	private static final int JOINS_PER_THREAD = 50;
+	private static final long KMS_WAIT_MILLIS = 2;
+
+	@Test
+	public void joinThroughput() throws InterruptedException {
+		int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		final ReentrantLock globalLock = new ReentrantLock();
+		final SessionLocks sessionLocks = new SessionLocks();
+
+		log.info("threads | global lock (joins/s) | session locks (joins/s)");
+		for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+			double globalThroughput = joinThroughput(threads, sessionId -> globalLock);
+			double stripedThroughput = joinThroughput(threads, sessionId -> sessionLocks.get(sessionId));
+			log.info("{} | {} | {}", threads, (long) globalThroughput, (long) stripedThroughput);
+		}
+	}
+
+	private double joinThroughput(int threads, Function<String, Lock> lockForSession)
+			throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger joins = new AtomicInteger();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < JOINS_PER_THREAD; i++) {
+					String sessionId = "wss://localhost:8443/session" + ((thread * JOINS_PER_THREAD + i) % SESSIONS);
+					Lock lock = lockForSession.apply(sessionId);
+					lock.lock();
+					try {
+						Thread.sleep(KMS_WAIT_MILLIS);
+						joins.incrementAndGet();
+					} finally {
+						lock.unlock();
+					}
+				}
+				return null;
+			});
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		long elapsed = System.nanoTime() - startTime;
+		assertEquals(threads * JOINS_PER_THREAD, joins.get());
+		return joins.get() / (elapsed / 1e9);
+	}
+
+}
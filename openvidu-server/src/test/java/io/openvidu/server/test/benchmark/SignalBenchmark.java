@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Signal;
+import io.openvidu.server.core.Token;
+
+/**
+ * Compares the cost of resolving the recipients of signals in a large session:
+ * parsing the whole message and scanning the participants once per target (as
+ * it used to be done) against reading the message in a single pass with
+ * {@link Signal#parse(String)} and resolving each target by its public id.
+ */
+public class SignalBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(SignalBenchmark.class);
+
+	private static final int PARTICIPANTS = 500;
+	private static final int TARGETS = 50;
+	private static final int SIGNALS = 2000;
+	private static final int ROUNDS = 5;
+
+	@Test
+	public void recipientsResolution() throws Exception {
+		Set<Participant> participants = new HashSet<>();
+		Map<String, Participant> participantsByPublicId = new HashMap<>();
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			Participant p = new Participant("privateId" + i, "con_" + i, new Token("token" + i), "");
+			participants.add(p);
+			participantsByPublicId.put(p.getParticipantPublicId(), p);
+		}
+		JsonObject message = new JsonObject();
+		message.addProperty("data", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+		message.addProperty("type", "signal:chat");
+		JsonArray to = new JsonArray();
+		for (int i = 0; i < TARGETS; i++) {
+			to.add("con_" + (i * PARTICIPANTS / TARGETS));
+		}
+		message.add("to", to);
+		String signal = message.toString();
+
+		Function<String, List<String>> scan = m -> {
+			JsonObject json = new JsonParser().parse(m).getAsJsonObject();
+			json.get("data").getAsString();
+			json.get("type").getAsString();
+			Set<String> targets = new HashSet<>();
+			for (int i = 0; i < json.get("to").getAsJsonArray().size(); i++) {
+				targets.add(json.get("to").getAsJsonArray().get(i).getAsString());
+			}
+			List<String> recipients = new ArrayList<>();
+			for (String target : targets) {
+				Optional<Participant> p = participants.stream()
+						.filter(x -> target.equals(x.getParticipantPublicId())).findFirst();
+				recipients.add(p.get().getParticipantPrivateId());
+			}
+			return recipients;
+		};
+		Function<String, List<String>> index = m -> {
+			List<String> recipients = new ArrayList<>();
+			for (String target : Signal.parse(m).getTo()) {
+				recipients.add(participantsByPublicId.get(target).getParticipantPrivateId());
+			}
+			return recipients;
+		};
+
+		long scanNanos = Benchmarks.bestOf(ROUNDS, () -> resolve(signal, scan));
+		long indexNanos = Benchmarks.bestOf(ROUNDS, () -> resolve(signal, index));
+		log.info("{} signals to {} of {} participants: tree parse and scan {} us/signal, streaming parse and "
+				+ "public id index {} us/signal", SIGNALS, TARGETS, PARTICIPANTS, scanNanos / SIGNALS / 1000.0,
+				indexNanos / SIGNALS / 1000.0);
+	}
+
+	private int resolve(String signal, Function<String, List<String>> resolver) {
+		for (int i = 0; i < SIGNALS; i++) {
+			assertEquals(TARGETS, resolver.apply(signal).size());
+		}
+		return SIGNALS;
+	}
+
+}
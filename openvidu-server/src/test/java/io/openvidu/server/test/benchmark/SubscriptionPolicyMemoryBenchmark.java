@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.benchmark;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.java.client.SubscriptionPolicy;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.test.core.FakePipelinePool;
+
+/**
+ * Heap used by the subscriber endpoints of a 200 participant session where only
+ * a few participants publish, for each subscription policy. Heap figures after
+ * System.gc() are approximate, so they are only logged.
+ */
+public class SubscriptionPolicyMemoryBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(SubscriptionPolicyMemoryBenchmark.class);
+
+	private static final int PARTICIPANTS = 200;
+	private static final int PUBLISHERS = 10;
+
+	@Test
+	public void subscriberEndpointsFor200Participants() {
+		// Warm up class loading before measuring
+		run(SubscriptionPolicy.EAGER);
+
+		for (SubscriptionPolicy policy : SubscriptionPolicy.values()) {
+			long heapBefore = usedHeap();
+			KurentoSession session = run(policy);
+			long heapBytes = usedHeap() - heapBefore;
+			long subscribers = 0;
+			for (Participant p : session.getParticipants()) {
+				subscribers += ((KurentoParticipant) p).getSubscriberCount();
+			}
+			log.info("{} participants, {} publishers. {}: {} subscribers, {} KB", PARTICIPANTS, PUBLISHERS, policy,
+					subscribers, heapBytes / 1024);
+			session.close("sessionClosedByServer");
+		}
+	}
+
+	private KurentoSession run(SubscriptionPolicy policy) {
+		KurentoSession session = new KurentoSession("session-" + policy,
+				new SessionProperties.Builder().subscriptionPolicy(policy).build(), null, new FakePipelinePool(),
+				new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			session.join(new Participant("privateId" + i, "con_" + i, new Token("token" + i), ""));
+			if (i % (PARTICIPANTS / PUBLISHERS) == 0) {
+				KurentoParticipant publisher = (KurentoParticipant) session.getParticipantByPrivateId("privateId" + i);
+				publisher.setStreaming(true);
+				session.newPublisher(publisher);
+			}
+		}
+		return session;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
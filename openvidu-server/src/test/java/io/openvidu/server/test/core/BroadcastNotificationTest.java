@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Test;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.rpc.SerializedParams;
+
+public class BroadcastNotificationTest {
+
+	private static final int RECIPIENTS = 500;
+
+	private static final Gson gson = new Gson();
+
+	/**
+	 * Same shape as the JSON-RPC notifications serialized by kurento-jsonrpc
+	 */
+	@SuppressWarnings("unused")
+	private static class Notification {
+
+		private final String jsonrpc = "2.0";
+		private final String method;
+		private final Object params;
+
+		private Notification(String method, Object params) {
+			this.method = method;
+			this.params = params;
+		}
+	}
+
+	@Test
+	public void serializedParamsProduceTheSameMessage() {
+		JsonObject params = participantPublished();
+		Notification plain = new Notification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
+		Notification serialized = new Notification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				SerializedParams.of(params));
+
+		assertEquals(gson.toJson(plain), gson.toJson(serialized));
+		assertEquals(gson.toJsonTree(plain), gson.toJsonTree(serialized));
+		assertEquals(params, gson.toJsonTree(gson.fromJson(gson.toJson(params), SerializedParams.class)));
+	}
+
+	@Test
+	public void broadcastSharesOnePayload() {
+		Map<Object, Integer> payloads = new IdentityHashMap<>();
+		List<String> recipients = new ArrayList<>();
+		RpcNotificationService notificationService = new RpcNotificationService() {
+			@Override
+			public void sendNotification(String participantPrivateId, String method, Object params) {
+				recipients.add(participantPrivateId);
+				payloads.merge(params, 1, Integer::sum);
+			}
+		};
+		List<String> participants = new ArrayList<>();
+		for (int i = 0; i < RECIPIENTS; i++) {
+			participants.add("participant" + i);
+		}
+		notificationService.broadcastNotification(participants, ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				participantPublished());
+
+		assertEquals(participants, recipients);
+		assertEquals(1, payloads.size());
+		assertSame(SerializedParams.class, payloads.keySet().iterator().next().getClass());
+	}
+
+	@Test
+	public void kurentoJsonRpcWritesRawParams() {
+		JsonObject params = participantPublished();
+		Request<Object> plain = new Request<>(ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
+		Request<Object> serialized = new Request<>(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				SerializedParams.of(params));
+
+		long fallbacks = SerializedParams.getTreeFallbacks();
+		assertEquals(JsonUtils.toJson(plain), JsonUtils.toJson(serialized));
+		assertEquals(fallbacks, SerializedParams.getTreeFallbacks());
+
+		// Trees can't take raw JSON
+		assertEquals(JsonUtils.toJsonObject(plain), JsonUtils.toJsonObject(serialized));
+		assertEquals(fallbacks + 1, SerializedParams.getTreeFallbacks());
+	}
+
+	private JsonObject participantPublished() {
+		JsonObject stream = new JsonObject();
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_STREAMID_PARAM, "con_abcdefghij_CAMERA");
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_AUDIOACTIVE_PARAM, true);
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_VIDEOACTIVE_PARAM, true);
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_TYPEOFVIDEO_PARAM, "CAMERA");
+		stream.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_FRAMERATE_PARAM, 30);
+		JsonArray streams = new JsonArray();
+		streams.add(stream);
+		JsonObject params = new JsonObject();
+		params.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM, "con_abcdefghij");
+		params.addProperty("metadata", RandomStringUtils.randomAlphanumeric(500));
+		params.add(ProtocolElements.PARTICIPANTPUBLISHED_STREAMS_PARAM, streams);
+		return params;
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.kurento.client.SdpEndpoint;
+import org.kurento.client.WebRtcEndpoint;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.InfoHandler;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.kurento.endpoint.EndpointEvent;
+import io.openvidu.server.kurento.endpoint.MediaEndpoint;
+import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
+import io.openvidu.server.kurento.endpoint.SubscriberEndpoint;
+
+public class EndpointEventSubscriptionTest {
+
+	private static final Logger log = LoggerFactory.getLogger(EndpointEventSubscriptionTest.class);
+
+	private static final int PARTICIPANTS = 50;
+
+	@Test
+	public void eventsAreParsed() {
+		assertTrue(EndpointEvent.parse("").isEmpty());
+		assertTrue(EndpointEvent.parse(null).isEmpty());
+		assertEquals(EnumSet.of(EndpointEvent.ERROR, EndpointEvent.MEDIA_FLOW_IN),
+				EndpointEvent.parse("error, media_flow_in"));
+		assertEquals(EnumSet.allOf(EndpointEvent.class), EndpointEvent.parse("ALL"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownEventsAreRejected() {
+		EndpointEvent.parse("ERROR,ELEMENT_CONNECTED");
+	}
+
+	@Test
+	public void eventsAreSubscribedOnlyOnce() {
+		MediaEndpoint endpoint = new SubscriberEndpoint(true, null, "endpoint", null);
+		assertEquals(EnumSet.of(EndpointEvent.ERROR), endpoint.newEventSubscriptions(EnumSet.of(EndpointEvent.ERROR)));
+		Set<EndpointEvent> rest = endpoint.newEventSubscriptions(EnumSet.allOf(EndpointEvent.class));
+		assertEquals(EndpointEvent.values().length - 1, rest.size());
+		assertFalse(rest.contains(EndpointEvent.ERROR));
+		assertTrue(endpoint.newEventSubscriptions(EnumSet.allOf(EndpointEvent.class)).isEmpty());
+	}
+
+	@Test
+	public void infoConnectionSubscribesLazily() throws Exception {
+		List<MediaEndpoint> endpoints = new ArrayList<>();
+		for (int i = 0; i < PARTICIPANTS * PARTICIPANTS; i++) {
+			endpoints.add(new SubscriberEndpoint(true, null, "endpoint" + i, null));
+		}
+
+		// Default configuration: no subscription while nobody is watching
+		int joinSubscriptions = 0;
+		for (MediaEndpoint endpoint : endpoints) {
+			joinSubscriptions += endpoint.newEventSubscriptions(EndpointEvent.parse("")).size();
+		}
+
+		InfoHandler infoHandler = new InfoHandler(100);
+		AtomicInteger infoSubscriptions = new AtomicInteger(0);
+		infoHandler.addFirstConnectionListener(() -> {
+			for (MediaEndpoint endpoint : endpoints) {
+				infoSubscriptions.addAndGet(endpoint.newEventSubscriptions(EnumSet.allOf(EndpointEvent.class)).size());
+			}
+		});
+		assertFalse(infoHandler.isActive());
+
+		infoHandler.afterConnectionEstablished(webSocketSession("first"));
+		infoHandler.afterConnectionEstablished(webSocketSession("second"));
+		assertTrue(infoHandler.isActive());
+		log.info("{} endpoints: {} subscriptions to KMS events at join, {} when the info websocket connects "
+				+ "(previously {} at join)", endpoints.size(), joinSubscriptions, infoSubscriptions.get(),
+				endpoints.size() * EndpointEvent.values().length);
+
+		assertEquals(0, joinSubscriptions);
+		// Only the first connection subscribes
+		assertEquals(endpoints.size() * EndpointEvent.values().length, infoSubscriptions.get());
+	}
+
+	@Test
+	public void closedParticipantHasNoPublisherToSubscribe() {
+		AtomicInteger listeners = new AtomicInteger(0);
+		WebRtcEndpoint webEndpoint = (WebRtcEndpoint) Proxy.newProxyInstance(WebRtcEndpoint.class.getClassLoader(),
+				new Class<?>[] { WebRtcEndpoint.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("add") && method.getName().endsWith("Listener")) {
+						listeners.incrementAndGet();
+					}
+					return null;
+				});
+		KurentoSession session = new KurentoSession("session", new SessionProperties.Builder().build(), null,
+				new FakePipelinePool(), new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+		KurentoParticipant participant = new KurentoParticipant(
+				new Participant("privateId", "con_0", new Token("token"), ""), session, null, new InfoHandler(100),
+				EnumSet.noneOf(EndpointEvent.class), new CallDetailRecord()) {
+			@Override
+			protected PublisherEndpoint newPublisherEndpoint() {
+				// Already published
+				return new PublisherEndpoint(true, this, getParticipantPublicId(), null) {
+					@Override
+					public SdpEndpoint getEndpoint() {
+						return webEndpoint;
+					}
+
+					@Override
+					public WebRtcEndpoint getWebEndpoint() {
+						return webEndpoint;
+					}
+				};
+			}
+		};
+
+		participant.addAllEndpointListeners();
+		assertEquals(EndpointEvent.values().length, listeners.get());
+
+		// Closing releases the publisher endpoint, which is not replaced
+		participant.close("disconnect");
+		participant.addAllEndpointListeners();
+		assertEquals(EndpointEvent.values().length, listeners.get());
+	}
+
+	private WebSocketSession webSocketSession(String id) {
+		return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+				new Class<?>[] { WebSocketSession.class }, (proxy, method, args) -> {
+					return "getId".equals(method.getName()) ? id : null;
+				});
+	}
+
+}
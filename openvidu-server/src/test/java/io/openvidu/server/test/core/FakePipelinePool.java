@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import java.lang.reflect.Proxy;
+
+import org.kurento.client.MediaPipeline;
+
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
+
+/**
+ * Hands out pipelines that accept any call without a KMS behind, so sessions
+ * can be joined in tests. Nothing runs in background: the pool is closed as
+ * soon as it is created and every pipeline is made on demand.
+ */
+public class FakePipelinePool extends MediaPipelinePool {
+
+	public FakePipelinePool() {
+		super(null, "fake-kms", 0, Long.MAX_VALUE, Long.MAX_VALUE);
+		close();
+	}
+
+	@Override
+	public MediaPipeline poll() {
+		return (MediaPipeline) Proxy.newProxyInstance(MediaPipeline.class.getClassLoader(),
+				new Class<?>[] { MediaPipeline.class }, (proxy, method, args) -> null);
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.kurento.endpoint.IceCandidateBuffer;
+import io.openvidu.server.kurento.endpoint.IceCandidateCoalescer;
+
+public class IceCandidateCoalescerTest {
+
+	private static final Logger log = LoggerFactory.getLogger(IceCandidateCoalescerTest.class);
+
+	private static final int ENDPOINTS = 100;
+	private static final int CANDIDATES_PER_ENDPOINT = 20;
+
+	@Test
+	public void candidatesAreBufferedUntilTheEndpointIsReady() {
+		List<List<IceCandidate>> requests = new ArrayList<>();
+		IceCandidateBuffer buffer = new IceCandidateBuffer(null, requests::add);
+		buffer.add(candidate(0));
+		buffer.add(candidate(1));
+		assertEquals(0, requests.size());
+		assertEquals(2, buffer.size());
+
+		buffer.ready();
+		assertEquals(1, requests.size());
+		assertEquals(2, requests.get(0).size());
+
+		// Without coalescer, later candidates are sent one by one
+		buffer.add(candidate(2));
+		assertEquals(2, requests.size());
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	public void coalescingSavesKmsRequests() throws InterruptedException {
+		int uncoalesced = trickle(0);
+		int coalesced = trickle(20);
+		log.info("{} candidates for {} endpoints: {} KMS requests without coalescing, {} with a 20 ms window",
+				ENDPOINTS * CANDIDATES_PER_ENDPOINT, ENDPOINTS, uncoalesced, coalesced);
+
+		// Almost one request per candidate (only simultaneous ones share a request)
+		assertTrue("Sent " + uncoalesced + " requests", uncoalesced > ENDPOINTS * CANDIDATES_PER_ENDPOINT * 9 / 10);
+		assertTrue("Sent " + coalesced + " requests", coalesced <= ENDPOINTS * 4);
+	}
+
+	/**
+	 * Trickles the candidates of every endpoint one per millisecond, as a browser
+	 * gathers them
+	 *
+	 * @return number of requests sent to KMS
+	 */
+	private int trickle(long windowMillis) throws InterruptedException {
+		IceCandidateCoalescer coalescer = new IceCandidateCoalescer();
+		coalescer.start(windowMillis);
+		ScheduledExecutorService browsers = Executors.newScheduledThreadPool(4);
+		try {
+			AtomicInteger received = new AtomicInteger(0);
+			CountDownLatch allReceived = new CountDownLatch(ENDPOINTS * CANDIDATES_PER_ENDPOINT);
+			for (int e = 0; e < ENDPOINTS; e++) {
+				IceCandidateBuffer buffer = new IceCandidateBuffer(coalescer, batch -> {
+					received.addAndGet(batch.size());
+					for (int i = 0; i < batch.size(); i++) {
+						allReceived.countDown();
+					}
+				});
+				buffer.ready();
+				for (int i = 0; i < CANDIDATES_PER_ENDPOINT; i++) {
+					IceCandidate candidate = candidate(i);
+					browsers.schedule(() -> buffer.add(candidate), i, TimeUnit.MILLISECONDS);
+				}
+			}
+			assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+			assertEquals(ENDPOINTS * CANDIDATES_PER_ENDPOINT, received.get());
+			assertEquals(ENDPOINTS * CANDIDATES_PER_ENDPOINT, coalescer.getCandidates());
+			assertEquals(coalescer.getCandidates() - coalescer.getKmsRequests(), coalescer.getSavedRequests());
+			return (int) coalescer.getKmsRequests();
+		} finally {
+			browsers.shutdownNow();
+			coalescer.stop();
+		}
+	}
+
+	private IceCandidate candidate(int n) {
+		return new IceCandidate("candidate:" + n + " 1 udp 2122260223 192.168.1.10 " + (50000 + n) + " typ host",
+				"0", 0);
+	}
+
+}
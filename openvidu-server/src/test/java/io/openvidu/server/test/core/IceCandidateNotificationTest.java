@@ -0,0 +1,194 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kurento.client.IceCandidate;
+import org.kurento.jsonrpc.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.rpc.RpcNotificationService;
+
+public class IceCandidateNotificationTest {
+
+	private static final Logger log = LoggerFactory.getLogger(IceCandidateNotificationTest.class);
+
+	private static final int PARTICIPANTS = 50;
+	private static final int CANDIDATES_PER_ENDPOINT = 10;
+	private static final long WINDOW_MILLIS = 100;
+
+	/**
+	 * Counts the notifications (websocket frames) sent to each participant and
+	 * their serialized size
+	 */
+	private static class CountingNotificationService extends RpcNotificationService {
+
+		private final Map<String, RpcConnection> connections = new ConcurrentHashMap<>();
+		private final AtomicInteger frames = new AtomicInteger(0);
+		private final AtomicInteger candidates = new AtomicInteger(0);
+		private final AtomicLong bytes = new AtomicLong(0);
+		private final Set<String> notified = ConcurrentHashMap.newKeySet();
+
+		private void connect(String participantId, boolean batching) {
+			Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+					new Class<?>[] { Session.class }, (proxy, method, args) -> {
+						return "getSessionId".equals(method.getName()) ? participantId : null;
+					});
+			RpcConnection connection = new RpcConnection(session);
+			connection.setIceCandidateBatching(batching);
+			connections.put(participantId, connection);
+		}
+
+		private void disconnect(String participantId) {
+			connections.remove(participantId);
+		}
+
+		@Override
+		public RpcConnection getRpcConnection(String participantPrivateId) {
+			return connections.get(participantPrivateId);
+		}
+
+		@Override
+		public void sendNotification(String participantPrivateId, String method, Object params) {
+			frames.incrementAndGet();
+			notified.add(participantPrivateId);
+			JsonObject json = (JsonObject) params;
+			if (ProtocolElements.ICECANDIDATES_METHOD.equals(method)) {
+				candidates.addAndGet(json.get(ProtocolElements.ICECANDIDATES_CANDIDATES_PARAM).getAsJsonArray().size());
+			} else {
+				candidates.incrementAndGet();
+			}
+			bytes.addAndGet(("{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":" + json + "}").length());
+		}
+	}
+
+	private static class ConfiguredEventsHandler extends KurentoSessionEventsHandler {
+
+		private ConfiguredEventsHandler(RpcNotificationService rpcNotificationService, long window) {
+			this.rpcNotificationService = rpcNotificationService;
+			this.openviduConfig = new OpenviduConfig() {
+				@Override
+				public long getIceCandidateBatchWindow() {
+					return window;
+				}
+			};
+		}
+	}
+
+	private final CountingNotificationService notifications = new CountingNotificationService();
+	private final ConfiguredEventsHandler handler = new ConfiguredEventsHandler(notifications, WINDOW_MILLIS);
+
+	@After
+	public void close() {
+		handler.close();
+	}
+
+	@Test
+	public void clientsNotOptingInReceiveOneNotificationPerCandidate() {
+		notifications.connect("legacy", false);
+		for (int i = 0; i < CANDIDATES_PER_ENDPOINT; i++) {
+			handler.onIceCandidate("session", "legacy", "publisher", candidate(i));
+		}
+		assertEquals(CANDIDATES_PER_ENDPOINT, notifications.frames.get());
+	}
+
+	@Test
+	public void batchOfParticipantThatLeftIsDiscarded() throws InterruptedException {
+		notifications.connect("gone", true);
+		notifications.connect("staying", true);
+		handler.onIceCandidate("session", "gone", "publisher", candidate(0));
+		notifications.disconnect("gone");
+		// Flushed after the batch of the participant that left
+		handler.onIceCandidate("session", "staying", "publisher", candidate(0));
+		for (int i = 0; i < 100 && !notifications.notified.contains("staying"); i++) {
+			Thread.sleep(WINDOW_MILLIS / 2);
+		}
+		assertTrue(notifications.notified.contains("staying"));
+		assertFalse(notifications.notified.contains("gone"));
+	}
+
+	@Test
+	public void joinBurstIsBatched() throws InterruptedException {
+		long legacyBytes = joinBurst(false);
+		int legacyFrames = notifications.frames.getAndSet(0);
+		notifications.candidates.set(0);
+		notifications.bytes.set(0);
+
+		long batchedBytes = joinBurst(true);
+		int total = PARTICIPANTS * PARTICIPANTS * CANDIDATES_PER_ENDPOINT;
+		for (int i = 0; i < 100 && notifications.candidates.get() < total; i++) {
+			Thread.sleep(WINDOW_MILLIS / 2);
+		}
+		int batchedFrames = notifications.frames.get();
+		log.info("Join burst of {} participants: {} frames ({} bytes) one by one, {} frames ({} bytes) batched",
+				PARTICIPANTS, legacyFrames, legacyBytes, batchedFrames, notifications.bytes.get());
+
+		int endpoints = PARTICIPANTS * PARTICIPANTS;
+		assertEquals(endpoints * CANDIDATES_PER_ENDPOINT, legacyFrames);
+		assertEquals(endpoints * CANDIDATES_PER_ENDPOINT, notifications.candidates.get());
+		// One frame per endpoint, unless the burst outlasts the window
+		assertTrue("Sent " + batchedFrames + " frames", batchedFrames <= endpoints * 2);
+		assertTrue(notifications.bytes.get() < legacyBytes);
+		// Nothing is sent before the window elapses
+		assertTrue(batchedBytes < legacyBytes / 2);
+	}
+
+	/**
+	 * Every participant receives the candidates gathered by KMS for its publisher
+	 * and for its subscriptions to everybody else
+	 *
+	 * @return bytes sent while the burst was being received
+	 */
+	private long joinBurst(boolean batching) {
+		for (int p = 0; p < PARTICIPANTS; p++) {
+			notifications.connect("participant" + p, batching);
+		}
+		for (int i = 0; i < CANDIDATES_PER_ENDPOINT; i++) {
+			for (int p = 0; p < PARTICIPANTS; p++) {
+				for (int e = 0; e < PARTICIPANTS; e++) {
+					handler.onIceCandidate("session", "participant" + p, "participant" + e, candidate(i));
+				}
+			}
+		}
+		return notifications.bytes.get();
+	}
+
+	private IceCandidate candidate(int n) {
+		return new IceCandidate("candidate:" + n + " 1 udp 2122260223 192.168.1.10 " + (50000 + n) + " typ host",
+				"0", 0);
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.openvidu.server.config.InfoHandler;
+
+public class InfoHandlerTest {
+
+	private static final int BUFFER_SIZE = 100;
+	private static final int MESSAGES = 2000;
+
+	private final InfoHandler infoHandler = new InfoHandler(BUFFER_SIZE);
+
+	@After
+	public void close() {
+		infoHandler.close();
+	}
+
+	@Test(timeout = 10000)
+	public void blockedClientDoesNotBlockSenders() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		infoHandler.afterConnectionEstablished(webSocketSession("blocked", null, blocked::await));
+		try {
+			// Every call returns while the client is still blocked
+			for (int i = 0; i < MESSAGES; i++) {
+				infoHandler.sendInfo("session", "Media flow in state change " + i);
+			}
+			// Only the messages that fit in the buffer (and the one being sent) are kept
+			assertTrue(infoHandler.getDropped() >= MESSAGES - BUFFER_SIZE - 2);
+		} finally {
+			blocked.countDown();
+		}
+	}
+
+	@Test
+	public void everyMessageIsSentOrDropped() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		AtomicInteger received = new AtomicInteger(0);
+		infoHandler.afterConnectionEstablished(webSocketSession("blocked", null, () -> {
+			blocked.await();
+			received.incrementAndGet();
+		}));
+		for (int i = 0; i < BUFFER_SIZE * 3; i++) {
+			infoHandler.sendInfo("message " + i);
+		}
+		blocked.countDown();
+		for (int i = 0; i < 100 && infoHandler.getSent() + infoHandler.getDropped() < BUFFER_SIZE * 3; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(BUFFER_SIZE * 3, infoHandler.getSent() + infoHandler.getDropped());
+		assertEquals(infoHandler.getSent(), received.get());
+		// The buffer plus the message the sender was blocked on
+		assertTrue(received.get() <= BUFFER_SIZE + 1);
+	}
+
+	@Test
+	public void bufferIsDiscardedOnClose() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		AtomicInteger received = new AtomicInteger(0);
+		WebSocketSession session = webSocketSession("closed", null, () -> {
+			blocked.await();
+			received.incrementAndGet();
+		});
+		infoHandler.afterConnectionEstablished(session);
+		for (int i = 0; i < BUFFER_SIZE; i++) {
+			infoHandler.sendInfo("message " + i);
+		}
+		infoHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+		infoHandler.sendInfo("message after close");
+		blocked.countDown();
+		for (int i = 0; i < 100 && infoHandler.getSent() + infoHandler.getDropped() < BUFFER_SIZE; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(BUFFER_SIZE, infoHandler.getSent() + infoHandler.getDropped());
+		// Only the message the sender was blocked on
+		assertTrue(received.get() <= 1);
+		assertTrue(infoHandler.getDropped() >= BUFFER_SIZE - 1);
+	}
+
+	@Test
+	public void clientsCanFilterBySession() throws Exception {
+		AtomicInteger all = new AtomicInteger(0);
+		AtomicInteger filtered = new AtomicInteger(0);
+		infoHandler.afterConnectionEstablished(webSocketSession("all", null, all::incrementAndGet));
+		infoHandler.afterConnectionEstablished(webSocketSession("filtered", "session=A", filtered::incrementAndGet));
+
+		infoHandler.sendInfo("A", "message of A");
+		infoHandler.sendInfo("B", "message of B");
+		infoHandler.sendInfo("message of no session");
+		for (int i = 0; i < 100 && infoHandler.getSent() < 5; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(3, all.get());
+		assertEquals(2, filtered.get());
+	}
+
+	private interface Receiver {
+		void receive() throws Exception;
+	}
+
+	private WebSocketSession webSocketSession(String id, String query, Receiver receiver) {
+		return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+				new Class<?>[] { WebSocketSession.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getId":
+						return id;
+					case "getUri":
+						return new URI("ws", null, "localhost", 4443, "/info", query, null);
+					case "sendMessage":
+						receiver.receive();
+						return null;
+					default:
+						return null;
+					}
+				});
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsCircuitBreaker;
+import io.openvidu.server.kurento.kms.KmsCircuitBreaker.State;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+
+public class KmsCircuitBreakerTest {
+
+	private static final long MAX_LATENCY = 100;
+	private static final long OPEN_TIME = 200;
+	private static final long SAMPLING_INTERVAL = 10;
+
+	/**
+	 * In-process stand-in of a KMS answering the load queries, with injectable
+	 * latency, hangs and failures
+	 */
+	private static class FakeKms extends MaxWebRtcLoadManager {
+
+		private volatile long latency = 0;
+		private volatile boolean failing = false;
+		private volatile boolean reportingProbe = false;
+		private final CountDownLatch responding = new CountDownLatch(1);
+		private volatile boolean hung = false;
+
+		private FakeKms() {
+			super(1000);
+		}
+
+		@Override
+		public void sampleLoad(Kms kms) {
+			if (reportingProbe) {
+				kms.reportProbeLatency(0);
+			}
+			try {
+				Thread.sleep(latency);
+				if (hung) {
+					responding.await();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new IllegalStateException("KMS request failed");
+			}
+			kms.updatePipelineCount(0);
+		}
+	}
+
+	private final KmsManager manager = new KmsManager() {
+	};
+	private final FakeKms healthyKms = new FakeKms();
+	private final FakeKms faultyKms = new FakeKms();
+	private final Kms healthy = kms("ws://healthy:8888/kurento", healthyKms);
+	private final Kms faulty = kms("ws://faulty:8888/kurento", faultyKms);
+
+	@After
+	public void stopSampling() {
+		healthyKms.responding.countDown();
+		faultyKms.responding.countDown();
+		manager.stopLoadSampling();
+	}
+
+	@Test
+	public void failingKmsIsLeftOutAndReadmitted() throws InterruptedException {
+		manager.addKms(faulty);
+		manager.addKms(healthy);
+		manager.startLoadSampling(SAMPLING_INTERVAL);
+
+		faultyKms.failing = true;
+		waitFor(() -> !faulty.isAvailable());
+		assertEquals(1, faulty.getCircuitBreaker().getOpenCount());
+		for (int i = 0; i < 20; i++) {
+			assertSame(healthy, manager.getKms(session(i)));
+		}
+
+		// Probes keep failing while half-open
+		waitFor(() -> faulty.getCircuitBreaker().getOpenCount() > 1);
+		assertFalse(faulty.isAvailable());
+
+		faultyKms.failing = false;
+		waitFor(() -> faulty.isAvailable());
+		assertEquals(State.CLOSED, faulty.getCircuitBreaker().getState());
+		boolean faultyChosen = false;
+		for (int i = 0; i < 20; i++) {
+			faultyChosen |= manager.getKms(session(i)) == faulty;
+		}
+		assertTrue(faultyChosen);
+	}
+
+	@Test
+	public void hungKmsIsLeftOutBeforeItsRequestCompletes() throws InterruptedException {
+		manager.addKms(faulty);
+		manager.addKms(healthy);
+		manager.startLoadSampling(SAMPLING_INTERVAL);
+		waitFor(() -> faulty.getLoadSampleTime() > 0);
+
+		// The request never completes until the test ends
+		faultyKms.hung = true;
+		waitFor(() -> !faulty.isAvailable());
+		assertSame(healthy, manager.getKms(session(0)));
+	}
+
+	@Test
+	public void slowKmsIsLeftOut() {
+		KmsCircuitBreaker breaker = breaker();
+		for (int i = 0; i < 4; i++) {
+			breaker.recordSuccess(MAX_LATENCY * 2);
+			assertEquals(State.CLOSED, breaker.getState());
+		}
+		breaker.recordSuccess(MAX_LATENCY * 2);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void slowSamplesWithFastProbeKeepKmsAvailable() throws InterruptedException {
+		healthyKms.reportingProbe = true;
+		healthyKms.latency = MAX_LATENCY * 2;
+		Thread sampling = new Thread(() -> {
+			for (int i = 0; i < 5; i++) {
+				healthy.sampleLoad();
+			}
+		});
+		sampling.start();
+		Thread.sleep(MAX_LATENCY * 3 / 2);
+		// Not considered hung while the rest of the sample runs
+		assertTrue(healthy.isAvailable());
+		sampling.join();
+		assertTrue(healthy.isAvailable());
+		assertEquals(State.CLOSED, healthy.getCircuitBreaker().getState());
+	}
+
+	@Test(expected = OpenViduException.class)
+	public void noSessionsWithoutAvailableKms() throws InterruptedException {
+		manager.addKms(faulty);
+		manager.startLoadSampling(SAMPLING_INTERVAL);
+		faultyKms.failing = true;
+		waitFor(() -> !faulty.isAvailable());
+		manager.getKms(session(0));
+	}
+
+	private Kms kms(String uri, FakeKms fakeKms) {
+		Kms kms = new Kms(null, uri);
+		kms.setLoadManager(fakeKms);
+		kms.setCircuitBreaker(breaker());
+		return kms;
+	}
+
+	private KmsCircuitBreaker breaker() {
+		return new KmsCircuitBreaker("ws://kms:8888/kurento", 10, 0.5, MAX_LATENCY, OPEN_TIME, 3);
+	}
+
+	private OpenViduKurentoClientSessionInfo session(int i) {
+		return new OpenViduKurentoClientSessionInfo("privateId", "session" + i);
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long waitUntil = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			assertTrue("Condition not met in time", System.currentTimeMillis() < waitUntil);
+			Thread.sleep(5);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+
+/**
+ * Choosing the less loaded KMS must only read the load figures sampled in
+ * background, even if asking a KMS for its load is slow.
+ */
+public class KmsLoadSamplingTest {
+
+	private static final int KMSS = 3;
+	private static final int SELECTIONS = 10000;
+
+	private final AtomicBoolean sampledFromTestThread = new AtomicBoolean(false);
+	private final Thread testThread = Thread.currentThread();
+	private final CountDownLatch sampled = new CountDownLatch(KMSS);
+	private final CountDownLatch kmsResponds = new CountDownLatch(1);
+
+	/**
+	 * Reports a fixed number of pipelines. Once every KMS has been sampled, the
+	 * next round-trip doesn't return until the test lets it.
+	 */
+	private class SlowLoadManager extends MaxWebRtcLoadManager {
+
+		private final int pipelines;
+
+		private SlowLoadManager(int pipelines) {
+			super(100);
+			this.pipelines = pipelines;
+		}
+
+		@Override
+		public void sampleLoad(Kms kms) {
+			if (Thread.currentThread() == testThread) {
+				sampledFromTestThread.set(true);
+			}
+			if (sampled.getCount() == 0) {
+				try {
+					kmsResponds.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			kms.updatePipelineCount(pipelines);
+			sampled.countDown();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void lessLoadedKmsIsChosenFromSampledLoad() throws InterruptedException {
+		KmsManager manager = new KmsManager() {
+		};
+		Kms busy = kms("ws://kms1:8888/kurento", 80);
+		Kms idle = kms("ws://kms2:8888/kurento", 10);
+		Kms full = kms("ws://kms3:8888/kurento", 120);
+		manager.addKms(busy);
+		manager.addKms(idle);
+		manager.addKms(full);
+
+		manager.startLoadSampling(10);
+		try {
+			assertTrue(sampled.await(5, TimeUnit.SECONDS));
+
+			// The sampler is now stuck waiting for a KMS that doesn't respond
+			for (int i = 0; i < SELECTIONS; i++) {
+				assertSame(idle, manager.getLessLoadedKms());
+			}
+
+			assertFalse("KMS queried while choosing a KMS", sampledFromTestThread.get());
+			assertEquals(0.1, idle.getLoad(), 0.0001);
+			assertEquals(1, full.getLoad(), 0.0001);
+			assertFalse(full.allowMoreElements());
+		} finally {
+			kmsResponds.countDown();
+			manager.stopLoadSampling();
+		}
+	}
+
+	private Kms kms(String uri, int pipelines) {
+		Kms kms = new Kms(null, uri);
+		kms.setLoadManager(new SlowLoadManager(pipelines));
+		return kms;
+	}
+
+}
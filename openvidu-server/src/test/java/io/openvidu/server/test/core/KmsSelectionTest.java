@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsSelectionStrategy;
+import io.openvidu.server.kurento.kms.LeastLoadedKmsSelection;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+import io.openvidu.server.kurento.kms.PowerOfTwoKmsSelection;
+import io.openvidu.server.kurento.kms.RoundRobinKmsSelection;
+import io.openvidu.server.kurento.kms.SessionHashKmsSelection;
+
+/**
+ * Simulates sessions of very different sizes being created and closed in 10
+ * stand-in KMS, and measures how unevenly each selection strategy spreads the
+ * endpoints. As in production, strategies only see the load figures of the
+ * last sample, taken every few sessions.
+ */
+public class KmsSelectionTest {
+
+	private static final Logger log = LoggerFactory.getLogger(KmsSelectionTest.class);
+
+	private static final int KMSS = 10;
+	private static final int MAX_ENDPOINTS_PER_KMS = 100000;
+	private static final int SESSIONS = 20000;
+	private static final int ACTIVE_SESSIONS = 200;
+	private static final int SESSIONS_PER_LOAD_SAMPLE = 5;
+
+	/**
+	 * Load manager of a stand-in KMS: figures are set by the simulation
+	 */
+	private static class StandInLoadManager extends MaxWebRtcLoadManager {
+
+		private StandInLoadManager(int maxEndpoints) {
+			super(maxEndpoints);
+		}
+
+		@Override
+		public void sampleLoad(Kms kms) {
+		}
+	}
+
+	private static class SimulatedSession {
+
+		private final int kms;
+		private final int endpoints;
+
+		private SimulatedSession(int kms, int endpoints) {
+			this.kms = kms;
+			this.endpoints = endpoints;
+		}
+	}
+
+	@Test
+	public void loadImbalanceAcross10Kms() {
+		double roundRobin = simulate(new RoundRobinKmsSelection());
+		double leastLoaded = simulate(new LeastLoadedKmsSelection());
+		double powerOfTwo = simulate(new PowerOfTwoKmsSelection());
+		double sessionHash = simulate(new SessionHashKmsSelection());
+
+		log.info("Average load imbalance (most loaded KMS / mean) across {} KMS: round-robin {}, least-loaded {}, "
+				+ "power-of-two {}, session-hash {}", KMSS, String.format("%.3f", roundRobin),
+				String.format("%.3f", leastLoaded), String.format("%.3f", powerOfTwo),
+				String.format("%.3f", sessionHash));
+
+		assertTrue("least-loaded " + leastLoaded + " vs round-robin " + roundRobin, leastLoaded < roundRobin);
+		assertTrue("power-of-two " + powerOfTwo + " vs round-robin " + roundRobin, powerOfTwo < roundRobin);
+	}
+
+	@Test
+	public void fullKmsAreSkipped() {
+		List<Kms> kmss = standInKmss(3, 10);
+		kmss.get(0).updatePipelineCount(10);
+		kmss.get(2).updatePipelineCount(10);
+		KmsSelectionStrategy[] strategies = { new RoundRobinKmsSelection(), new LeastLoadedKmsSelection(),
+				new PowerOfTwoKmsSelection(), new SessionHashKmsSelection() };
+		for (KmsSelectionStrategy strategy : strategies) {
+			for (int i = 0; i < 100; i++) {
+				assertSame(strategy.getClass().getSimpleName(), kmss.get(1), strategy.select(kmss, session(i)));
+			}
+		}
+
+		kmss.get(1).updatePipelineCount(10);
+		for (KmsSelectionStrategy strategy : strategies) {
+			assertNull(strategy.getClass().getSimpleName(), strategy.select(kmss, session(0)));
+		}
+	}
+
+	@Test
+	public void sessionHashIsSticky() {
+		List<Kms> kmss = standInKmss(KMSS, MAX_ENDPOINTS_PER_KMS);
+		SessionHashKmsSelection strategy = new SessionHashKmsSelection();
+		Map<String, Kms> chosen = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			Kms kms = strategy.select(kmss, session(i));
+			assertNotNull(kms);
+			chosen.put("session" + i, kms);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertSame(chosen.get("session" + i), strategy.select(kmss, session(i)));
+		}
+
+		// Only the sessions of a full KMS move elsewhere
+		Kms full = kmss.get(0);
+		full.updatePipelineCount(MAX_ENDPOINTS_PER_KMS);
+		int moved = 0;
+		for (int i = 0; i < 1000; i++) {
+			Kms kms = strategy.select(kmss, session(i));
+			assertNotSame(full, kms);
+			if (kms != chosen.get("session" + i)) {
+				moved++;
+				assertSame(full, chosen.get("session" + i));
+			}
+		}
+		assertTrue(moved > 0);
+	}
+
+	/**
+	 * @return average over time of the endpoints in the most loaded KMS divided by
+	 *         the mean endpoints per KMS
+	 */
+	private double simulate(KmsSelectionStrategy strategy) {
+		Random random = new Random(42);
+		List<Kms> kmss = standInKmss(KMSS, MAX_ENDPOINTS_PER_KMS);
+		int[] endpoints = new int[KMSS];
+		List<SimulatedSession> active = new ArrayList<>();
+		double imbalanceSum = 0;
+		int samples = 0;
+
+		for (int i = 0; i < SESSIONS; i++) {
+			if (i % SESSIONS_PER_LOAD_SAMPLE == 0) {
+				for (int k = 0; k < KMSS; k++) {
+					kmss.get(k).updatePipelineCount(endpoints[k]);
+				}
+			}
+			if (active.size() == ACTIVE_SESSIONS) {
+				SimulatedSession closed = active.remove(random.nextInt(active.size()));
+				endpoints[closed.kms] -= closed.endpoints;
+			}
+
+			// Mostly one to one calls, some meetings and a few big webinars
+			int size = random.nextInt(100);
+			int participants = size < 70 ? 2 : (size < 95 ? 2 + random.nextInt(10) : 50 + random.nextInt(150));
+			Kms kms = strategy.select(kmss, session(i));
+			int index = kmss.indexOf(kms);
+			active.add(new SimulatedSession(index, participants));
+			endpoints[index] += participants;
+
+			if (i >= ACTIVE_SESSIONS) {
+				int total = 0;
+				int max = 0;
+				for (int e : endpoints) {
+					total += e;
+					max = Math.max(max, e);
+				}
+				imbalanceSum += max / (total / (double) KMSS);
+				samples++;
+			}
+		}
+		return imbalanceSum / samples;
+	}
+
+	private List<Kms> standInKmss(int count, int maxEndpoints) {
+		List<Kms> kmss = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Kms kms = new Kms(null, "ws://kms" + i + ":8888/kurento");
+			kms.setLoadManager(new StandInLoadManager(maxEndpoints));
+			kmss.add(kms);
+		}
+		return kmss;
+	}
+
+	private OpenViduKurentoClientSessionInfo session(int i) {
+		return new OpenViduKurentoClientSessionInfo("privateId", "session" + i);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.kurento.core.KurentoFutures;
+
+public class KurentoFuturesTest {
+
+	private static final Logger log = LoggerFactory.getLogger(KurentoFuturesTest.class);
+
+	private static final int NEGOTIATIONS = 1000;
+	private static final long KMS_ROUND_TRIP_MILLIS = 50;
+
+	@Test
+	public void continuationCompletesFuture() throws Exception {
+		CompletableFuture<String> ok = new CompletableFuture<>();
+		KurentoFutures.continuation(ok).onSuccess("sdpAnswer");
+		assertEquals("sdpAnswer", ok.get());
+
+		CompletableFuture<String> ko = new CompletableFuture<>();
+		KurentoFutures.continuation(ko).onError(new IllegalStateException("KMS error"));
+		assertTrue(ko.isCompletedExceptionally());
+	}
+
+	@Test
+	public void errorsAreUnwrapped() {
+		OpenViduException original = new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "original");
+		assertSame(original, KurentoFutures.toOpenViduException(new CompletionException(original),
+				Code.MEDIA_SDP_ERROR_CODE, "wrapped"));
+
+		OpenViduException wrapped = KurentoFutures.toOpenViduException(
+				new CompletionException(new IllegalStateException("KMS error")), Code.MEDIA_SDP_ERROR_CODE, "wrapped");
+		assertEquals(Code.MEDIA_SDP_ERROR_CODE.getValue(), wrapped.getCodeValue());
+	}
+
+	@Test
+	public void pendingKmsOperationsDontUseThreads() throws Exception {
+		// Simulated KMS answering every request after a fixed delay from a single thread
+		ScheduledExecutorService kms = Executors.newSingleThreadScheduledExecutor();
+		try {
+			int threadsBefore = Thread.activeCount();
+
+			List<CompletableFuture<String>> negotiations = new ArrayList<>();
+			for (int i = 0; i < NEGOTIATIONS; i++) {
+				final int n = i;
+				CompletableFuture<String> endpoint = new CompletableFuture<>();
+				Continuation<String> continuation = KurentoFutures.continuation(endpoint);
+				kms.schedule(() -> {
+					continuation.onSuccess("endpoint" + n);
+					return null;
+				}, KMS_ROUND_TRIP_MILLIS, TimeUnit.MILLISECONDS);
+
+				negotiations.add(KurentoFutures
+						.withTimeout(endpoint, Code.MEDIA_ENDPOINT_ERROR_CODE, "Timeout creating endpoint")
+						.thenApply(e -> "sdpAnswer for " + e));
+			}
+
+			int threadsWhilePending = Thread.activeCount();
+			CompletableFuture.allOf(negotiations.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+			log.info("{} concurrent negotiations: {} threads before, {} while waiting for KMS", NEGOTIATIONS,
+					threadsBefore, threadsWhilePending);
+
+			assertEquals("sdpAnswer for endpoint0", negotiations.get(0).get());
+			// The KMS simulator and the timeout scheduler at most
+			assertTrue("Thread count grew from " + threadsBefore + " to " + threadsWhilePending,
+					threadsWhilePending - threadsBefore <= 2);
+		} finally {
+			kms.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.json.simple.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.kurento.client.MediaPipeline;
+
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
+
+public class MediaPipelinePoolTest {
+
+	private final AtomicInteger created = new AtomicInteger(0);
+	private final AtomicInteger released = new AtomicInteger(0);
+
+	private MediaPipelinePool pool;
+
+	@After
+	public void close() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	@Test
+	public void refillsUpToSize() throws InterruptedException {
+		pool = newPool(3, Long.MAX_VALUE, Long.MAX_VALUE);
+		waitFor(() -> pool.getIdleCount() == 3);
+		assertEquals(3, created.get());
+	}
+
+	@Test
+	public void pollTakesIdlePipelineAndReplacesIt() throws InterruptedException {
+		pool = newPool(3, Long.MAX_VALUE, Long.MAX_VALUE);
+		waitFor(() -> pool.getIdleCount() == 3);
+
+		assertNotNull(pool.poll());
+		waitFor(() -> created.get() == 4);
+		waitFor(() -> pool.getIdleCount() == 3);
+		assertEquals(1, pool.getHits());
+		assertEquals(0, pool.getMisses());
+		assertEquals(1, pool.getHitRate(), 0);
+	}
+
+	@Test
+	public void pollOnEmptyPoolIsAMiss() {
+		pool = newPool(0, Long.MAX_VALUE, Long.MAX_VALUE);
+		assertNull(pool.poll());
+		assertNull(pool.poll());
+		assertEquals(0, pool.getHits());
+		assertEquals(2, pool.getMisses());
+		assertEquals(0, pool.getHitRate(), 0);
+
+		JSONObject json = pool.toJson();
+		assertEquals("ws://kms:8888/kurento", json.get("kms"));
+		assertEquals(2L, json.get("misses"));
+	}
+
+	@Test
+	public void idlePipelinesAreEvictedAndReplaced() throws InterruptedException {
+		pool = newPool(2, 50, 20);
+		waitFor(() -> pool.getEvictions() >= 2);
+		assertTrue(released.get() >= 2);
+		waitFor(() -> pool.getIdleCount() == 2);
+		assertTrue(created.get() >= 4);
+		assertEquals(0, pool.getHits());
+	}
+
+	@Test
+	public void closeReleasesIdlePipelines() throws InterruptedException {
+		pool = newPool(2, Long.MAX_VALUE, Long.MAX_VALUE);
+		waitFor(() -> pool.getIdleCount() == 2);
+
+		pool.close();
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(2, released.get());
+		assertNull(pool.poll());
+		assertEquals(2, created.get());
+	}
+
+	private MediaPipelinePool newPool(int size, long maxIdleTime, long evictionInterval) {
+		return new MediaPipelinePool(null, "ws://kms:8888/kurento", size, maxIdleTime, evictionInterval) {
+			@Override
+			protected void createPipeline(Continuation<MediaPipeline> continuation) {
+				created.incrementAndGet();
+				try {
+					continuation.onSuccess(newPipeline());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Stand-in pipeline that only counts its releases
+	 */
+	private MediaPipeline newPipeline() {
+		return (MediaPipeline) Proxy.newProxyInstance(MediaPipeline.class.getClassLoader(),
+				new Class<?>[] { MediaPipeline.class }, (proxy, method, args) -> {
+					if ("release".equals(method.getName())) {
+						released.incrementAndGet();
+					}
+					return null;
+				});
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long waitUntil = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			assertTrue("Condition not met in time", System.currentTimeMillis() < waitUntil);
+			Thread.sleep(5);
+		}
+	}
+
+}
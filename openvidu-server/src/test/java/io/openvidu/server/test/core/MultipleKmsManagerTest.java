@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.kurento.client.KurentoClient;
+
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MultipleKmsManager;
+
+public class MultipleKmsManagerTest {
+
+	private static final long TIMEOUT_SECONDS = 10;
+
+	@Test
+	public void allKmsAreConnectedInParallel() {
+		List<String> uris = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			uris.add("ws://kms" + i + ":8888/kurento");
+		}
+
+		// No connection completes until all of them are in progress at once
+		CyclicBarrier allConnecting = new CyclicBarrier(uris.size());
+		KmsManager manager = new MultipleKmsManager(uris, uri -> connection(allConnecting));
+
+		assertEquals(8, manager.getKmssSortedByLoad().size());
+
+		// Sessions are spread across all of them
+		Set<String> used = new HashSet<>();
+		for (int i = 0; i < 8; i++) {
+			used.add(manager.getKms(new OpenViduKurentoClientSessionInfo("privateId", "session" + i)).getUri());
+		}
+		assertEquals(new HashSet<>(uris), used);
+	}
+
+	@Test
+	public void unreachableKmsAreLeftOut() {
+		KmsManager manager = new MultipleKmsManager(
+				Arrays.asList("ws://kms0:8888/kurento", "ws://down:8888/kurento", "ws://kms2:8888/kurento"), uri -> {
+					if (uri.contains("down")) {
+						throw new IllegalStateException("Connection refused");
+					}
+					return connection(null);
+				});
+		assertEquals(2, manager.getKmssSortedByLoad().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failsIfNoKmsIsReachable() {
+		new MultipleKmsManager(Arrays.asList("ws://down:8888/kurento"), uri -> {
+			throw new IllegalStateException("Connection refused");
+		});
+	}
+
+	private KurentoClient connection(CyclicBarrier barrier) {
+		if (barrier != null) {
+			try {
+				barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (BrokenBarrierException | TimeoutException e) {
+				throw new IllegalStateException("Connections are not made in parallel", e);
+			}
+		}
+		// Stand-in KMS without a real connection
+		return null;
+	}
+
+}
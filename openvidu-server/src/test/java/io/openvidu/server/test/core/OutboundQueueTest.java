@@ -0,0 +1,278 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.OutboundQueue;
+import io.openvidu.server.rpc.OutboundQueue.OverflowPolicy;
+import io.openvidu.server.rpc.SerializedParams;
+
+public class OutboundQueueTest {
+
+	private static final Logger log = LoggerFactory.getLogger(OutboundQueueTest.class);
+
+	private static final int CAPACITY = 50;
+	private static final int NOTIFICATIONS = 1000;
+	private static final long SLOW_CLIENT_MILLIS = 5;
+
+	private final ExecutorService senders = Executors.newCachedThreadPool();
+	private final CountDownLatch released = new CountDownLatch(1);
+	private final AtomicInteger disconnections = new AtomicInteger(0);
+
+	@After
+	public void close() {
+		released.countDown();
+		senders.shutdownNow();
+	}
+
+	@Test
+	public void messagesAreSentInOrder() throws Exception {
+		OutboundQueue queue = queue(OverflowPolicy.DISCONNECT);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(CAPACITY);
+		for (int i = 0; i < CAPACITY; i++) {
+			String message = "message" + i;
+			Runnable receive = () -> {
+				received.add(message);
+				done.countDown();
+			};
+			if (i % 5 == 0) {
+				assertTrue(queue.offerResponse(receive::run));
+			} else {
+				assertTrue(queue.offerNotification("method", i, receive::run));
+			}
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < CAPACITY; i++) {
+			assertEquals("message" + i, received.get(i));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void stalledClientDoesNotBlockProducer() throws Exception {
+		OutboundQueue queue = queue(OverflowPolicy.DROP_OLDEST);
+		// Every offer returns while the client is stalled on the first one
+		for (int i = 0; i < NOTIFICATIONS; i++) {
+			queue.offerNotification("method", i, released::await);
+		}
+
+		// The one being sent is not in the queue anymore
+		assertTrue(queue.getDepth() <= CAPACITY);
+		assertTrue(queue.getDropped() >= NOTIFICATIONS - CAPACITY - 1);
+		assertFalse(queue.isDisconnected());
+	}
+
+	@Test
+	public void responsesAreNeverDropped() throws Exception {
+		OutboundQueue queue = queue(OverflowPolicy.DROP_OLDEST);
+		for (int i = 0; i < NOTIFICATIONS; i++) {
+			queue.offerNotification("method", i, released::await);
+		}
+		for (int i = 0; i < CAPACITY; i++) {
+			assertTrue(queue.offerResponse(() -> {
+			}));
+		}
+		assertTrue(queue.getDepth() > CAPACITY);
+	}
+
+	@Test
+	public void supersededNotificationsAreCoalesced() throws Exception {
+		OutboundQueue queue = queue(OverflowPolicy.COALESCE);
+		// The client is stalled receiving the first one
+		queue.offerNotification("first", 0, released::await);
+		while (queue.getDepth() > 0) {
+			Thread.sleep(1);
+		}
+		for (int i = 0; i < NOTIFICATIONS; i++) {
+			assertTrue(queue.offerNotification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+					participantPublished("con_" + i % CAPACITY, i), () -> {
+					}));
+		}
+		assertEquals(NOTIFICATIONS - CAPACITY, queue.getCoalesced());
+		assertFalse(queue.isDisconnected());
+		assertEquals(0, disconnections.get());
+
+		// A new notification that supersedes none of them
+		assertFalse(queue.offerNotification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				participantPublished("con_other", 0), () -> {
+				}));
+		assertTrue(queue.isDisconnected());
+	}
+
+	@Test
+	public void notificationsAreCoalescedByEntity() {
+		String published = ProtocolElements.PARTICIPANTPUBLISHED_METHOD;
+		JsonObject params = participantPublished("con_a", 1);
+		assertEquals(OutboundQueue.coalescingKey(published, params),
+				OutboundQueue.coalescingKey(published, participantPublished("con_a", 2)));
+		assertEquals(OutboundQueue.coalescingKey(published, params),
+				OutboundQueue.coalescingKey(published, SerializedParams.of(params)));
+		assertFalse(OutboundQueue.coalescingKey(published, params)
+				.equals(OutboundQueue.coalescingKey(published, participantPublished("con_b", 1))));
+
+		// Every notification about a participant has the same key, whatever its
+		// method, but a recording with the same id is a different entity
+		assertEquals(OutboundQueue.coalescingKey(published, params),
+				OutboundQueue.coalescingKey(ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, participantLeft("con_a")));
+		assertEquals(OutboundQueue.coalescingKey(published, params),
+				OutboundQueue.coalescingKey(ProtocolElements.PARTICIPANTLEFT_METHOD, participantLeft("con_a")));
+		JsonObject recording = new JsonObject();
+		recording.addProperty(ProtocolElements.RECORDINGSTARTED_ID_PARAM, "con_a");
+		assertFalse(OutboundQueue.coalescingKey(published, params)
+				.equals(OutboundQueue.coalescingKey(ProtocolElements.RECORDINGSTARTED_METHOD, recording)));
+
+		// Signals are never superseded, not even by identical ones
+		JsonObject signal = new JsonObject();
+		signal.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_DATA_PARAM, "data");
+		assertNull(OutboundQueue.coalescingKey(ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, signal));
+	}
+
+	@Test
+	public void unpublishedIsDroppedTogetherWithItsPublished() throws Exception {
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		OutboundQueue queue = new OutboundQueue("participant", 3, OverflowPolicy.COALESCE, senders,
+				disconnections::incrementAndGet);
+		CountDownLatch sending = new CountDownLatch(1);
+		queue.offerNotification("first", 0, () -> {
+			sending.countDown();
+			released.await();
+		});
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+		offer(queue, received, ProtocolElements.PARTICIPANTPUBLISHED_METHOD, participantPublished("con_a", 1));
+		offer(queue, received, ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, participantLeft("con_a"));
+		offer(queue, received, ProtocolElements.PARTICIPANTJOINED_METHOD, participantPublished("con_b", 0));
+		// Queue full: the first publish and its unpublish go away together, the
+		// client never sees an unpublish for a stream it didn't see published
+		assertTrue(offer(queue, received, ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				participantPublished("con_a", 2)));
+		assertEquals(2, queue.getCoalesced());
+
+		// Joined and left are dropped in pairs too
+		assertTrue(offer(queue, received, ProtocolElements.PARTICIPANTLEFT_METHOD, participantLeft("con_b")));
+		assertTrue(offer(queue, received, ProtocolElements.PARTICIPANTJOINED_METHOD, participantPublished("con_b", 0)));
+		assertEquals(4, queue.getCoalesced());
+
+		CountDownLatch done = new CountDownLatch(1);
+		queue.offerResponse(done::countDown);
+		released.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(ProtocolElements.PARTICIPANTPUBLISHED_METHOD + " con_a",
+				ProtocolElements.PARTICIPANTJOINED_METHOD + " con_b"), received);
+		assertFalse(queue.isDisconnected());
+	}
+
+	@Test
+	public void notificationIsNotCoalescedAcrossItsOpposite() throws Exception {
+		OutboundQueue queue = new OutboundQueue("participant", 2, OverflowPolicy.COALESCE, senders,
+				disconnections::incrementAndGet);
+		CountDownLatch sending = new CountDownLatch(1);
+		queue.offerNotification("first", 0, () -> {
+			sending.countDown();
+			released.await();
+		});
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+		// The client saw con_a published: its unpublish can't be superseded by the
+		// next publish without the client missing it
+		assertTrue(queue.offerNotification(ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, participantLeft("con_a"),
+				() -> {
+				}));
+		assertTrue(queue.offerNotification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				participantPublished("con_b", 1), () -> {
+				}));
+		assertFalse(queue.offerNotification(ProtocolElements.PARTICIPANTPUBLISHED_METHOD,
+				participantPublished("con_a", 2), () -> {
+				}));
+		assertEquals(0, queue.getCoalesced());
+		assertTrue(queue.isDisconnected());
+	}
+
+	@Test
+	public void slowClientIsDisconnected() throws Exception {
+		OutboundQueue queue = queue(OverflowPolicy.DISCONNECT);
+		AtomicInteger received = new AtomicInteger(0);
+		int accepted = 0;
+		for (int i = 0; i < NOTIFICATIONS; i++) {
+			if (queue.offerNotification("method", i, () -> {
+				Thread.sleep(SLOW_CLIENT_MILLIS);
+				received.incrementAndGet();
+			})) {
+				accepted++;
+			}
+		}
+		log.info("Slow client: {} notifications accepted before being disconnected, {} dropped", accepted,
+				queue.getDropped());
+
+		assertTrue(queue.isDisconnected());
+		assertTrue(accepted < NOTIFICATIONS);
+		assertFalse(queue.offerResponse(() -> {
+		}));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (disconnections.get() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, disconnections.get());
+	}
+
+	private boolean offer(OutboundQueue queue, List<String> received, String method, JsonObject params) {
+		String publicId = params.has(ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM)
+				? params.get(ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM).getAsString()
+				: params.get(ProtocolElements.PARTICIPANTLEFT_NAME_PARAM).getAsString();
+		return queue.offerNotification(method, params, () -> received.add(method + " " + publicId));
+	}
+
+	private JsonObject participantLeft(String publicId) {
+		JsonObject params = new JsonObject();
+		params.addProperty(ProtocolElements.PARTICIPANTLEFT_NAME_PARAM, publicId);
+		return params;
+	}
+
+	private JsonObject participantPublished(String publicId, int frameRate) {
+		JsonObject params = new JsonObject();
+		params.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_USER_PARAM, publicId);
+		params.addProperty(ProtocolElements.PARTICIPANTPUBLISHED_FRAMERATE_PARAM, frameRate);
+		return params;
+	}
+
+	private OutboundQueue queue(OverflowPolicy policy) {
+		return new OutboundQueue("participant", CAPACITY, policy, senders, disconnections::incrementAndGet);
+	}
+
+}
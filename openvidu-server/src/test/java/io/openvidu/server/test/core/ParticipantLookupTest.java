@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+
+/**
+ * The public id index of KurentoSession must always agree with its
+ * participants, whatever the order participants join and leave.
+ */
+public class ParticipantLookupTest {
+
+	private static final int PARTICIPANTS = 50;
+
+	@Test
+	public void indexFollowsJoinAndLeave() {
+		KurentoSession session = newSession();
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			session.join(participant(i));
+		}
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			assertSame(session.getParticipantByPrivateId("privateId" + i), session.getParticipantByPublicId("con_" + i));
+		}
+
+		for (int i = 0; i < PARTICIPANTS; i += 2) {
+			session.leave("privateId" + i, "disconnect");
+		}
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			if (i % 2 == 0) {
+				assertNull(session.getParticipantByPublicId("con_" + i));
+			} else {
+				assertSame(session.getParticipantByPrivateId("privateId" + i),
+						session.getParticipantByPublicId("con_" + i));
+			}
+		}
+		assertEquals(PARTICIPANTS / 2, session.getParticipants().size());
+
+		// Joining again after leaving is found again
+		session.join(participant(0));
+		assertSame(session.getParticipantByPrivateId("privateId0"), session.getParticipantByPublicId("con_0"));
+	}
+
+	@Test
+	public void indexFollowsConcurrentJoinsAndLeaves() throws Exception {
+		KurentoSession session = newSession();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> joins = new ArrayList<>();
+			for (int i = 0; i < PARTICIPANTS; i++) {
+				final int index = i;
+				joins.add(executor.submit(() -> {
+					session.join(participant(index));
+					if (index % 2 == 0) {
+						session.leave("privateId" + index, "disconnect");
+					}
+				}));
+			}
+			for (Future<?> join : joins) {
+				join.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			Participant byPublicId = session.getParticipantByPublicId("con_" + i);
+			assertSame(session.getParticipantByPrivateId("privateId" + i), byPublicId);
+			assertTrue((byPublicId == null) == (i % 2 == 0));
+		}
+		assertEquals(PARTICIPANTS / 2, session.getParticipants().size());
+	}
+
+	@Test
+	public void closedSessionHasNoParticipants() {
+		KurentoSession session = newSession();
+		session.join(participant(0));
+		session.close("sessionClosedByServer");
+		try {
+			session.getParticipantByPublicId("con_0");
+			fail("Closed session should not be looked up");
+		} catch (OpenViduException e) {
+			assertEquals(Code.ROOM_CLOSED_ERROR_CODE.getValue(), e.getCodeValue());
+		}
+	}
+
+	private static KurentoSession newSession() {
+		return new KurentoSession("session", new SessionProperties.Builder().build(), null, new FakePipelinePool(),
+				new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+	}
+
+	private static Participant participant(int i) {
+		return new Participant("privateId" + i, "con_" + i, new Token("token" + i), "");
+	}
+
+}
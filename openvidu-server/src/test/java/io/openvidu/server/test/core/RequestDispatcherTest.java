@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.openvidu.server.rpc.RequestDispatcher;
+
+/**
+ * The dispatch of requests out of the websocket container threads: the thread
+ * receiving a request is released before the request runs, and the requests of
+ * each connection still run in order.
+ */
+public class RequestDispatcherTest {
+
+	private static final int DISPATCH_THREADS = 4;
+
+	private final RequestDispatcher dispatcher = new RequestDispatcher(DISPATCH_THREADS);
+
+	@After
+	public void close() {
+		dispatcher.close();
+	}
+
+	@Test
+	public void requestsOfEachConnectionRunInOrder() throws Exception {
+		int connections = 100;
+		int requestsPerConnection = 50;
+		List<List<Integer>> received = new ArrayList<>();
+		List<Executor> lanes = new ArrayList<>();
+		for (int c = 0; c < connections; c++) {
+			received.add(new ArrayList<>());
+			lanes.add(dispatcher.newLane());
+		}
+		CountDownLatch done = new CountDownLatch(connections * requestsPerConnection);
+		for (int i = 0; i < requestsPerConnection; i++) {
+			for (int c = 0; c < connections; c++) {
+				final int request = i;
+				final List<Integer> connectionReceived = received.get(c);
+				lanes.get(c).execute(() -> {
+					connectionReceived.add(request);
+					done.countDown();
+				});
+			}
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (List<Integer> connectionReceived : received) {
+			for (int i = 0; i < requestsPerConnection; i++) {
+				assertEquals(i, (int) connectionReceived.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void containerThreadReturnsBeforeBlockedRequestCompletes() throws Exception {
+		CountDownLatch kmsAnswered = new CountDownLatch(1);
+		CountDownLatch negotiationStarted = new CountDownLatch(1);
+		AtomicBoolean negotiationCompleted = new AtomicBoolean(false);
+		Executor lane = dispatcher.newLane();
+
+		// This thread plays the container thread receiving the request
+		lane.execute(() -> {
+			negotiationStarted.countDown();
+			try {
+				kmsAnswered.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			negotiationCompleted.set(true);
+		});
+		assertTrue(negotiationStarted.await(5, TimeUnit.SECONDS));
+		assertFalse(negotiationCompleted.get());
+
+		// The next request of the same connection waits for the blocked one, but
+		// the requests of other connections don't
+		CountDownLatch nextDone = new CountDownLatch(1);
+		AtomicBoolean nextRanAfterNegotiation = new AtomicBoolean(false);
+		lane.execute(() -> {
+			nextRanAfterNegotiation.set(negotiationCompleted.get());
+			nextDone.countDown();
+		});
+		CountDownLatch otherDone = new CountDownLatch(1);
+		dispatcher.newLane().execute(otherDone::countDown);
+		assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+		assertEquals(1, nextDone.getCount());
+
+		kmsAnswered.countDown();
+		assertTrue(nextDone.await(5, TimeUnit.SECONDS));
+		assertTrue(nextRanAfterNegotiation.get());
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.ResourceLoadManager;
+
+public class ResourceLoadManagerTest {
+
+	private static final long MAX_MEMORY = 4 * 1024 * 1024; // KiB
+	private static final int MAX_ELEMENTS = 1000;
+	private static final long ELEMENT_SAMPLING_INTERVAL = 30000;
+
+	// CPU 50%, memory 20%, elements 30%
+	private final ResourceLoadManager loadManager = new ResourceLoadManager(5, 2, 3, MAX_MEMORY, MAX_ELEMENTS, 0.5,
+			0.6, ELEMENT_SAMPLING_INTERVAL);
+
+	@Test
+	public void scoreIsWeightedAndClamped() {
+		assertEquals(0, loadManager.calculateScore(0, 0, 0), 0.0001);
+		assertEquals(0.5, loadManager.calculateScore(1, 0, 0), 0.0001);
+		assertEquals(0.2, loadManager.calculateScore(0, 1, 0), 0.0001);
+		assertEquals(0.3, loadManager.calculateScore(0, 0, 1), 0.0001);
+		assertEquals(1, loadManager.calculateScore(2, 1.5, 10), 0.0001);
+	}
+
+	@Test
+	public void fewBigPipelinesLoadMoreThanManySmallOnes() {
+		// 10 rooms of 30 participants saturate the CPU with less elements than 300
+		// one to one calls
+		Kms webinars = kms("ws://kms1:8888/kurento");
+		Kms calls = kms("ws://kms2:8888/kurento");
+		loadManager.updateLoad(webinars, 95, MAX_MEMORY / 2, 300);
+		loadManager.updateLoad(calls, 30, MAX_MEMORY / 4, 600);
+
+		assertTrue(webinars.getLoad() > calls.getLoad());
+		assertFalse(webinars.allowMoreElements());
+		assertTrue(calls.allowMoreElements());
+		assertEquals(600, calls.getElementCount());
+	}
+
+	@Test
+	public void loadIsSmoothed() {
+		Kms kms = kms("ws://kms1:8888/kurento");
+		loadManager.updateLoad(kms, 20, 0, 0);
+		assertEquals(0.1, kms.getLoad(), 0.0001);
+
+		// A single CPU spike doesn't exclude the KMS
+		loadManager.updateLoad(kms, 100, 0, 0);
+		assertEquals(0.3, kms.getLoad(), 0.0001);
+		assertTrue(kms.allowMoreElements());
+
+		// A sustained one does
+		for (int i = 0; i < 10; i++) {
+			loadManager.updateLoad(kms, 100, MAX_MEMORY, MAX_ELEMENTS);
+		}
+		assertEquals(1, kms.getLoad(), 0.01);
+		assertFalse(kms.allowMoreElements());
+	}
+
+	@Test
+	public void elementsAreCountedLessOftenThanLoadIsSampled() {
+		Kms kms = kms("ws://kms1:8888/kurento");
+		long now = System.currentTimeMillis();
+		assertTrue(loadManager.isElementCountDue(kms, now));
+
+		kms.updateElementSampleTime(now);
+		assertFalse(loadManager.isElementCountDue(kms, now + 1000));
+		assertFalse(loadManager.isElementCountDue(kms, now + ELEMENT_SAMPLING_INTERVAL - 1));
+		assertTrue(loadManager.isElementCountDue(kms, now + ELEMENT_SAMPLING_INTERVAL));
+	}
+
+	private Kms kms(String uri) {
+		Kms kms = new Kms(null, uri);
+		kms.setLoadManager(loadManager);
+		return kms;
+	}
+
+}
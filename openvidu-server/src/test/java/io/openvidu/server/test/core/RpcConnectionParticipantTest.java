@@ -0,0 +1,238 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+import io.openvidu.server.rpc.RpcConnection;
+
+/**
+ * Checks the participant kept by each {@link RpcConnection} to resolve the
+ * participant of its requests, which must be forgotten as soon as the
+ * participant leaves its session.
+ */
+public class RpcConnectionParticipantTest {
+
+	private static class TestParticipant extends Participant {
+
+		private TestParticipant(String participantPrivateId, String participantPublicId) {
+			super(participantPrivateId, participantPublicId, new Token("token" + participantPrivateId), "");
+		}
+
+		private void close() {
+			this.closed = true;
+		}
+	}
+
+	/**
+	 * Session checking whether it is closed on every access to its participants,
+	 * as KurentoSession does
+	 */
+	private static class TestSession implements Session {
+
+		private final String sessionId;
+		private final ConcurrentMap<String, Participant> participants = new ConcurrentHashMap<>();
+		private volatile boolean closed = false;
+
+		private TestSession(String sessionId) {
+			this.sessionId = sessionId;
+		}
+
+		private void checkClosed() {
+			if (closed) {
+				throw new IllegalStateException("Session " + sessionId + " closed");
+			}
+		}
+
+		@Override
+		public String getSessionId() {
+			return sessionId;
+		}
+
+		@Override
+		public SessionProperties getSessionProperties() {
+			return null;
+		}
+
+		@Override
+		public void join(Participant participant) {
+			checkClosed();
+			participants.put(participant.getParticipantPrivateId(), participant);
+		}
+
+		@Override
+		public void leave(String participantPrivateId, String reason) {
+			checkClosed();
+			participants.remove(participantPrivateId);
+		}
+
+		@Override
+		public boolean close(String reason) {
+			closed = true;
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public Set<Participant> getParticipants() {
+			checkClosed();
+			return null;
+		}
+
+		@Override
+		public Participant getParticipantByPrivateId(String participantPrivateId) {
+			checkClosed();
+			return participants.get(participantPrivateId);
+		}
+
+		@Override
+		public Participant getParticipantByPublicId(String participantPublicId) {
+			checkClosed();
+			return null;
+		}
+
+		@Override
+		public int getActivePublishers() {
+			return 0;
+		}
+	}
+
+	@Test
+	public void participantIsForgottenWhenItLeaves() {
+		TestSession session = new TestSession("session");
+		TestParticipant participant = new TestParticipant("privateId", "con_0");
+		RpcConnection connection = connection("privateId");
+
+		assertNull(connection.getParticipant());
+		connection.setParticipant(participant, session);
+		assertSame(participant, connection.getParticipant());
+
+		participant.close();
+		assertNull(connection.getParticipant());
+	}
+
+	@Test
+	public void participantIsForgottenWhenItsSessionIsClosed() {
+		TestSession session = new TestSession("session");
+		TestParticipant participant = new TestParticipant("privateId", "con_0");
+		RpcConnection connection = connection("privateId");
+		connection.setParticipant(participant, session);
+
+		session.close("sessionClosedByServer");
+		assertNull(connection.getParticipant());
+		// Not kept without its session
+		connection.setParticipant(participant, null);
+		assertNull(connection.getParticipant());
+	}
+
+	@Test
+	public void participantIsForgottenWhenItLeavesOrIsEvicted() {
+		String sessionId = "wss://localhost:8443/session";
+		KurentoSessionManager sessionManager = new KurentoSessionManager() {
+			{
+				openviduConfig = new OpenviduConfig();
+				sessionEventsHandler = new SessionEventsHandler() {
+					@Override
+					public void sendParticipantJoined(Participant participant, Integer transactionId,
+							JoinNotifications notifications) {
+					}
+
+					@Override
+					public void onParticipantLeft(Participant participant, String sessionId,
+							Set<Participant> remainingParticipants, Integer transactionId, OpenViduException error,
+							String reason) {
+					}
+
+					@Override
+					public void onParticipantEvicted(Participant participant) {
+					}
+
+					@Override
+					public void closeRpcSession(String participantPrivateId) {
+					}
+				};
+				sessions.put(sessionId, new KurentoSession(sessionId, new SessionProperties.Builder().build(), null,
+						new FakePipelinePool(), new KurentoSessionEventsHandler(), null, null, new CallDetailRecord()));
+			}
+		};
+		List<RpcConnection> connections = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			sessionManager.joinRoom(new Participant("privateId" + i, "con_" + i, new Token("token" + i), ""),
+					sessionId, i);
+			RpcConnection connection = connection("privateId" + i);
+			connection.setSessionId(sessionId);
+			assertSame(sessionManager.getParticipant(sessionId, "privateId" + i), resolve(sessionManager, connection));
+			connections.add(connection);
+		}
+
+		sessionManager.leaveRoom(connections.get(0).getParticipant(), null, "disconnect");
+		assertNull(connections.get(0).getParticipant());
+
+		sessionManager.evictParticipant("privateId1", "forceDisconnectByServer");
+		assertNull(connections.get(1).getParticipant());
+
+		// The participant that is still in the session is kept
+		assertSame(sessionManager.getParticipant(sessionId, "privateId2"), connections.get(2).getParticipant());
+	}
+
+	/**
+	 * Resolves the participant of a request as RpcHandler does
+	 */
+	private Participant resolve(SessionManager sessionManager, RpcConnection connection) {
+		Participant participant = connection.getParticipant();
+		if (participant == null) {
+			String sessionId = connection.getSessionId();
+			participant = sessionManager.getParticipant(sessionId, connection.getParticipantPrivateId());
+			connection.setParticipant(participant, sessionManager.getSession(sessionId));
+		}
+		return participant;
+	}
+
+	private RpcConnection connection(String participantPrivateId) {
+		org.kurento.jsonrpc.Session session = (org.kurento.jsonrpc.Session) Proxy.newProxyInstance(
+				org.kurento.jsonrpc.Session.class.getClassLoader(), new Class<?>[] { org.kurento.jsonrpc.Session.class },
+				(proxy, method, args) -> "getSessionId".equals(method.getName()) ? participantPrivateId : null);
+		return new RpcConnection(session);
+	}
+
+}
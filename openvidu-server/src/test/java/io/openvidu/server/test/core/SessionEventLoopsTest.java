@@ -0,0 +1,180 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kurento.client.IceCandidate;
+import org.kurento.client.MediaPipeline;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.SessionEventLoops;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+
+/**
+ * Checks that the operations on each session run in order in the same event
+ * loop
+ */
+public class SessionEventLoopsTest {
+
+	private final SessionEventLoops eventLoops = new SessionEventLoops(4);
+
+	@After
+	public void close() {
+		eventLoops.close();
+	}
+
+	@Test
+	public void kmsEventsRunInTheEventLoopOfTheirSession() throws Exception {
+		String sessionId = "session";
+		List<String> handled = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(2);
+		KurentoSessionEventsHandler handler = new KurentoSessionEventsHandler() {
+			@Override
+			public void onIceCandidate(String roomName, String participantId, String endpointName,
+					IceCandidate candidate) {
+				handled.add(Thread.currentThread().getName());
+				done.countDown();
+			}
+
+			@Override
+			public void onMediaElementError(String roomName, String participantId, String description) {
+				handled.add(Thread.currentThread().getName());
+				done.countDown();
+			}
+		};
+		KurentoSession session = new KurentoSession(sessionId, new SessionProperties.Builder().build(), null,
+				new FakePipelinePool(), handler, null, null, new CallDetailRecord());
+		session.setEventExecutor(eventLoops.get(sessionId));
+
+		session.sendIceCandidate("privateId", "endpoint", new IceCandidate("candidate", "0", 0));
+		session.sendMediaError("privateId", "error");
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		String loopThread = eventLoops.call(sessionId, () -> Thread.currentThread().getName());
+		assertEquals(Arrays.asList(loopThread, loopThread), handled);
+	}
+
+	@Test
+	public void joinDoesNotBlockTheEventLoopWhileThePipelineIsCreated() throws Exception {
+		String sessionId = "session";
+		CompletableFuture<MediaPipeline> pipeline = new CompletableFuture<>();
+		KurentoSession session = new KurentoSession(sessionId, new SessionProperties.Builder().build(), null, null,
+				new KurentoSessionEventsHandler(), null, null, new CallDetailRecord()) {
+			@Override
+			public void createPipeline() {
+			}
+
+			@Override
+			public CompletableFuture<MediaPipeline> getPipelineAsync() {
+				return pipeline;
+			}
+
+			@Override
+			public MediaPipeline getPipeline() {
+				return pipeline.getNow(null);
+			}
+		};
+		List<String> joinedIn = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch joined = new CountDownLatch(1);
+		KurentoSessionManager sessionManager = new KurentoSessionManager() {
+			{
+				openviduConfig = new OpenviduConfig();
+				sessionEventLoops = eventLoops;
+				sessionEventsHandler = new SessionEventsHandler() {
+					@Override
+					public void sendParticipantJoined(Participant participant, Integer transactionId,
+							JoinNotifications notifications) {
+						joinedIn.add(Thread.currentThread().getName());
+						joined.countDown();
+					}
+				};
+				sessions.put(sessionId, session);
+			}
+		};
+
+		CountDownLatch returned = new CountDownLatch(1);
+		eventLoops.get(sessionId).execute(() -> {
+			sessionManager.joinRoom(new Participant("privateId", "con_0", new Token("token"), ""), sessionId, 1);
+			returned.countDown();
+		});
+		// The event loop is released while KMS creates the pipeline
+		assertTrue(returned.await(5, TimeUnit.SECONDS));
+		assertEquals("free", eventLoops.call(sessionId, () -> "free"));
+		assertEquals(1, joined.getCount());
+		assertTrue(session.getParticipants().isEmpty());
+
+		// The participant is added in the event loop once the pipeline is ready
+		pipeline.complete(new FakePipelinePool().poll());
+		assertTrue(joined.await(5, TimeUnit.SECONDS));
+		String loopThread = eventLoops.call(sessionId, () -> Thread.currentThread().getName());
+		assertEquals(Arrays.asList(loopThread), joinedIn);
+		assertEquals(1, session.getParticipants().size());
+	}
+
+	@Test
+	public void sessionAlwaysRunsInTheSameThread() throws Exception {
+		String sessionId = "wss://localhost:8443/session";
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		List<Integer> order = new ArrayList<>();
+		CountDownLatch done = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			final int n = i;
+			eventLoops.get(sessionId).execute(() -> {
+				threads.add(Thread.currentThread().getName());
+				order.add(n);
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, threads.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, (int) order.get(i));
+		}
+		assertFalse(eventLoops.inEventLoop(sessionId));
+		assertTrue(eventLoops.call(sessionId, () -> eventLoops.inEventLoop(sessionId)));
+	}
+
+	@Test
+	public void callFromTheEventLoopRunsRightAway() throws Exception {
+		String sessionId = "wss://localhost:8443/session";
+		// Would never finish if the inner call waited for the event loop running it
+		String result = eventLoops.call(sessionId, () -> eventLoops.call(sessionId, () -> "evicted"));
+		assertEquals("evicted", result);
+	}
+
+}
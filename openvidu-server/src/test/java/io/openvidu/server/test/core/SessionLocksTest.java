@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.SessionLocks;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+
+public class SessionLocksTest {
+
+	@Test
+	public void sameSessionAlwaysGetsSameLock() {
+		SessionLocks locks = new SessionLocks(100);
+		assertEquals(128, locks.getStripes());
+		assertSame(locks.get("wss://localhost:8443/session"), locks.get("wss://localhost:8443/session"));
+	}
+
+	@Test
+	public void differentSessionsAreSpreadAcrossStripes() {
+		SessionLocks locks = new SessionLocks();
+		Set<ReentrantLock> used = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < locks.getStripes(); i++) {
+			used.add(locks.get("wss://localhost:8443/session" + i));
+		}
+		// At least half of the stripes must be in use for consecutive session ids
+		assertTrue("Only " + used.size() + " stripes used", used.size() >= locks.getStripes() / 2);
+	}
+
+	@Test
+	public void lockedSessionDoesNotBlockOtherSessions() throws Exception {
+		SessionLocks locks = new SessionLocks();
+		String sessionId = "wss://localhost:8443/session0";
+		String otherSessionId = null;
+		for (int i = 1; otherSessionId == null; i++) {
+			if (locks.get("wss://localhost:8443/session" + i) != locks.get(sessionId)) {
+				otherSessionId = "wss://localhost:8443/session" + i;
+			}
+		}
+		String otherSession = otherSessionId;
+
+		ExecutorService otherThread = Executors.newSingleThreadExecutor();
+		locks.get(sessionId).lock();
+		try {
+			assertFalse(otherThread.submit(() -> tryLock(locks.get(sessionId))).get());
+			assertTrue(otherThread.submit(() -> tryLock(locks.get(otherSession))).get());
+		} finally {
+			locks.get(sessionId).unlock();
+			otherThread.shutdown();
+		}
+	}
+
+	@Test
+	public void joinNotificationsAreSentOutOfTheSessionLock() {
+		String sessionId = "wss://localhost:8443/session";
+		List<String> sent = new ArrayList<>();
+		KurentoSessionManager sessionManager = new KurentoSessionManager() {
+			{
+				sessionEventsHandler = new SessionEventsHandler() {
+					@Override
+					public void sendParticipantJoined(Participant participant, Integer transactionId,
+							JoinNotifications notifications) {
+						assertFalse("Notifications sent holding the session lock",
+								sessionLocks.get(sessionId).isHeldByCurrentThread());
+						sent.add(participant.getParticipantPublicId());
+					}
+				};
+				sessions.put(sessionId, new KurentoSession(sessionId, new SessionProperties.Builder().build(), null,
+						new FakePipelinePool(), new KurentoSessionEventsHandler(), null, null, new CallDetailRecord()));
+			}
+		};
+		sessionManager.joinRoom(new Participant("privateId1", "con_1", new Token("token1"), ""), sessionId, 1);
+		sessionManager.joinRoom(new Participant("privateId2", "con_2", new Token("token2"), ""), sessionId, 2);
+
+		assertEquals(Arrays.asList("con_1", "con_2"), sent);
+		assertEquals(2, sessionManager.getParticipants(sessionId).size());
+	}
+
+	private static boolean tryLock(ReentrantLock lock) {
+		if (lock.tryLock()) {
+			lock.unlock();
+			return true;
+		}
+		return false;
+	}
+
+}
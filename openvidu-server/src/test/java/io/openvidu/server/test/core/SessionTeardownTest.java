@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.openvidu.server.core.SessionTeardown;
+
+public class SessionTeardownTest {
+
+	private static final int SESSIONS = 40;
+	private static final int PARALLELISM = 16;
+
+	@Test
+	public void sessionsAreClosedInParallel() {
+		List<String> sessionIds = sessionIds(SESSIONS);
+		AtomicInteger closed = new AtomicInteger(0);
+		AtomicInteger closing = new AtomicInteger(0);
+		AtomicInteger maxClosing = new AtomicInteger(0);
+		CountDownLatch allThreadsBusy = new CountDownLatch(PARALLELISM);
+		SessionTeardown.SessionCloser closer = sessionId -> {
+			maxClosing.accumulateAndGet(closing.incrementAndGet(), Math::max);
+			allThreadsBusy.countDown();
+			// Every thread is closing a session at the same time at least once
+			allThreadsBusy.await();
+			closing.decrementAndGet();
+			closed.incrementAndGet();
+			return true;
+		};
+
+		SessionTeardown.Result result = new SessionTeardown(PARALLELISM, 60000).closeAll(sessionIds, closer);
+
+		assertEquals(SESSIONS, closed.get());
+		assertEquals(SESSIONS, result.getClean());
+		assertEquals(0, result.getForced());
+		assertEquals(PARALLELISM, maxClosing.get());
+	}
+
+	@Test
+	public void sessionsNotClosedBeforeDeadlineAreForced() {
+		SessionTeardown.Result result = new SessionTeardown(4, 200).closeAll(
+				Arrays.asList("fast1", "stuck", "fast2", "failing"), sessionId -> {
+					if ("stuck".equals(sessionId)) {
+						Thread.sleep(60000);
+					} else if ("failing".equals(sessionId)) {
+						throw new IllegalStateException("KMS connection lost");
+					}
+					return true;
+				});
+
+		assertEquals(2, result.getClean());
+		assertEquals(Arrays.asList("stuck", "failing"), result.getForcedSessions());
+		assertEquals(0, result.getAlreadyClosed());
+		assertTrue("Deadline not honored: " + result.getElapsedMillis() + " ms", result.getElapsedMillis() < 5000);
+	}
+
+	@Test
+	public void sessionsClosedMeanwhileAreNotForced() {
+		SessionTeardown.Result result = new SessionTeardown(4, 60000).closeAll(
+				Arrays.asList("open1", "closedByLastParticipant", "open2"),
+				sessionId -> !"closedByLastParticipant".equals(sessionId));
+
+		assertEquals(2, result.getClean());
+		assertEquals(Arrays.asList("closedByLastParticipant"), result.getAlreadyClosedSessions());
+		assertEquals(0, result.getForced());
+	}
+
+	@Test
+	public void noSessions() {
+		SessionTeardown.Result result = new SessionTeardown(4, 200).closeAll(Collections.emptyList(),
+				sessionId -> true);
+		assertEquals(0, result.getClean() + result.getAlreadyClosed() + result.getForced());
+	}
+
+	private List<String> sessionIds(int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add("session" + i);
+		}
+		return ids;
+	}
+
+}
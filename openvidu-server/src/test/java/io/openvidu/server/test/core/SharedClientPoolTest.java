@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.openvidu.server.kurento.SharedClientPool;
+
+public class SharedClientPoolTest {
+
+	private static final Logger log = LoggerFactory.getLogger(SharedClientPoolTest.class);
+
+	private static final int SESSIONS_PER_CLIENT = 5;
+
+	/**
+	 * Stand-in for a KurentoClient: one websocket connection to a KMS
+	 */
+	private static class FakeClient {
+
+		private volatile boolean closed = false;
+	}
+
+	private int connections = 0;
+
+	private final SharedClientPool<FakeClient> pool = new SharedClientPool<>(() -> {
+		connections++;
+		return new FakeClient();
+	}, client -> client.closed = true, client -> !client.closed, SESSIONS_PER_CLIENT, 50);
+
+	@Test
+	public void sessionChurnReusesConnections() {
+		Random random = new Random(42);
+		Deque<FakeClient> sessions = new ArrayDeque<>();
+		for (int i = 0; i < 1000; i++) {
+			if (sessions.size() == 12 || (!sessions.isEmpty() && random.nextBoolean())) {
+				pool.release(sessions.poll());
+			}
+			sessions.add(pool.acquire());
+		}
+		log.info("1000 sessions (at most 12 at a time) used {} connections", connections);
+
+		// Without sharing every session opened its own connection
+		assertTrue("Opened " + connections + " connections", connections <= 3);
+		assertEquals(1000, pool.getCreated() + pool.getReused());
+	}
+
+	@Test
+	public void clientsAreSharedUpToTheirCapacity() {
+		FakeClient first = pool.acquire();
+		for (int i = 1; i < SESSIONS_PER_CLIENT; i++) {
+			assertSame(first, pool.acquire());
+		}
+		FakeClient second = pool.acquire();
+		assertNotSame(first, second);
+		assertEquals(2, pool.getClientCount());
+	}
+
+	@Test
+	public void idleClientsAreEvicted() throws InterruptedException {
+		FakeClient client = pool.acquire();
+		pool.release(client);
+		assertEquals(0, pool.evictIdle());
+		assertSame(client, pool.acquire());
+		pool.release(client);
+
+		Thread.sleep(60);
+		assertEquals(1, pool.evictIdle());
+		assertTrue(client.closed);
+		assertEquals(0, pool.getClientCount());
+	}
+
+	@Test
+	public void deadClientsAreNotReused() {
+		FakeClient client = pool.acquire();
+		client.closed = true;
+		assertNotSame(client, pool.acquire());
+
+		pool.release(client);
+		assertEquals(1, pool.evictIdle());
+		assertEquals(1, pool.getClientCount());
+	}
+
+}
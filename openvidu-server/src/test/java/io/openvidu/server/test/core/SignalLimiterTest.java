@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.SignalLimiter;
+
+public class SignalLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final String SIGNAL = "{\"data\":\"hello\",\"type\":\"chat\",\"to\":[]}";
+
+	@Test
+	public void burstThenRate() {
+		SignalLimiter limiter = new SignalLimiter(0, 10, 20, 0, 0, 0, 0, 0);
+		limiter.addParticipant("s", "p", 0);
+		for (int i = 0; i < 20; i++) {
+			limiter.check("s", "p", SIGNAL, 0);
+		}
+		assertRejected(limiter, "p", SIGNAL, 0, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+
+		// 10 signals per second: one more token every 100 ms
+		assertRejected(limiter, "p", SIGNAL, SECOND / 20, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+		limiter.check("s", "p", SIGNAL, SECOND / 10);
+		assertRejected(limiter, "p", SIGNAL, SECOND / 10, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+
+		// Refill never exceeds the burst
+		for (int i = 0; i < 20; i++) {
+			limiter.check("s", "p", SIGNAL, 100 * SECOND);
+		}
+		assertRejected(limiter, "p", SIGNAL, 100 * SECOND, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+
+		assertEquals(41, limiter.getAccepted());
+		assertEquals(4, limiter.getRejectedByRate());
+	}
+
+	@Test
+	public void participantsHaveTheirOwnLimits() {
+		SignalLimiter limiter = new SignalLimiter(0, 1, 1, 0, 0, 0, 0, 0);
+		limiter.addParticipant("s", "p1", 0);
+		limiter.addParticipant("s", "p2", 0);
+		limiter.check("s", "p1", SIGNAL, 0);
+		assertRejected(limiter, "p1", SIGNAL, 0, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+		limiter.check("s", "p2", SIGNAL, 0);
+
+		// A participant joining again starts with a full bucket
+		limiter.removeParticipant("p1");
+		limiter.addParticipant("s", "p1", 0);
+		limiter.check("s", "p1", SIGNAL, 0);
+		assertRejected(limiter, "p1", SIGNAL, 0, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+	}
+
+	@Test
+	public void removedParticipantIsNotAddedBack() {
+		SignalLimiter limiter = new SignalLimiter(0, 1, 1, 0, 0, 0, 0, 0);
+		limiter.addParticipant("s", "p", 0);
+		limiter.removeParticipant("p");
+
+		// Signals still in flight when the participant left don't create its
+		// limits again, which would never be removed
+		limiter.check("s", "p", SIGNAL, 0);
+		limiter.check("s", "p", SIGNAL, 0);
+		assertEquals(2, limiter.getAccepted());
+		assertEquals(0, limiter.getRejectedByRate());
+	}
+
+	@Test
+	public void rejectedSignalsAreRefunded() {
+		SignalLimiter limiter = new SignalLimiter(0, 1, 1, 10, 1, 10, 100, 150);
+		limiter.addParticipant("s", "p1", 0);
+		limiter.addParticipant("s", "p2", 0);
+
+		// The session bucket is empty: p1 is rejected without spending its own token
+		limiter.check("s", "p2", SIGNAL, 0);
+		assertRejected(limiter, "p1", SIGNAL, 0, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+		limiter.check("s", "p1", SIGNAL, SECOND / 10);
+
+		// The session quota is full: p1 is rejected without spending its own quota
+		String fifty = new String(new char[50]).replace('\0', 'x');
+		limiter.check("s", "p2", fifty, SECOND);
+		assertRejected(limiter, "p1", fifty, 2 * SECOND, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+		limiter.check("other", "p1", new String(new char[100 - SIGNAL.length()]).replace('\0', 'x'),
+				3 * SECOND);
+	}
+
+	@Test
+	public void sessionLimitCountsEveryParticipant() {
+		SignalLimiter limiter = new SignalLimiter(0, 0, 0, 1, 3, 0, 0, 0);
+		for (int i = 1; i <= 4; i++) {
+			limiter.addParticipant("s", "p" + i, 0);
+		}
+		limiter.addParticipant("other", "p5", 0);
+		limiter.check("s", "p1", SIGNAL, 0);
+		limiter.check("s", "p2", SIGNAL, 0);
+		limiter.check("s", "p3", SIGNAL, 0);
+		assertRejected(limiter, "p4", SIGNAL, 0, Code.SIGNAL_RATE_LIMIT_ERROR_CODE);
+		limiter.check("other", "p5", SIGNAL, 0);
+
+		// A session created again starts with a full bucket
+		limiter.removeSession("s");
+		limiter.addParticipant("s", "p4", 0);
+		limiter.check("s", "p4", SIGNAL, 0);
+	}
+
+	@Test
+	public void maxSize() {
+		SignalLimiter limiter = new SignalLimiter(10, 0, 0, 0, 0, 0, 0, 0);
+		limiter.check("s", "p", "0123456789", 0);
+		assertRejected(limiter, "p", "0123456789a", 0, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+		// Size is measured in UTF-8 bytes, not in chars
+		limiter.check("s", "p", "ñññññ", 0);
+		assertRejected(limiter, "p", "ññññña", 0, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+		limiter.check("s", "p", "😀😀", 0);
+		assertRejected(limiter, "p", "😀😀😀", 0, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+		assertEquals(3, limiter.getRejectedBySize());
+	}
+
+	@Test
+	public void quotaWindow() {
+		SignalLimiter limiter = new SignalLimiter(0, 0, 0, 0, 0, 10, 100, 150);
+		limiter.addParticipant("s", "p1", 0);
+		limiter.addParticipant("s", "p2", 0);
+		String fifty = new String(new char[50]).replace('\0', 'x');
+		limiter.check("s", "p1", fifty, 0);
+		limiter.check("s", "p1", fifty, SECOND);
+		assertRejected(limiter, "p1", fifty, 2 * SECOND, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+
+		// The session quota counts the bytes of every participant
+		limiter.check("s", "p2", fifty, 3 * SECOND);
+		assertRejected(limiter, "p2", fifty, 3 * SECOND, Code.SIGNAL_SIZE_LIMIT_ERROR_CODE);
+
+		// Quotas are restored in the next window
+		limiter.check("s", "p1", fifty, 10 * SECOND);
+		limiter.check("s", "p1", fifty, 10 * SECOND);
+		assertEquals(2, limiter.getRejectedByQuota());
+	}
+
+	@Test
+	public void unlimited() {
+		SignalLimiter limiter = SignalLimiter.unlimited();
+		String large = new String(new char[1 << 20]).replace('\0', 'x');
+		for (int i = 0; i < 10000; i++) {
+			limiter.check("s", "p", large, 0);
+		}
+		assertEquals(10000, limiter.getAccepted());
+	}
+
+	private void assertRejected(SignalLimiter limiter, String participantPrivateId, String message, long now,
+			Code code) {
+		try {
+			limiter.check("s", participantPrivateId, message, now);
+			fail("Signal should have been rejected");
+		} catch (OpenViduException e) {
+			assertEquals(code.getValue(), e.getCodeValue());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.Signal;
+
+/**
+ * Checks the parsing of signals
+ */
+public class SignalTest {
+
+	@Test
+	public void signalIsParsed() {
+		Signal signal = Signal.parse(
+				"{\"data\":\"hello\",\"type\":\"signal:chat\",\"extra\":{\"a\":[1,2]},\"to\":[\"con_1\",\"con_2\"]}");
+		assertEquals("hello", signal.getData());
+		assertEquals("signal:chat", signal.getType());
+		assertEquals(Arrays.asList("con_1", "con_2"), signal.getTo());
+
+		assertTrue(Signal.parse("{\"data\":\"hello\",\"type\":\"signal\"}").getTo().isEmpty());
+		assertEquals("1", Signal.parse("{\"data\":1,\"type\":\"signal\"}").getData());
+	}
+
+	@Test
+	public void invalidSignalsAreRejected() {
+		assertRejected("not json", Code.SIGNAL_FORMAT_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":", Code.SIGNAL_FORMAT_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\",\"to\":[null]}", Code.SIGNAL_TO_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\",\"to\":\"con_1\"}", Code.SIGNAL_TO_INVALID_ERROR_CODE);
+		assertRejected("{\"type\":\"signal\"}", Code.SIGNAL_MESSAGE_INVALID_ERROR_CODE);
+	}
+
+	@Test
+	public void nonStringRecipientsAreRejected() {
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\",\"to\":[{\"id\":\"con_1\"}]}",
+				Code.SIGNAL_TO_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\",\"to\":[[\"con_1\"]]}",
+				Code.SIGNAL_TO_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\",\"to\":[\"con_1\",{}]}",
+				Code.SIGNAL_TO_INVALID_ERROR_CODE);
+	}
+
+	@Test
+	public void trailingContentIsRejected() {
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\"} garbage", Code.SIGNAL_FORMAT_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\"}{\"data\":\"bye\"}",
+				Code.SIGNAL_FORMAT_INVALID_ERROR_CODE);
+		assertRejected("{\"data\":\"hello\",\"type\":\"signal\"}}", Code.SIGNAL_FORMAT_INVALID_ERROR_CODE);
+		assertEquals("hello", Signal.parse("{\"data\":\"hello\",\"type\":\"signal\"}\n").getData());
+	}
+
+	private void assertRejected(String message, Code code) {
+		try {
+			Signal.parse(message);
+			fail("Signal " + message + " should be rejected");
+		} catch (OpenViduException e) {
+			assertEquals(code.getValue(), e.getCodeValue());
+		}
+	}
+
+}
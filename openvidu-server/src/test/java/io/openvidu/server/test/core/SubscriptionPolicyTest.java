@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.java.client.SubscriptionPolicy;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
+
+/**
+ * Subscriber endpoints allocated in a 200 participant session where only a few
+ * participants publish, for each subscription policy. No KMS is needed:
+ * subscriber endpoints only reach KMS once they are connected.
+ */
+public class SubscriptionPolicyTest {
+
+	private static final int PARTICIPANTS = 200;
+	private static final int PUBLISHERS = 10;
+
+	@Test
+	public void eagerPreparesEndpointsForEveryone() {
+		// Every participant prepares an endpoint for everyone that joined before, and
+		// for every publisher that joined after
+		long publishersJoinedAfter = 0;
+		for (int i = 0; i < PARTICIPANTS; i += PARTICIPANTS / PUBLISHERS) {
+			publishersJoinedAfter += i;
+		}
+		assertEquals(PARTICIPANTS * (PARTICIPANTS - 1) / 2 + publishersJoinedAfter,
+				subscriberEndpoints(SubscriptionPolicy.EAGER));
+	}
+
+	@Test
+	public void lazyPreparesEndpointsForPublishers() {
+		// Everyone prepares an endpoint for every publisher
+		assertEquals(PUBLISHERS * (PARTICIPANTS - 1), subscriberEndpoints(SubscriptionPolicy.LAZY));
+	}
+
+	@Test
+	public void onDemandPreparesNoEndpoint() {
+		assertEquals(0, subscriberEndpoints(SubscriptionPolicy.ON_DEMAND));
+	}
+
+	/**
+	 * @return number of subscriber endpoints allocated by all the participants
+	 */
+	private long subscriberEndpoints(SubscriptionPolicy policy) {
+		KurentoSession session = new KurentoSession("session-" + policy,
+				new SessionProperties.Builder().subscriptionPolicy(policy).build(), null, new FakePipelinePool(),
+				new KurentoSessionEventsHandler(), null, null, new CallDetailRecord());
+
+		for (int i = 0; i < PARTICIPANTS; i++) {
+			session.join(new Participant("privateId" + i, "con_" + i, new Token("token" + i), ""));
+			if (i % (PARTICIPANTS / PUBLISHERS) == 0) {
+				// Publishers spread along the life of the session
+				KurentoParticipant publisher = (KurentoParticipant) session.getParticipantByPrivateId("privateId" + i);
+				publisher.setStreaming(true);
+				session.newPublisher(publisher);
+			}
+		}
+
+		long subscribers = 0;
+		for (Participant p : session.getParticipants()) {
+			subscribers += ((KurentoParticipant) p).getSubscriberCount();
+		}
+		session.close("sessionClosedByServer");
+		return subscribers;
+	}
+
+}
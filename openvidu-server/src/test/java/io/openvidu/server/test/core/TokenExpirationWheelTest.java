@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2017-2018 OpenVidu (http://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.ParticipantRole;
+import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.core.TokenExpirationWheel;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+
+public class TokenExpirationWheelTest {
+
+	private static final String SESSION = "wss://localhost:8443/session";
+
+	private static final int SLOTS = 8;
+	private static final long TICK = 1000;
+	private static final long START = 1_000_000;
+
+	private final List<Token> expired = new ArrayList<>();
+	private final TokenExpirationWheel wheel = new TokenExpirationWheel(SLOTS, TICK, START,
+			(sessionId, token) -> expired.add(token));
+
+	@Test
+	public void tokensExpireAtTheirTick() {
+		Token first = token("first", START + 2500);
+		Token second = token("second", START + 5000);
+		wheel.add(SESSION, first);
+		wheel.add(SESSION, second);
+
+		assertEquals(0, wheel.expire(START + 2000));
+		assertEquals(1, wheel.expire(START + 3000));
+		assertEquals(first, expired.get(0));
+		assertEquals(0, wheel.expire(START + 4999));
+		assertEquals(1, wheel.expire(START + 5000));
+		assertEquals(second, expired.get(1));
+	}
+
+	@Test
+	public void tokensLongerThanOneTurnWaitForTheirTurn() {
+		// Same slot as a token expiring in tick 1, but one turn later
+		Token late = token("late", START + (SLOTS + 1) * TICK);
+		wheel.add(SESSION, late);
+
+		assertEquals(0, wheel.expire(START + 2 * TICK));
+		assertTrue(expired.isEmpty());
+		assertEquals(1, wheel.expire(START + (SLOTS + 1) * TICK));
+		assertEquals(late, expired.get(0));
+	}
+
+	@Test
+	public void tokensWithoutExpirationAreIgnored() {
+		wheel.add(SESSION, new Token("forever", ParticipantRole.PUBLISHER, ""));
+		assertEquals(0, wheel.expire(START + 100 * SLOTS * TICK));
+	}
+
+	@Test
+	public void tokenCountFollowsTokensAddedAndRemoved() {
+		SessionManager sessionManager = new KurentoSessionManager() {
+			{
+				openviduConfig = new OpenviduConfig();
+			}
+		};
+		String sessionId = sessionManager.newSessionId(new SessionProperties.Builder().build());
+		String otherSessionId = sessionManager.newSessionId(new SessionProperties.Builder().build());
+		String token = sessionManager.newToken(sessionId, ParticipantRole.PUBLISHER, "");
+		sessionManager.newToken(sessionId, ParticipantRole.PUBLISHER, "");
+		sessionManager.newToken(otherSessionId, ParticipantRole.PUBLISHER, "");
+		assertEquals(3, sessionManager.getTokenCount());
+
+		sessionManager.consumeToken(sessionId, "privateId", token);
+		assertEquals(2, sessionManager.getTokenCount());
+		try {
+			sessionManager.consumeToken(sessionId, "privateId", token);
+		} catch (OpenViduException e) {
+			// Already consumed
+		}
+		assertEquals(2, sessionManager.getTokenCount());
+
+		sessionManager.newInsecureParticipant("insecureId");
+		sessionManager.isTokenValidInSession("insecureToken", otherSessionId, "insecureId");
+		sessionManager.isTokenValidInSession("insecureToken", otherSessionId, "insecureId");
+		assertEquals(3, sessionManager.getTokenCount());
+	}
+
+	private Token token(String id, long expirationTime) {
+		return new Token(id, ParticipantRole.PUBLISHER, "", expirationTime);
+	}
+
+}